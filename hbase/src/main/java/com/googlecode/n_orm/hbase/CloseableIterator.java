@@ -14,12 +14,14 @@ import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.storeapi.CloseableKeyIterator;
 import com.googlecode.n_orm.storeapi.Constraint;
 import com.googlecode.n_orm.storeapi.MetaInformation;
+import com.googlecode.n_orm.storeapi.MultiRangeConstraint;
 import com.googlecode.n_orm.storeapi.Row;
 
 final class CloseableIterator implements CloseableKeyIterator {
 	private ResultScanner result;
 	private Iterator<Result> iterator;
 	private final boolean sendValues;
+	private final boolean ordered;
 	private final Class<? extends PersistingElement> clazz;
 	private final MangledTableName table;
 	private final String tablePostfix;
@@ -30,10 +32,15 @@ final class CloseableIterator implements CloseableKeyIterator {
 	private boolean reCreated = false;
 	
 	private byte[] currentKey = null;
+	//Whether sizes of read rows are observed to compute scan caching (see Store#setScanCachingBytes(Long))
+	private final boolean estimateRowSize;
+	private long readRows = 0, readBytes = 0;
 
-	CloseableIterator(Store store, Class<? extends PersistingElement> clazz, MangledTableName table, String tablePostfix, Constraint constraint, int limit, Map<String, Field> families, ResultScanner res, boolean sendValues) {
+	CloseableIterator(Store store, Class<? extends PersistingElement> clazz, MangledTableName table, String tablePostfix, Constraint constraint, int limit, Map<String, Field> families, ResultScanner res, boolean sendValues, boolean ordered) {
 		this.store = store;
 		this.sendValues = sendValues;
+		this.ordered = ordered;
+		this.estimateRowSize = store.getScanCachingBytes() != null;
 		this.clazz = clazz;
 		this.table = table;
 		this.tablePostfix = tablePostfix;
@@ -61,12 +68,18 @@ final class CloseableIterator implements CloseableKeyIterator {
 	protected void handleProblem(RuntimeException x) {
 		//Failure handling
 		//Only one failure per scan accepted
-		if (this.reCreated)
+		//Unordered scans cannot restart after the last scanned key ; regions already retry on their own
+		if (this.reCreated || !this.ordered)
 			throw x;
 		this.reCreated = true;
 		//Creating the iterator again, starting after the last scanned key
 		if (this.currentKey != null) {
-			this.constraint = new Constraint(Bytes.toString(currentKey) + Character.MIN_VALUE, this.constraint == null ? null : this.constraint.getEndKey());
+			String restartKey = Bytes.toString(currentKey) + Character.MIN_VALUE;
+			MultiRangeConstraint ranges = MultiRangeConstraint.asMultiRange(this.constraint);
+			if (ranges != null)
+				this.constraint = ranges.startingFrom(restartKey);
+			else
+				this.constraint = new Constraint(restartKey, this.constraint == null ? null : this.constraint.getEndKey(), this.constraint == null ? null : this.constraint.getPropertyConstraints());
 		}
 		if ((x.getCause() instanceof ScannerTimeoutException) || x.getMessage().contains(ScannerTimeoutException.class.getSimpleName())
 				|| (x.getCause() instanceof UnknownScannerException) || x.getMessage().contains(UnknownScannerException.class.getSimpleName())) {
@@ -96,8 +109,12 @@ final class CloseableIterator implements CloseableKeyIterator {
 			Result current = iterator.next();
 			this.currentKey = current.getRow();
 			this.limit--;
+			if (this.estimateRowSize) {
+				this.readRows++;
+				this.readBytes += RowSizeEstimator.sizeOf(current);
+			}
 			this.reCreated = false;
-			return new RowWrapper(current, this.sendValues);
+			return new LazyRow(current, this.sendValues);
 		} catch (RuntimeException x) {
 			this.handleProblem(x);
 			return next();
@@ -123,6 +140,11 @@ final class CloseableIterator implements CloseableKeyIterator {
 	 */
 	@Override
 	public void close() {
+		if (this.readRows > 0) {
+			store.getRowSizeEstimator().observe(this.table, this.families == null ? null : this.families.keySet(), this.readRows, this.readBytes);
+			this.readRows = 0;
+			this.readBytes = 0;
+		}
 		try {
 			result.close();
 		} catch (RuntimeException x) {
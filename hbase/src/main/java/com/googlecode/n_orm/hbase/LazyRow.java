@@ -0,0 +1,344 @@
+package com.googlecode.n_orm.hbase;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.googlecode.n_orm.storeapi.Row;
+
+/**
+ * A {@link Row} directly reading the {@link KeyValue}s of an HBase {@link Result}.
+ * Compared to {@link RowWrapper}, nothing is copied when the row is created:
+ * family names are decoded the first time values are requested,
+ * qualifiers are decoded while iterating or searching a family,
+ * and values are only copied out of the result buffer when they are actually read.
+ * Only the latest version of each column is considered.
+ * Returned maps are read-only.
+ * <p>
+ * Families and qualifiers are iterated in HBase order, i.e. by their UTF-8 bytes,
+ * whereas {@link RowWrapper} used {@link java.util.TreeMap}s sorted by {@link String#compareTo(String)}.
+ * Both orders only differ for names mixing characters beyond U+FFFF and characters from U+E000 to U+FFFF.
+ * </p><p>
+ * A lazy row is serialized as a {@link RowWrapper}, i.e. as a copy of its key and values,
+ * as the underlying {@link Result} is not {@link Serializable}.
+ * </p>
+ */
+public class LazyRow implements Row, Serializable {
+	private static final long serialVersionUID = 6620464226497212014L;
+	private final Result result;
+	private final boolean sendValues;
+	private String key;
+	private ColumnFamilyData values;
+
+	public LazyRow(Result r, boolean sendValues) {
+		this.result = r;
+		this.sendValues = sendValues;
+	}
+
+	@Override
+	public String getKey() {
+		if (this.key == null)
+			this.key = Bytes.toString(this.result.getRow());
+		return this.key;
+	}
+
+	@Override
+	public ColumnFamilyData getValues() {
+		if (!this.sendValues)
+			return null;
+		if (this.values == null)
+			this.values = new LazyColumnFamilyData(this.result.raw());
+		return this.values;
+	}
+
+	private Object writeReplace() throws ObjectStreamException {
+		return new RowWrapper(this.result, this.sendValues);
+	}
+
+	private static boolean sameFamily(KeyValue lhs, KeyValue rhs) {
+		return Bytes.equals(
+				lhs.getBuffer(), lhs.getFamilyOffset(), lhs.getFamilyLength(),
+				rhs.getBuffer(), rhs.getFamilyOffset(), rhs.getFamilyLength());
+	}
+
+	private static boolean sameQualifier(KeyValue lhs, KeyValue rhs) {
+		return Bytes.equals(
+				lhs.getBuffer(), lhs.getQualifierOffset(), lhs.getQualifierLength(),
+				rhs.getBuffer(), rhs.getQualifierOffset(), rhs.getQualifierLength());
+	}
+
+	/**
+	 * Families found in a {@link KeyValue} array as sorted by HBase (i.e. by family, qualifier, and then newest version first).
+	 */
+	static class LazyColumnFamilyData extends AbstractMap<String, Map<String, byte[]>> implements ColumnFamilyData {
+		private final KeyValue[] kvs;
+		private String[] names = null;
+		private LazyFamily[] families = null;
+
+		LazyColumnFamilyData(KeyValue[] kvs) {
+			this.kvs = kvs == null ? new KeyValue[0] : kvs;
+		}
+
+		private void index() {
+			if (this.families != null)
+				return;
+
+			int count = 0;
+			for (int i = 0; i < kvs.length; ++i) {
+				if (i == 0 || !sameFamily(kvs[i-1], kvs[i]))
+					count++;
+			}
+
+			String[] names = new String[count];
+			LazyFamily[] families = new LazyFamily[count];
+			int fam = -1, start = 0;
+			for (int i = 0; i <= kvs.length; ++i) {
+				if (i == kvs.length || i == 0 || !sameFamily(kvs[i-1], kvs[i])) {
+					if (fam >= 0)
+						families[fam] = new LazyFamily(kvs, start, i);
+					if (i < kvs.length) {
+						fam++;
+						start = i;
+						KeyValue kv = kvs[i];
+						names[fam] = Bytes.toString(kv.getBuffer(), kv.getFamilyOffset(), kv.getFamilyLength());
+					}
+				}
+			}
+			this.names = names;
+			this.families = families;
+		}
+
+		private int indexOf(Object family) {
+			this.index();
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].equals(family))
+					return i;
+			}
+			return -1;
+		}
+
+		@Override
+		public Map<String, byte[]> get(Object family) {
+			int i = this.indexOf(family);
+			return i < 0 ? null : this.families[i];
+		}
+
+		@Override
+		public boolean containsKey(Object family) {
+			return this.indexOf(family) >= 0;
+		}
+
+		@Override
+		public int size() {
+			this.index();
+			return this.names.length;
+		}
+
+		@Override
+		public Set<Entry<String, Map<String, byte[]>>> entrySet() {
+			this.index();
+			return new AbstractSet<Entry<String,Map<String,byte[]>>>() {
+
+				@Override
+				public Iterator<Entry<String, Map<String, byte[]>>> iterator() {
+					return new Iterator<Entry<String,Map<String,byte[]>>>() {
+						private int next = 0;
+
+						@Override
+						public boolean hasNext() {
+							return this.next < names.length;
+						}
+
+						@Override
+						public Entry<String, Map<String, byte[]>> next() {
+							if (!this.hasNext())
+								throw new NoSuchElementException();
+							Entry<String, Map<String, byte[]>> ret = new SimpleImmutableEntry<String, Map<String,byte[]>>(names[this.next], families[this.next]);
+							this.next++;
+							return ret;
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return names.length;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Columns of a family, i.e. a range of a sorted {@link KeyValue} array.
+	 */
+	static class LazyFamily extends AbstractMap<String, byte[]> {
+		private final KeyValue[] kvs;
+		private final int from, to;
+		private int size = -1;
+
+		LazyFamily(KeyValue[] kvs, int fromIncl, int toExcl) {
+			this.kvs = kvs;
+			this.from = fromIncl;
+			this.to = toExcl;
+		}
+
+		/**
+		 * Index of the latest version for the given qualifier ; -1 if not found.
+		 */
+		private int indexOf(Object qualifier) {
+			if (!(qualifier instanceof String))
+				return -1;
+			byte[] q = Bytes.toBytes((String)qualifier);
+			int low = this.from, high = this.to - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				KeyValue kv = kvs[mid];
+				int cmp = Bytes.compareTo(kv.getBuffer(), kv.getQualifierOffset(), kv.getQualifierLength(), q, 0, q.length);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					//Latest version comes first
+					while (mid > this.from && sameQualifier(kvs[mid-1], kv))
+						mid--;
+					return mid;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public byte[] get(Object qualifier) {
+			int i = this.indexOf(qualifier);
+			return i < 0 ? null : kvs[i].getValue();
+		}
+
+		@Override
+		public boolean containsKey(Object qualifier) {
+			return this.indexOf(qualifier) >= 0;
+		}
+
+		@Override
+		public int size() {
+			if (this.size < 0) {
+				int s = 0;
+				for (int i = this.from; i < this.to; ++i) {
+					if (i == this.from || !sameQualifier(kvs[i-1], kvs[i]))
+						s++;
+				}
+				this.size = s;
+			}
+			return this.size;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return this.from == this.to;
+		}
+
+		@Override
+		public Set<Entry<String, byte[]>> entrySet() {
+			return new AbstractSet<Entry<String,byte[]>>() {
+
+				@Override
+				public Iterator<Entry<String, byte[]>> iterator() {
+					return new Iterator<Entry<String,byte[]>>() {
+						private int next = from;
+
+						@Override
+						public boolean hasNext() {
+							return this.next < to;
+						}
+
+						@Override
+						public Entry<String, byte[]> next() {
+							if (!this.hasNext())
+								throw new NoSuchElementException();
+							KeyValue current = kvs[this.next];
+							do {
+								this.next++;
+							} while (this.next < to && sameQualifier(current, kvs[this.next]));
+							return new LazyEntry(current);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return LazyFamily.this.size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * A column whose qualifier and value are only decoded when requested.
+	 */
+	static class LazyEntry implements Entry<String, byte[]> {
+		private final KeyValue kv;
+		private String qualifier = null;
+		private byte[] value = null;
+
+		LazyEntry(KeyValue kv) {
+			this.kv = kv;
+		}
+
+		@Override
+		public String getKey() {
+			if (this.qualifier == null)
+				this.qualifier = Bytes.toString(kv.getBuffer(), kv.getQualifierOffset(), kv.getQualifierLength());
+			return this.qualifier;
+		}
+
+		@Override
+		public byte[] getValue() {
+			if (this.value == null)
+				this.value = kv.getValue();
+			return this.value;
+		}
+
+		@Override
+		public byte[] setValue(byte[] value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Entry))
+				return false;
+			Entry<?, ?> e = (Entry<?, ?>) obj;
+			return this.getKey().equals(e.getKey()) && (e.getValue() instanceof byte[]) && Bytes.equals(this.getValue(), (byte[])e.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return this.getKey().hashCode() ^ Bytes.hashCode(this.getValue());
+		}
+
+		@Override
+		public String toString() {
+			return this.getKey() + '=' + Bytes.toStringBinary(this.getValue());
+		}
+	}
+
+}
@@ -0,0 +1,384 @@
+package com.googlecode.n_orm.hbase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * A {@link ResultScanner} that runs one scanner per region of a table.
+ * At most {@link Store#getScanParallelism()} regions are scanned at the same time.
+ * In case results are expected in key order, regions are consumed one after the other
+ * (as regions are disjoint and sorted, this is enough to preserve key order)
+ * while next regions are already read ahead ;
+ * otherwise, results are returned as soon as they are received from any region.
+ * Each region scanner is re-opened once after its last received row in case of failure.
+ * Several scans, e.g. for different key ranges, can be run at once the same way.
+ * Region scanners are run by the thread pool of the store (see {@link Store#setScanThreads(int)}).
+ * A region scanner stops as soon as this scanner is closed, or in case its results are not read
+ * for {@link Store#getScanResultsTimeoutMs()} ; reading further results then fails.
+ */
+public class ParallelScanner implements ResultScanner {
+	private static final int BUFFERED_BATCHES = 2;
+	//How often a region scanner waiting for its results to be read checks whether this scanner was closed
+	private static final long CLOSE_CHECK_MS = 100;
+
+	/**
+	 * A set of results received from a region ; a null array marks the end of the region.
+	 */
+	private static class Batch {
+		private final RegionScan source;
+		private final Result[] results;
+
+		private Batch(RegionScan source, Result[] results) {
+			this.source = source;
+			this.results = results;
+		}
+	}
+
+	/**
+	 * Scans a region and sends results as batches to a queue.
+	 * The number of batches sent but not read yet is bounded by the permits of a semaphore,
+	 * so that the end of the region can always be sent.
+	 */
+	private class RegionScan implements Runnable {
+		private final Scan scan;
+		private final BlockingQueue<Batch> queue;
+		private final Semaphore unreadBatches;
+		private volatile Throwable error = null;
+
+		private RegionScan(Scan scan, BlockingQueue<Batch> queue, Semaphore unreadBatches) {
+			this.scan = scan;
+			this.queue = queue;
+			this.unreadBatches = unreadBatches;
+		}
+		
+		/**
+		 * Waits until a batch can be sent.
+		 * @return false if this scanner was closed
+		 * @throws TimeoutException if results were not read for {@link Store#getScanResultsTimeoutMs()}
+		 */
+		private boolean send(Result[] results) throws InterruptedException, TimeoutException {
+			long timeout = store.getScanResultsTimeoutMs();
+			long waited = 0;
+			while (!this.unreadBatches.tryAcquire(CLOSE_CHECK_MS, TimeUnit.MILLISECONDS)) {
+				if (closed)
+					return false;
+				waited += CLOSE_CHECK_MS;
+				if (waited >= timeout)
+					throw new TimeoutException("Results from table " + Bytes.toString(tableName) + " were not read for " + timeout + "ms ; scanner was probably not closed");
+			}
+			this.queue.add(new Batch(this, results));
+			return true;
+		}
+
+		@Override
+		public void run() {
+			HTableInterface table = null;
+			ResultScanner scanner = null;
+			byte[] lastRow = null;
+			boolean retried = false;
+			int fetched = 0;
+			try {
+				table = store.tablesC.getTable(tableName);
+				while (!closed && !stopped && fetched < limit) {
+					try {
+						if (scanner == null) {
+							Scan s = this.scan;
+							if (lastRow != null) {
+								s = new Scan(this.scan);
+								s.setStartRow(Bytes.add(lastRow, new byte[] {0}));
+							}
+							scanner = table.getScanner(s);
+						}
+						Result[] batch = scanner.next(batchSize);
+						if (batch == null || batch.length == 0)
+							break;
+						lastRow = batch[batch.length-1].getRow();
+						fetched += batch.length;
+						if (!this.send(batch))
+							break;
+					} catch (IOException x) {
+						if (retried || closed)
+							throw x;
+						retried = true;
+						Store.errorLogger.log(Level.INFO, "Problem while scanning region of table " + Bytes.toString(tableName) + " from " + Bytes.toStringBinary(this.scan.getStartRow()) + " ; retrying", x);
+						scanner = closeQuietly(scanner);
+					}
+				}
+			} catch (InterruptedException x) {
+				//Thread pool was shut down
+			} catch (Throwable x) {
+				this.error = x;
+				//Other regions are not worth scanning anymore
+				stopped = true;
+			} finally {
+				closeQuietly(scanner);
+				if (table != null)
+					try {
+						store.returnTable(table);
+					} catch (IOException x) {
+						Store.errorLogger.log(Level.WARNING, "Could not return table " + Bytes.toString(tableName), x);
+					}
+				this.queue.add(new Batch(this, null));
+				submitNextRegion();
+			}
+		}
+	}
+
+	private static ResultScanner closeQuietly(ResultScanner scanner) {
+		if (scanner != null) {
+			try {
+				scanner.close();
+			} catch (RuntimeException x) {
+				Store.errorLogger.log(Level.FINE, "Could not close scanner", x);
+			}
+		}
+		return null;
+	}
+
+	private final Store store;
+	private final byte[] tableName;
+	private final int limit;
+	private final int batchSize;
+	private final boolean ordered;
+	private final List<RegionScan> regions;
+	private final BlockingQueue<Batch> sharedQueue;
+	private final AtomicInteger nextRegion = new AtomicInteger();
+	private volatile boolean closed = false;
+	//Whether region scanners should stop, e.g. as a region could not be read
+	private volatile boolean stopped = false;
+
+	private int currentRegion = 0, runningRegions;
+	private Result[] currentBatch = null;
+	private int currentIndex = 0;
+
+	/**
+	 * Starts scanning regions of the table.
+	 * @param store the store that owns the table
+	 * @param tableName the scanned table
+	 * @param scan the scan to be split according to regions boundaries ; start and stop rows are preserved
+	 * @param parallelism the maximum number of regions to scan at once
+	 * @param ordered whether results should be returned in key order
+	 * @param limit the maximum number of expected results
+	 */
+	public ParallelScanner(Store store, final byte[] tableName, Scan scan, int parallelism, boolean ordered, int limit) throws IOException {
+		this(store, tableName, Collections.singletonList(scan), parallelism, ordered, limit);
+	}
+
+	/**
+	 * Starts scanning regions of the table for several scans at once, e.g. for different key ranges.
+	 * In case results are expected in key order, scans must be disjoint and sorted according to their start rows.
+	 * @param store the store that owns the table
+	 * @param tableName the scanned table
+	 * @param scans the scans to be split according to regions boundaries ; start and stop rows are preserved
+	 * @param parallelism the maximum number of regions to scan at once
+	 * @param ordered whether results should be returned in key order
+	 * @param limit the maximum number of expected results
+	 */
+	public ParallelScanner(Store store, final byte[] tableName, List<Scan> scans, int parallelism, boolean ordered, int limit) throws IOException {
+		this.store = store;
+		this.tableName = tableName;
+		this.limit = limit <= 0 ? Integer.MAX_VALUE : limit;
+		this.batchSize = !scans.isEmpty() && scans.get(0).getCaching() > 0 ? scans.get(0).getCaching() : 100;
+		this.ordered = ordered;
+
+		List<HRegionInfo> tableRegions = store.getAdmin().getTableRegions(tableName);
+		List<Scan> regionScans = new ArrayList<Scan>();
+		for (Scan scan : scans) {
+			regionScans.addAll(splitPerRegion(tableRegions, scan));
+		}
+		scans = regionScans;
+		this.regions = new ArrayList<RegionScan>(scans.size());
+		parallelism = Math.max(1, Math.min(parallelism, scans.size()));
+		this.sharedQueue = ordered ? null : new LinkedBlockingQueue<Batch>();
+		Semaphore sharedUnreadBatches = ordered ? null : new Semaphore(BUFFERED_BATCHES * parallelism);
+		for (Scan s : scans) {
+			this.regions.add(ordered
+					? new RegionScan(s, new LinkedBlockingQueue<Batch>(), new Semaphore(BUFFERED_BATCHES))
+					: new RegionScan(s, this.sharedQueue, sharedUnreadBatches));
+		}
+		this.runningRegions = this.regions.size();
+
+		// Regions are submitted in key order so that the region to be consumed next is always running ;
+		// each finished region submits the next one so that at most parallelism regions are running
+		for (int i = 0; i < parallelism; ++i) {
+			this.submitNextRegion();
+		}
+	}
+
+	/**
+	 * Submits the next region to be scanned, if any, to the thread pool of the store.
+	 * Regions are submitted even if region scanners were stopped, as each region must send its end.
+	 */
+	private void submitNextRegion() {
+		if (this.closed)
+			return;
+		int region = this.nextRegion.getAndIncrement();
+		if (region < this.regions.size())
+			this.store.getScanExecutor().execute(this.regions.get(region));
+	}
+
+	/**
+	 * Restricts the scan to each of the given regions.
+	 * Regions that do not intersect the scan are ignored.
+	 */
+	static List<Scan> splitPerRegion(List<HRegionInfo> regions, Scan scan) throws IOException {
+		regions = new ArrayList<HRegionInfo>(regions);
+		Collections.sort(regions);
+		byte[] scanStart = scan.getStartRow(), scanStop = scan.getStopRow();
+		boolean unboundedStop = scanStop == null || scanStop.length == 0;
+		List<Scan> ret = new ArrayList<Scan>(regions.size());
+		for (HRegionInfo region : regions) {
+			byte[] regionStart = region.getStartKey(), regionEnd = region.getEndKey();
+			boolean unboundedRegionEnd = regionEnd == null || regionEnd.length == 0;
+
+			byte[] start = Bytes.compareTo(scanStart, regionStart) >= 0 ? scanStart : regionStart;
+			byte[] stop;
+			if (unboundedStop)
+				stop = unboundedRegionEnd ? HConstants.EMPTY_END_ROW : regionEnd;
+			else if (unboundedRegionEnd)
+				stop = scanStop;
+			else
+				stop = Bytes.compareTo(scanStop, regionEnd) <= 0 ? scanStop : regionEnd;
+
+			if (stop.length != 0 && Bytes.compareTo(start, stop) >= 0)
+				continue;
+
+			Scan s = new Scan(scan);
+			s.setStartRow(start);
+			s.setStopRow(stop);
+			ret.add(s);
+		}
+		return ret;
+	}
+
+	private void checkError(RegionScan region) throws IOException {
+		Throwable error = region.error;
+		if (error == null)
+			return;
+		if (error instanceof IOException)
+			throw (IOException)error;
+		if (error instanceof RuntimeException)
+			throw (RuntimeException)error;
+		throw new IOException(error);
+	}
+
+	/**
+	 * Grabs next available batch.
+	 * @return false if all regions were completely read
+	 */
+	private boolean nextBatch() throws IOException {
+		try {
+			while (true) {
+				Batch b;
+				if (this.ordered) {
+					if (this.currentRegion >= this.regions.size())
+						return false;
+					b = this.regions.get(this.currentRegion).queue.take();
+				} else {
+					if (this.runningRegions <= 0)
+						return false;
+					b = this.sharedQueue.take();
+				}
+
+				if (b.results == null) {
+					this.checkError(b.source);
+					this.currentRegion++;
+					this.runningRegions--;
+				} else {
+					b.source.unreadBatches.release();
+					this.currentBatch = b.results;
+					this.currentIndex = 0;
+					return true;
+				}
+			}
+		} catch (InterruptedException x) {
+			throw new InterruptedIOException(x.getMessage());
+		}
+	}
+
+	@Override
+	public Result next() throws IOException {
+		if (this.closed)
+			return null;
+		while (this.currentBatch == null || this.currentIndex >= this.currentBatch.length) {
+			this.currentBatch = null;
+			if (!this.nextBatch()) {
+				return null;
+			}
+		}
+		return this.currentBatch[this.currentIndex++];
+	}
+
+	@Override
+	public Result[] next(int nbRows) throws IOException {
+		List<Result> ret = new ArrayList<Result>(nbRows);
+		for (int i = 0; i < nbRows; i++) {
+			Result next = this.next();
+			if (next == null)
+				break;
+			ret.add(next);
+		}
+		return ret.toArray(new Result[ret.size()]);
+	}
+
+	@Override
+	public void close() {
+		if (this.closed)
+			return;
+		//Region scanners notice it within CLOSE_CHECK_MS and release their threads
+		this.closed = true;
+	}
+
+	@Override
+	public Iterator<Result> iterator() {
+		return new Iterator<Result>() {
+			private Result next = null;
+
+			@Override
+			public boolean hasNext() {
+				if (this.next == null) {
+					try {
+						this.next = ParallelScanner.this.next();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+				return this.next != null;
+			}
+
+			@Override
+			public Result next() {
+				if (!this.hasNext())
+					return null;
+				Result ret = this.next;
+				this.next = null;
+				return ret;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.googlecode.n_orm.hbase;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+
+/**
+ * Keeps track of the average size of rows returned by scans,
+ * per table and set of scanned column families.
+ * Estimates are smoothed so that a single unusual scan does not change them too much.
+ */
+class RowSizeEstimator {
+	/**
+	 * Weight of the last observation in the estimate.
+	 */
+	private static final double SMOOTHING = 0.3;
+
+	/**
+	 * Number of rows to be observed before an estimate is computed.
+	 */
+	static final int MIN_ROWS = 10;
+
+	private final ConcurrentMap<String, Long> estimates = new ConcurrentHashMap<String, Long>();
+
+	private static String key(MangledTableName table, Set<String> families) {
+		if (families == null)
+			return table.getName();
+		StringBuilder ret = new StringBuilder(table.getName());
+		for (String family : new TreeSet<String>(families)) {
+			ret.append('/').append(family);
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * The size in bytes of the given result as sent by the server.
+	 */
+	static long sizeOf(Result r) {
+		KeyValue[] kvs = r.raw();
+		if (kvs == null)
+			return 0;
+		long ret = 0;
+		for (KeyValue kv : kvs) {
+			ret += kv.getLength();
+		}
+		return ret;
+	}
+
+	/**
+	 * The estimated size of a row ; null if no estimate is known yet.
+	 */
+	Long getEstimate(MangledTableName table, Set<String> families) {
+		return this.estimates.get(key(table, families));
+	}
+
+	/**
+	 * Registers an observation for rows of a table.
+	 * Ignored in case too few rows were observed.
+	 * @param rows number of observed rows
+	 * @param bytes total size of observed rows
+	 */
+	void observe(MangledTableName table, Set<String> families, long rows, long bytes) {
+		if (rows < MIN_ROWS)
+			return;
+		long observed = Math.max(1, bytes / rows);
+		String key = key(table, families);
+		Long old = this.estimates.get(key);
+		long estimate = old == null ? observed : Math.max(1, Math.round(SMOOTHING * observed + (1-SMOOTHING) * old));
+		//Concurrent updates may be lost, which is acceptable for an estimate
+		this.estimates.put(key, estimate);
+	}
+
+	/**
+	 * The number of rows to be sent at once by the server so that a batch is about the given size.
+	 * @return null if no estimate is known yet
+	 */
+	Integer getCaching(MangledTableName table, Set<String> families, long targetBytes) {
+		Long estimate = this.getEstimate(table, families);
+		if (estimate == null)
+			return null;
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, targetBytes / estimate));
+	}
+
+	void clear() {
+		this.estimates.clear();
+	}
+}
@@ -0,0 +1,130 @@
+package com.googlecode.n_orm.hbase;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.googlecode.n_orm.PersistingElement;
+import com.googlecode.n_orm.hbase.properties.PropertyUtils;
+
+/**
+ * Remembers tables whose schema was checked to be as expected for a given class, table postfix and set of column families.
+ * A verification is valid until its lease expires, schema settings change (see {@link PropertyUtils#getCacheVersion()}),
+ * or a verification for the same table is revoked, e.g. after a schema-related error.
+ * As long as a verification is valid, tables can be used without checking their descriptor, and thus without locking them.
+ */
+class SchemaLeases {
+
+	private static final class Key {
+		private final MangledTableName table;
+		private final Class<? extends PersistingElement> clazz;
+		private final String tablePostfix;
+		private final Map<String, Field> families;
+		private final int hashCode;
+
+		private Key(MangledTableName table, Class<? extends PersistingElement> clazz, String tablePostfix, Map<String, Field> families) {
+			this.table = table;
+			this.clazz = clazz;
+			this.tablePostfix = tablePostfix;
+			this.families = families;
+			final int prime = 31;
+			int h = table.hashCode();
+			h = prime * h + (clazz == null ? 0 : clazz.hashCode());
+			h = prime * h + (tablePostfix == null ? 0 : tablePostfix.hashCode());
+			h = prime * h + (families == null ? 0 : families.hashCode());
+			this.hashCode = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return this.hashCode == other.hashCode
+					&& this.table.equals(other.table)
+					&& (this.clazz == null ? other.clazz == null : this.clazz.equals(other.clazz))
+					&& (this.tablePostfix == null ? other.tablePostfix == null : this.tablePostfix.equals(other.tablePostfix))
+					&& (this.families == null ? other.families == null : this.families.equals(other.families));
+		}
+	}
+
+	private static final class Lease {
+		private final long version;
+		private final long expiration;
+
+		private Lease(long version, long expiration) {
+			this.version = version;
+			this.expiration = expiration;
+		}
+	}
+
+	private final ConcurrentMap<Key, Lease> leases = new ConcurrentHashMap<Key, Lease>();
+	private final AtomicLong revocations = new AtomicLong();
+
+	/**
+	 * A stamp to be taken before verifying a schema, and to be given back when {@link #grant(MangledTableName, Class, String, Map, long, long) granting} a lease.
+	 * This avoids granting a lease for a verification that was concurrent to a revocation or to a change in schema settings.
+	 */
+	long getStamp() {
+		return this.revocations.get() ^ (PropertyUtils.getCacheVersion() << 32);
+	}
+
+	/**
+	 * Whether the schema of the table was verified for the given parameters and this verification is still valid.
+	 */
+	boolean isValid(MangledTableName table, Class<? extends PersistingElement> clazz, String tablePostfix, Map<String, Field> families) {
+		Key key = new Key(table, clazz, tablePostfix, families);
+		Lease lease = this.leases.get(key);
+		if (lease == null)
+			return false;
+		if (lease.version != PropertyUtils.getCacheVersion() || lease.expiration < System.currentTimeMillis()) {
+			this.leases.remove(key, lease);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Records that the schema of the table was just verified for the given parameters.
+	 * Ignored in case a revocation happened since verification started.
+	 * @param stamp the {@link #getStamp() stamp} when verification started
+	 * @param durationMs the duration of the lease
+	 */
+	void grant(MangledTableName table, Class<? extends PersistingElement> clazz, String tablePostfix, Map<String, Field> families, long stamp, long durationMs) {
+		if (stamp != this.getStamp())
+			return;
+		Key key = new Key(table, clazz, tablePostfix, families == null ? null : new HashMap<String, Field>(families));
+		this.leases.put(key, new Lease(PropertyUtils.getCacheVersion(), System.currentTimeMillis() + durationMs));
+	}
+
+	/**
+	 * Forgets all verifications for the given table.
+	 */
+	void revoke(MangledTableName table) {
+		this.revocations.incrementAndGet();
+		Iterator<Key> it = this.leases.keySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().table.equals(table))
+				it.remove();
+		}
+	}
+
+	/**
+	 * Forgets all verifications.
+	 */
+	void clear() {
+		this.revocations.incrementAndGet();
+		this.leases.clear();
+	}
+}
@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -24,7 +25,13 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,6 +39,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.InvalidFamilyOperationException;
 import org.apache.hadoop.hbase.KeyValue;
@@ -57,12 +65,18 @@ import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.ScannerTimeoutException;
 import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.BinaryPrefixComparator;
+import org.apache.hadoop.hbase.filter.ColumnPaginationFilter;
+import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
 import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.filter.QualifierFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.filter.WritableByteArrayComparable;
 import org.apache.hadoop.hbase.io.hfile.Compression;
 import org.apache.hadoop.hbase.io.hfile.Compression.Algorithm;
 import org.apache.hadoop.hbase.regionserver.NoSuchColumnFamilyException;
@@ -83,23 +97,33 @@ import com.googlecode.n_orm.cache.perthread.Cache;
 import com.googlecode.n_orm.hbase.RecursiveFileAction.Report;
 import com.googlecode.n_orm.hbase.actions.Action;
 import com.googlecode.n_orm.hbase.actions.BatchAction;
+import com.googlecode.n_orm.hbase.actions.ColumnCountAction;
 import com.googlecode.n_orm.hbase.actions.CountAction;
 import com.googlecode.n_orm.hbase.actions.DeleteAction;
 import com.googlecode.n_orm.hbase.actions.ExistsAction;
 import com.googlecode.n_orm.hbase.actions.GetAction;
 import com.googlecode.n_orm.hbase.actions.IncrementAction;
+import com.googlecode.n_orm.hbase.actions.ParallelScanAction;
 import com.googlecode.n_orm.hbase.actions.ScanAction;
 import com.googlecode.n_orm.hbase.actions.TruncateAction;
+import com.googlecode.n_orm.hbase.coprocessor.RowCountEndpoint;
 import com.googlecode.n_orm.hbase.mapreduce.ActionJob;
 import com.googlecode.n_orm.hbase.properties.HColumnFamilyProperty;
 import com.googlecode.n_orm.hbase.properties.HTableProperty;
 import com.googlecode.n_orm.hbase.properties.PropertyUtils;
 import com.googlecode.n_orm.query.SearchableClassConstraintBuilder;
 import com.googlecode.n_orm.storeapi.ActionnableStore;
+import com.googlecode.n_orm.storeapi.ColumnCountingStore;
+import com.googlecode.n_orm.storeapi.ColumnPagingStore;
+import com.googlecode.n_orm.storeapi.CompleteRowStore;
 import com.googlecode.n_orm.storeapi.Constraint;
 import com.googlecode.n_orm.storeapi.DefaultColumnFamilyData;
 import com.googlecode.n_orm.storeapi.GenericStore;
 import com.googlecode.n_orm.storeapi.MetaInformation;
+import com.googlecode.n_orm.storeapi.MultiColumnStore;
+import com.googlecode.n_orm.storeapi.MultiRangeConstraint;
+import com.googlecode.n_orm.storeapi.MultiRangeStore;
+import com.googlecode.n_orm.storeapi.PropertyConstraint;
 import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
 
 /**
@@ -125,7 +149,7 @@ import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
  * By default, all known jars are sent (which might become a problem is same jars are sent over and over).
  * You can change this using e.g. {@link #setMapRedSendJars(boolean)}.
  */
-public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableStore, GenericStore {
+public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableStore, GenericStore, MultiRangeStore, CompleteRowStore, ColumnPagingStore, ColumnCountingStore, MultiColumnStore {
 	private static final String CONF_MAXRETRIES_KEY = "hbase.client.retries.number";
 
 	private static final String CONF_PORT_KEY = "hbase.zookeeper.property.clientPort";
@@ -301,11 +325,19 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 	private long cacheTTLMs = 10*60*1000; //10 min
 	public ConcurrentMap<MangledTableName, HTableDescriptor> tablesD = new ConcurrentHashMap<MangledTableName, HTableDescriptor>();
 	public ConcurrentHashMap<MangledTableName, Object> notExistingTables = new ConcurrentHashMap<MangledTableName, Object>();
+	private final SchemaLeases schemaLeases = new SchemaLeases();
+	private final ConcurrentMap<Class<?>, ConcurrentMap<String, WritePlan>> writePlans = new ConcurrentHashMap<Class<?>, ConcurrentMap<String,WritePlan>>();
 	public HTablePool tablesC;
 	
 	private Integer clientTimeout = null;
 	
 	private Integer scanCaching = null;
+	private int scanParallelism = 1;
+	private int scanThreads = 16;
+	private long scanResultsTimeoutMs = 60*1000;
+	private ThreadPoolExecutor scanExecutor = null;
+	private Long scanCachingBytes = null;
+	private final RowSizeEstimator rowSizes = new RowSizeEstimator();
 	
 	private Boolean deferredLogFlush = null;
 	private boolean forceDeferredLogFlush = false;
@@ -334,7 +366,12 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 	private boolean forceReplicationScope = false;
 	
 	private boolean countMapRed = false;
+	private boolean countServerSide = false;
+	private int countParallelism = 4;
+	private final ConcurrentMap<MangledTableName, Long> tablesWithoutCountEndpoint = new ConcurrentHashMap<MangledTableName, Long>();
 	private boolean truncateMapRed = false;
+	private int truncateParallelism = 4;
+	private int truncateRecreateMinRegions = 2;
 	
 	private int mapRedScanCaching = 500;
 	private boolean mapRedSendHBaseJars = true;
@@ -475,7 +512,9 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 	}
 
 	/**
-	 * Schema for table are cached ; indicates time (in ms) when cache is reloaded (default is 10min)
+	 * Schema for table are cached ; indicates time (in ms) when cache is reloaded (default is 10min).
+	 * This is also the time during which a table, once checked to have the expected schema, is used
+	 * without being checked (and thus locked) again, unless a schema-related error happens.
 	 */
 	public long getCacheTTLMs() {
 		return cacheTTLMs;
@@ -538,6 +577,121 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		this.scanCaching = scanCaching;
 	}
 
+	/**
+	 * The approximate size in bytes of the batches of rows that this store receives at once during a search.
+	 * @return the expected value, or null if not set
+	 */
+	public Long getScanCachingBytes() {
+		return scanCachingBytes;
+	}
+
+	/**
+	 * The approximate size in bytes of the batches of rows that this store receives at once during a search.
+	 * When set, the average size of rows is observed for each table and set of column families,
+	 * and {@link #getScanCaching() scan caching} is computed from this estimate as soon as it is known,
+	 * overriding values set by {@link HBaseSchema#scanCaching()} or {@link #setScanCaching(Integer)}.
+	 * Default value is null, i.e. scan caching does not depend on rows size.
+	 */
+	public void setScanCachingBytes(Long scanCachingBytes) {
+		PropertyUtils.clearCachedValues();
+		this.scanCachingBytes = scanCachingBytes;
+		if (scanCachingBytes == null)
+			this.rowSizes.clear();
+	}
+
+	RowSizeEstimator getRowSizeEstimator() {
+		return this.rowSizes;
+	}
+
+	/**
+	 * The maximum number of regions that this store scans at once during a search or a count.
+	 * @return the expected value ; 1 (the default) means regions are scanned one after the other
+	 */
+	public int getScanParallelism() {
+		return scanParallelism;
+	}
+
+	/**
+	 * The maximum number of regions that this store scans at once during a search or a count.
+	 * Default value is 1, i.e. a single scanner walks regions one after the other.
+	 * With a greater value, one scanner per region is run from a thread pool shared by all scans of this store (see {@link #setScanThreads(int)}) and results are merged back
+	 * in key order, or in any order in case this is acceptable for the query (see {@link MetaInformation#isUnordered()}).
+	 * Counts do not use this setting (see {@link #setCountParallelism(int)}).
+	 */
+	public void setScanParallelism(int scanParallelism) {
+		PropertyUtils.clearCachedValues();
+		this.scanParallelism = scanParallelism;
+	}
+
+	/**
+	 * The maximum number of threads that run region scanners for all parallel scans of this store
+	 * (see {@link #setScanParallelism(int)}, {@link #setCountParallelism(int)}, and {@link #setTruncateParallelism(int)}).
+	 */
+	public int getScanThreads() {
+		return scanThreads;
+	}
+
+	/**
+	 * The maximum number of threads that run region scanners for all parallel scans of this store
+	 * (see {@link #setScanParallelism(int)}, {@link #setCountParallelism(int)}, and {@link #setTruncateParallelism(int)}).
+	 * Threads are shared by all scans ; regions of a scan wait for a thread in case all are busy.
+	 * Idle threads are released after a minute.
+	 * Default value is 16.
+	 */
+	public synchronized void setScanThreads(int scanThreads) {
+		if (scanThreads < 1)
+			throw new IllegalArgumentException("At least one thread is necessary to scan regions");
+		this.scanThreads = scanThreads;
+		if (this.scanExecutor != null) {
+			if (scanThreads > this.scanExecutor.getMaximumPoolSize()) {
+				this.scanExecutor.setMaximumPoolSize(scanThreads);
+				this.scanExecutor.setCorePoolSize(scanThreads);
+			} else {
+				this.scanExecutor.setCorePoolSize(scanThreads);
+				this.scanExecutor.setMaximumPoolSize(scanThreads);
+			}
+		}
+	}
+
+	/**
+	 * The thread pool that runs region scanners of parallel scans (see {@link ParallelScanner}).
+	 */
+	synchronized ExecutorService getScanExecutor() {
+		if (this.scanExecutor == null) {
+			final AtomicInteger threadId = new AtomicInteger();
+			this.scanExecutor = new ThreadPoolExecutor(this.scanThreads, this.scanThreads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread ret = new Thread(r, "n-orm hbase parallel scanner thread #" + threadId.incrementAndGet());
+					ret.setDaemon(true);
+					return ret;
+				}
+			});
+			this.scanExecutor.allowCoreThreadTimeOut(true);
+		}
+		return this.scanExecutor;
+	}
+
+	/**
+	 * The maximum time a region scanner of a parallel scan waits for its results to be read
+	 * (see {@link #setScanResultsTimeoutMs(long)}).
+	 */
+	public long getScanResultsTimeoutMs() {
+		return scanResultsTimeoutMs;
+	}
+
+	/**
+	 * The maximum time a region scanner of a parallel scan waits for its results to be read.
+	 * After this delay, the region scanner stops and releases its thread,
+	 * e.g. in case an iterator over search results is neither exhausted nor closed ;
+	 * reading further results from the scan then fails with a {@link TimeoutException}.
+	 * Default value is one minute, i.e. HBase default scanner lease period.
+	 */
+	public void setScanResultsTimeoutMs(long scanResultsTimeoutMs) {
+		this.scanResultsTimeoutMs = scanResultsTimeoutMs;
+	}
+
 	/**
 	 * Whether {@link HTableDescriptor#setDeferredLogFlush(boolean)} should be set for tables.
 	 * Improves write throughput by making writes log asynchronous on the server while improving risk of data loss in case of server crash.
@@ -951,6 +1105,73 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		this.countMapRed = countMapRed;
 	}
 
+	/**
+	 * Whether counts (e.g. {@link #count(MetaInformation, String, Constraint)}) should be computed by region servers.
+	 */
+	public boolean isCountServerSide() {
+		return countServerSide;
+	}
+
+	/**
+	 * Whether counts (e.g. {@link #count(MetaInformation, String, Constraint)}) should be computed by region servers.
+	 * Default value is false.
+	 * When true, each region counts its rows using the {@link RowCountEndpoint} coprocessor, and only sends back its count ;
+	 * columns of a column family (see {@link #count(MetaInformation, String, String, String, Constraint)}) are also counted by the region server holding the row.
+	 * Tables created by this store then declare this coprocessor ; other tables need the coprocessor to be declared
+	 * by region servers (property hbase.coprocessor.region.classes).
+	 * In any case, region servers need the n-orm HBase driver in their classpath.
+	 * In case the coprocessor is not available for a table, counts are computed on the client side
+	 * (see {@link #setCountParallelism(int)}) until the cache is reloaded (see {@link #setCacheTTLMs(long)}).
+	 * This setting is ignored in case counts use map/reduce (see {@link #setCountMapRed(boolean)}).
+	 */
+	public void setCountServerSide(boolean countServerSide) {
+		PropertyUtils.clearCachedValues();
+		this.countServerSide = countServerSide;
+		this.tablesWithoutCountEndpoint.clear();
+	}
+
+	/**
+	 * Whether the {@link RowCountEndpoint} coprocessor might be available for the given table.
+	 */
+	public boolean mayCountServerSide(MangledTableName table) {
+		if (!this.isCountServerSide())
+			return false;
+		Long until = this.tablesWithoutCountEndpoint.get(table);
+		if (until == null)
+			return true;
+		if (until < System.currentTimeMillis()) {
+			this.tablesWithoutCountEndpoint.remove(table, until);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Notifies that the {@link RowCountEndpoint} coprocessor could not be used for the given table.
+	 * Counts for this table will be performed on the client side until the cache is reloaded.
+	 */
+	public void countServerSideFailed(MangledTableName table) {
+		this.tablesWithoutCountEndpoint.put(table, System.currentTimeMillis() + this.getCacheTTLMs());
+	}
+
+	/**
+	 * The maximum number of regions that this store scans at once when counting on the client side.
+	 */
+	public int getCountParallelism() {
+		return countParallelism;
+	}
+
+	/**
+	 * The maximum number of regions that this store scans at once when counting on the client side,
+	 * i.e. when counts are neither performed using map/reduce (see {@link #setCountMapRed(boolean)})
+	 * nor by region servers (see {@link #setCountServerSide(boolean)}).
+	 * Default value is 4 ; 1 means regions are scanned one after the other.
+	 */
+	public void setCountParallelism(int countParallelism) {
+		PropertyUtils.clearCachedValues();
+		this.countParallelism = countParallelism;
+	}
+
 	/**
 	 * Whether truncates (e.g. {@link #truncate(MetaInformation, String, Constraint)}) should use a map/reduce job.
 	 */
@@ -968,6 +1189,44 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		this.truncateMapRed = truncateMapRed;
 	}
 
+	/**
+	 * The maximum number of regions that this store scans at once when truncating using deletes.
+	 */
+	public int getTruncateParallelism() {
+		return truncateParallelism;
+	}
+
+	/**
+	 * The maximum number of regions that this store scans at once when truncating using deletes,
+	 * i.e. when truncates are not performed using map/reduce (see {@link #setTruncateMapRed(boolean)})
+	 * and do not empty the whole table (see {@link #setTruncateRecreateMinRegions(int)}).
+	 * Default value is 4 ; 1 means regions are scanned one after the other.
+	 */
+	public void setTruncateParallelism(int truncateParallelism) {
+		PropertyUtils.clearCachedValues();
+		this.truncateParallelism = truncateParallelism;
+	}
+
+	/**
+	 * The minimum number of regions for a table to be dropped and re-created when it has to be emptied completely.
+	 */
+	public int getTruncateRecreateMinRegions() {
+		return truncateRecreateMinRegions;
+	}
+
+	/**
+	 * The minimum number of regions for a table to be dropped and re-created when it has to be emptied completely
+	 * (see {@link #truncate(MetaInformation, String, Constraint)} with no constraint).
+	 * Default value is 2, i.e. tables that were split at least once are re-created with the same descriptor and region boundaries,
+	 * while smaller tables are emptied by deleting their rows, as disabling, dropping and creating a table takes a few seconds.
+	 * Use {@link Integer#MAX_VALUE} so that tables are never re-created.
+	 * This setting is ignored in case truncates use map/reduce (see {@link #setTruncateMapRed(boolean)}).
+	 */
+	public void setTruncateRecreateMinRegions(int truncateRecreateMinRegions) {
+		PropertyUtils.clearCachedValues();
+		this.truncateRecreateMinRegions = truncateRecreateMinRegions;
+	}
+
 	/**
 	 * Whether jar files containing sent jobs should be sent to the Hadoop Map/Reduce cluster while performing a Map/Reduce job.
 	 */
@@ -1108,18 +1367,24 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		if (! this.wasStarted)
 			return;
 		this.notExistingTables.clear();
+		this.tablesWithoutCountEndpoint.clear();
 		try {
 			
 			HTableDescriptor[] tbls = this.admin.listTables();
 			List<HTableDescriptor> tables = tbls == null || tbls.length == 0 ? new LinkedList<HTableDescriptor>() : Arrays.asList(tbls);
 			for(HTableDescriptor td : tables) {
-				this.tablesD.put(new MangledTableName(td.getNameAsString()), td);
+				MangledTableName name = new MangledTableName(td.getNameAsString());
+				HTableDescriptor old = this.tablesD.put(name, td);
+				if (old != null && !old.equals(td))
+					this.schemaLeases.revoke(name);
 			}
 			Iterator<Entry<MangledTableName, HTableDescriptor>> it = this.tablesD.entrySet().iterator();
 			while (it.hasNext()) {
 				Entry<MangledTableName, HTableDescriptor> cur = it.next();
-				if (! tables.contains(cur.getValue()))
+				if (! tables.contains(cur.getValue())) {
 					it.remove();
+					this.schemaLeases.revoke(cur.getKey());
+				}
 			}
 		} catch (IOException e) {
 			errorLogger.log(Level.SEVERE, "Cannot load existing tables in cache: " + e.getMessage(), e);
@@ -1130,6 +1395,7 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 	// For test purpose
 	void clearCache() {
 		this.tablesD.clear();
+		this.schemaLeases.clear();
 	}
 	
 	private void cache(MangledTableName tableName, HTableDescriptor descr) {
@@ -1144,6 +1410,7 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 	private void uncache(MangledTableName tableName) {
 		this.tablesD.remove(tableName);
 		this.notExistingTables.remove(tableName);
+		this.schemaLeases.revoke(tableName);
 	}
 
 	/**
@@ -1179,6 +1446,7 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			this.admin = null;
 			this.wasStarted = false;
 			this.tablesD.clear();
+			this.schemaLeases.clear();
 			this.start();
 		} finally {
 			synchronized (this.restartMutex) {
@@ -1446,6 +1714,17 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		boolean created = false;
 		boolean freshDescriptor = false;
 		td = this.tablesD.get(name);
+		if (td == null && !this.notExistingTables.containsKey(name)) {
+			//Table most probably exists (e.g. created by another process) ; no need to lock it for reading its descriptor
+			try {
+				td = this.admin.getTableDescriptor(name.getNameAsBytes());
+				freshDescriptor = true;
+				logger.fine("Got descriptor for table " + name);
+				this.cache(name, td);
+			} catch (TableNotFoundException x) {
+				td = null;
+			}
+		}
 		if (td == null) {
 
 			TableLocker lock = this.getLock(name);
@@ -1459,6 +1738,8 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 							logger.info("Table " + name + " not found ; creating" + (expectedFamilies == null ? "" : " with column families " + expectedFamilies.keySet().toString()));
 							td = new HTableDescriptor(name.getNameAsBytes());
 							PropertyUtils.setValues(this, td, clazz, tablePostfix);
+							if (this.isCountServerSide() && !td.hasCoprocessor(RowCountEndpoint.class.getName()))
+								td.addCoprocessor(RowCountEndpoint.class.getName());
 							if (expectedFamilies != null) {
 								for (Entry<String, Field> fam : expectedFamilies.entrySet()) {
 									byte [] famB = Bytes.toBytes(fam.getKey());
@@ -1539,9 +1820,15 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		
 		try {
 			//Checking that this table actually exists with the expected column families
-			this.getTableDescriptor(clazz, name, tablePostfix, expectedFamilies);
+			//unless this was already done recently
+			if (!this.schemaLeases.isValid(name, clazz, tablePostfix, expectedFamilies)) {
+				long stamp = this.schemaLeases.getStamp();
+				this.getTableDescriptor(clazz, name, tablePostfix, expectedFamilies);
+				this.schemaLeases.grant(name, clazz, tablePostfix, expectedFamilies, stamp, this.getCacheTTLMs());
+			}
 			return this.tablesC.getTable(name.getNameAsBytes());
 		} catch (Throwable x) {
+			this.schemaLeases.revoke(name);
 			this.handleProblem(x, clazz, name, tablePostfix, expectedFamilies);
 			try {
 				this.getTableDescriptor(clazz, name, tablePostfix, expectedFamilies);
@@ -1748,10 +2035,11 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			return f1;
 		} else if (f1 == null) {
 			return f2;
-		} else if (f1 instanceof FilterList) {
+		} else if (f1 instanceof FilterList && ((FilterList) f1).getOperator() == FilterList.Operator.MUST_PASS_ALL) {
 			((FilterList) f1).addFilter(f2);
 			return f1;
 		} else {
+			//Never adding to a MUST_PASS_ONE list, as f2 would then be an alternative to f1
 			FilterList list = new FilterList();
 			list.addFilter(f1);
 			list.addFilter(f2);
@@ -1759,6 +2047,71 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		}
 	}
 
+	private SingleColumnValueFilter createValueFilter(PropertyConstraint pc, CompareOp op, WritableByteArrayComparable comparator) {
+		SingleColumnValueFilter ret = new SingleColumnValueFilter(Bytes.toBytes(pc.getFamily()), Bytes.toBytes(pc.getQualifier()), op, comparator);
+		ret.setFilterIfMissing(true);
+		ret.setLatestVersionOnly(true);
+		return ret;
+	}
+
+	/**
+	 * Creates a filter for a range of binary values.
+	 * @param from the minimal value (inclusive) ; null if not bounded
+	 * @param to the maximal value ; null if not bounded
+	 * @param toInclusive whether to is inclusive
+	 */
+	private Filter createValueRangeFilter(PropertyConstraint pc, byte[] from, byte[] to, boolean toInclusive) {
+		Filter ret = null;
+		if (from != null)
+			ret = this.createValueFilter(pc, CompareOp.GREATER_OR_EQUAL, new BinaryComparator(from));
+		if (to != null)
+			ret = this.addFilter(ret, this.createValueFilter(pc, toInclusive ? CompareOp.LESS_OR_EQUAL : CompareOp.LESS, new BinaryComparator(to)));
+		return ret;
+	}
+
+	/**
+	 * Creates a server-side filter that only accepts rows satisfying the given property constraint.
+	 */
+	protected Filter createPropertyConstraintFilter(PropertyConstraint pc) {
+		switch (pc.getOperator()) {
+		case EQUALS:
+			return this.createValueFilter(pc, CompareOp.EQUAL, new BinaryComparator(pc.getValue()));
+		case PREFIX:
+			return this.createValueFilter(pc, CompareOp.EQUAL, new BinaryPrefixComparator(pc.getValue()));
+		case RANGE:
+			byte[] from = pc.getValue(), to = pc.getEndValue();
+			if (!pc.isSigned())
+				return this.createValueRangeFilter(pc, from, to, true);
+			
+			//Region servers compare unsigned bytes: negative values are sorted after positive values
+			byte[] firstNegative = new byte[] {(byte)0x80};
+			boolean fromNegative = from != null && (from[0] & 0x80) != 0;
+			boolean toNegative = to != null && (to[0] & 0x80) != 0;
+			Filter positives = null, negatives = null;
+			if (!toNegative) {
+				if (to == null)
+					positives = this.createValueRangeFilter(pc, fromNegative ? null : from, firstNegative, false);
+				else
+					positives = this.createValueRangeFilter(pc, fromNegative ? null : from, to, true);
+			}
+			if (from == null || fromNegative) {
+				negatives = this.createValueRangeFilter(pc, from == null ? firstNegative : from, toNegative ? to : null, true);
+			}
+			if (positives == null && negatives == null) //Empty range, e.g. from positive to negative
+				return this.createValueFilter(pc, CompareOp.LESS, new BinaryComparator(new byte[0]));
+			if (positives == null)
+				return negatives;
+			if (negatives == null)
+				return positives;
+			FilterList ret = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+			ret.addFilter(positives);
+			ret.addFilter(negatives);
+			return ret;
+		default:
+			throw new IllegalArgumentException("Unknown property constraint operator " + pc.getOperator());
+		}
+	}
+
 	protected Filter createFamilyConstraint(Constraint c) {
 		Filter f = null;
 		if (c.getStartKey() != null)
@@ -1808,15 +2161,28 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			s.setStopRow(endb);
 		}
 		
+		boolean hasPropertyConstraints = c != null && c.hasPropertyConstraints();
 		if (families != null) {
 			for (String fam : families.keySet()) {
 				s.addFamily(Bytes.toBytes(fam));
 			}
+		} else if (hasPropertyConstraints) {
+			//Only constrained properties are necessary to check the row
+			s.setFilter(new KeyOnlyFilter());
 		} else {
 			//No family to load ; avoid getting all information in the row (that may be big)
 			s.setFilter(this.addFilter(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
 		}
 		
+		if (hasPropertyConstraints) {
+			for (PropertyConstraint pc : c.getPropertyConstraints()) {
+				//Constrained column must be read by the region server for the filter to apply
+				if (families == null || !families.containsKey(pc.getFamily()))
+					s.addColumn(Bytes.toBytes(pc.getFamily()), Bytes.toBytes(pc.getQualifier()));
+				s.setFilter(this.addFilter(s.getFilter(), this.createPropertyConstraintFilter(pc)));
+			}
+		}
+		
 		return s;
 	}
 
@@ -1852,18 +2218,41 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		return ret;
 	}
 	
+	/**
+	 * The precomputed information used to write elements of the given class into the given table.
+	 * @param clazz the written class ; null if unknown
+	 */
+	WritePlan getWritePlan(Class<? extends PersistingElement> clazz, String tableName) {
+		Class<?> key = clazz == null ? PersistingElement.class : clazz;
+		ConcurrentMap<String, WritePlan> plans = this.writePlans.get(key);
+		if (plans == null) {
+			plans = new ConcurrentHashMap<String, WritePlan>();
+			ConcurrentMap<String, WritePlan> existing = this.writePlans.putIfAbsent(key, plans);
+			if (existing != null)
+				plans = existing;
+		}
+		WritePlan ret = plans.get(tableName);
+		if (ret == null) {
+			ret = new WritePlan(clazz, tableName);
+			WritePlan existing = plans.putIfAbsent(tableName, ret);
+			if (existing != null)
+				ret = existing;
+		}
+		return ret;
+	}
+	
 	/**
 	 * Waits until an element can be updated (stored/deleted) again.
 	 * Objects should be marked using {@link #tagUpdate(MetaInformation, long)}
 	 * each time they are updated.
 	 * @return timestamp to be used within next {@link #tagUpdate(MetaInformation, long)}
 	 */
-	private void waitForNewUpdate(MetaInformation meta, MangledTableName table, String row) {
+	private void waitForNewUpdate(MetaInformation meta, WritePlan plan, String row) {
 		if (meta == null)
 			return;
 		PersistingElement pe = meta.getElement();
 		assert pe != null;
-		ThreadLocal<Long> npu = (ThreadLocal<Long>)pe.getAdditionalProperty("HBaseNextPossibleUpdateInTable"+table.getName());
+		ThreadLocal<Long> npu = (ThreadLocal<Long>)pe.getAdditionalProperty(plan.getUpdateTagKey());
 		if (npu == null || npu.get() == null)
 			return;
 		long now;
@@ -1879,7 +2268,7 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 	 * Marks necessary additional information
 	 * to use {@link #waitForNewUpdate(MetaInformation)}.
 	 */
-	private void tagUpdate(MetaInformation meta, MangledTableName table, String row) {
+	private void tagUpdate(MetaInformation meta, WritePlan plan, String row) {
 		if (meta == null)
 			return;
 		PersistingElement pe = meta.getElement();
@@ -1889,7 +2278,7 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		// persisting element, but not for different one (even if targeting the same row)
 		// as they are certainly not in the same threads
 		// Corrects com.googlecode.n_orm.ImportExportTest
-		String key = "HBaseNextPossibleUpdateInTable"+table.getName();
+		String key = plan.getUpdateTagKey();
 		ThreadLocal<Long> npu = (ThreadLocal<Long>)pe.getAdditionalProperty(key);
 		if (npu == null) {
 			npu = (ThreadLocal<Long>)pe.addAdditionalProperty(key, new ThreadLocal<Long>(), true);
@@ -1906,19 +2295,11 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			Map<String, Set<String>> removed,
 			Map<String, Map<String, Number>> increments)
 			throws DatabaseNotReachedException {
+		WritePlan plan = this.getWritePlan(meta == null ? null : meta.getClazz(), tableName);
 		//Grabbing all involved families
-		Set<String> families = new HashSet<String>();
-		if (changed !=null) families.addAll(changed.keySet());
-		if (removed != null) families.addAll(removed.keySet());
-		if (increments != null) families.addAll(increments.keySet());
-		
-		//In HBase, an element only exists when there is a value for its column family
-		//Storing (see later) an empty value with an empty qualifier within the properties family
-		//Thus the properties family is always involved
-		families.add(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME);
-		Map<String, Field> fams = this.toMap(families, meta);
+		Map<String, Field> fams = plan.getFamilies(changed, removed, increments, meta == null ? null : meta.getFamilies(), this);
 
-		MangledTableName table = new MangledTableName(tableName);
+		MangledTableName table = plan.getTable();
 		HTableInterface t = this.getTable(meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), fams);
 
 		try {
@@ -1926,17 +2307,24 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			
 			List<org.apache.hadoop.hbase.client.Row> actions = new ArrayList<org.apache.hadoop.hbase.client.Row>(2); //At most one put and one delete
 			
-			this.waitForNewUpdate(meta, table, id);
+			this.waitForNewUpdate(meta, plan, id);
 	
 			//Transforming changes into a big Put (if necessary)
 			//and registering it as an action to be performed
 			Put rowPut = null;
+			HBaseSchema.WALWritePolicy useWal = null;
 			if (changed != null && !changed.isEmpty()) {
 				rowPut = new Put(row);
 				for (Entry<String, Map<String, byte[]>> family : changed.entrySet()) {
-					byte[] cf = Bytes.toBytes(family.getKey());
+					if (family.getValue().isEmpty())
+						continue;
+					WritePlan.Family cf = plan.getFamily(family.getKey(), fams);
 					for (Entry<String, byte[]> col : family.getValue().entrySet()) {
-						rowPut.add(cf, Bytes.toBytes(col.getKey()), col.getValue());
+						rowPut.add(cf.getNameBytes(), cf.getQualifier(col.getKey()), col.getValue());
+					}
+					// Grabbing strongest policy for the store
+					if (useWal == null || cf.getWALPolicy().strongerThan(useWal)) {
+						useWal = cf.getWALPolicy();
 					}
 				}
 				if (rowPut.getFamilyMap().isEmpty())
@@ -1951,9 +2339,9 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			if (removed != null && !removed.isEmpty()) {
 				rowDel = new Delete(row);
 				for (Entry<String, Set<String>> family : removed.entrySet()) {
-					byte[] cf = Bytes.toBytes(family.getKey());
+					WritePlan.Family cf = plan.getFamily(family.getKey(), fams);
 					for (String key : family.getValue()) {
-						rowDel.deleteColumns(cf, Bytes.toBytes(key));
+						rowDel.deleteColumns(cf.getNameBytes(), cf.getQualifier(key));
 					}
 	
 				}
@@ -1969,9 +2357,9 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			if (increments != null && !increments.isEmpty()) {
 				rowInc = new Increment(row);
 				for (Entry<String, Map<String, Number>> incrs : increments.entrySet()) {
-					byte[] cf = Bytes.toBytes(incrs.getKey());
+					WritePlan.Family cf = plan.getFamily(incrs.getKey(), fams);
 					for (Entry<String, Number> inc : incrs.getValue().entrySet()) {
-						rowInc.addColumn(cf, Bytes.toBytes(inc.getKey()), inc.getValue().longValue());
+						rowInc.addColumn(cf.getNameBytes(), cf.getQualifier(inc.getKey()), inc.getValue().longValue());
 					}
 				}
 				if (rowInc.getFamilyMap().isEmpty())
@@ -1983,45 +2371,14 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			//Adding a dummy value into properties family
 			if (rowPut == null && rowInc == null) { //NOT rowDel == null; deleting an element that becomes empty actually deletes the element !
 				rowPut = new Put(row);
-				rowPut.add(Bytes.toBytes(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME), null, new byte[]{});
+				WritePlan.Family props = plan.getFamily(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, fams);
+				rowPut.add(props.getNameBytes(), null, new byte[]{});
 				actions.add(rowPut);
+				useWal = props.getWALPolicy();
 			}
 			
 			// Checking for WAL policy
 			if (rowPut != null) { // Only Puts can override WAL policy in 0.90
-				HBaseSchema.WALWritePolicy useWal = null;
-				HBaseSchema clazzAnnotation = meta == null || meta.getClazz() == null ? null : meta.getClazz().getAnnotation(HBaseSchema.class);
-				HBaseSchema.WALWritePolicy clazzWAL = clazzAnnotation == null ? HBaseSchema.WALWritePolicy.UNSET : clazzAnnotation.writeToWAL();
-				for(byte[] famB : rowPut.getFamilyMap().keySet()) {
-					String famS = Bytes.toString(famB);
-					HBaseSchema.WALWritePolicy wtw;
-					if (PropertyManagement.PROPERTY_COLUMNFAMILY_NAME.equals(famS)) {
-						// Properties use schema for classes
-						wtw = clazzWAL;
-					} else {
-						HBaseSchema schema;
-						Field fam = fams.get(famS);
-						if (fam != null) {
-							schema = fam.getAnnotation(HBaseSchema.class);
-						} else {
-							schema = null;
-						}
-						// No explicit schema mean schema for class
-						if (schema == null) {
-							wtw = clazzWAL;
-						} else {
-							wtw = schema.writeToWAL();
-							if (HBaseSchema.WALWritePolicy.UNSET.equals(wtw)) {
-								wtw = clazzWAL;
-							}
-						}
-					}
-					// Grabbing strongest policy for the store
-					if (useWal == null || wtw.strongerThan(useWal)) {
-						useWal = wtw;
-					}
-				}
-				
 				if (useWal == null) {
 					useWal = HBaseSchema.WALWritePolicy.UNSET;
 				}
@@ -2052,7 +2409,7 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 				t = act.getTable();
 			}
 			
-			this.tagUpdate(meta, table, id);
+			this.tagUpdate(meta, plan, id);
 		} finally {
 			if (t != null)
 				try {
@@ -2066,13 +2423,14 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 	@Override
 	public void delete(MetaInformation meta, String tableName, String id)
 			throws DatabaseNotReachedException {
-		MangledTableName table = new MangledTableName(tableName);
+		WritePlan plan = this.getWritePlan(meta == null ? null : meta.getClazz(), tableName);
+		MangledTableName table = plan.getTable();
 		if (!this.hasTable(table))
 			return;
-		this.waitForNewUpdate(meta, table, id);
+		this.waitForNewUpdate(meta, plan, id);
 		Delete d = new Delete(Bytes.toBytes(id));
 		this.tryPerform(new DeleteAction(d), meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), null);
-		this.tagUpdate(meta, table, id);
+		this.tagUpdate(meta, plan, id);
 	}
 
 	@Override
@@ -2150,6 +2508,86 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		return ret;
 	}
 
+	@Override
+	public Map<String, byte[]> get(MetaInformation meta,
+			String tableName, String id, String family,
+			Set<String> qualifiers) throws DatabaseNotReachedException {
+		MangledTableName table = new MangledTableName(tableName);
+		if (!this.hasTable(table))
+			return null;
+
+		if (qualifiers.isEmpty())
+			return new HashMap<String, byte[]>();
+
+		Get g = new Get(Bytes.toBytes(id));
+		byte[] fam = Bytes.toBytes(family);
+		for (String qualifier : qualifiers) {
+			g.addColumn(fam, Bytes.toBytes(qualifier));
+		}
+
+		Result r = this.tryPerform(new GetAction(g), meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), toMap(family, meta == null ? null : meta.getProperty()));
+		if (r.isEmpty())
+			return null;
+		
+		Map<String, byte[]> ret = new HashMap<String, byte[]>();
+		for (KeyValue kv : r.raw()) {
+			ret.put(Bytes.toString(kv.getQualifier()), kv.getValue());
+		}
+		return ret;
+	}
+
+	@Override
+	public long count(MetaInformation meta, String tableName, String id, String family, Constraint c) throws DatabaseNotReachedException {
+		MangledTableName table = new MangledTableName(tableName);
+		if (!this.hasTable(table))
+			return 0;
+
+		Get g = new Get(Bytes.toBytes(id)).addFamily(Bytes.toBytes(family));
+
+		if (c != null) {
+			g.setFilter(createFamilyConstraint(c));
+		}
+		
+		return this.tryPerform(new ColumnCountAction(this, g), meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), toMap(family, meta == null ? null : meta.getProperty()));
+	}
+
+	@Override
+	public Map<String, byte[]> getPage(MetaInformation meta,
+			String tableName, String id, String family,
+			String startAfter, int size, boolean reverse) throws DatabaseNotReachedException {
+		MangledTableName table = new MangledTableName(tableName);
+		if (!this.hasTable(table))
+			return null;
+
+		Get g = new Get(Bytes.toBytes(id)).addFamily(Bytes.toBytes(family));
+
+		if (!reverse) {
+			Filter range = startAfter == null ? null : new ColumnRangeFilter(Bytes.toBytes(startAfter), false, null, false);
+			g.setFilter(this.addFilter(range, new ColumnPaginationFilter(size, 0)));
+		} else if (startAfter != null) {
+			//Columns cannot be read backwards: reading columns before startAfter in a single get and keeping only the last ones,
+			//so that the page does not depend on a previous count that concurrent writes might have changed
+			g.setFilter(new ColumnRangeFilter(null, false, Bytes.toBytes(startAfter), false));
+		}
+
+		Result r = this.tryPerform(new GetAction(g), meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), toMap(family, meta == null ? null : meta.getProperty()));
+		if (r.isEmpty())
+			return null;
+		
+		KeyValue[] kvs = r.raw();
+		Map<String, byte[]> ret = new LinkedHashMap<String, byte[]>();
+		if (reverse) {
+			for (int i = kvs.length-1; i >= Math.max(0, kvs.length-size); --i) {
+				ret.put(Bytes.toString(kvs[i].getQualifier()), kvs[i].getValue());
+			}
+		} else {
+			for (KeyValue kv : kvs) {
+				ret.put(Bytes.toString(kv.getQualifier()), kv.getValue());
+			}
+		}
+		return ret;
+	}
+
 	@Override
 	public long count(MetaInformation meta, String tableName, Constraint c) throws DatabaseNotReachedException {
 		MangledTableName table = new MangledTableName(tableName);
@@ -2157,7 +2595,15 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 			return 0;
 		
 		Class<? extends PersistingElement> type = meta == null ? null : meta.getClazz();
-		return this.tryPerform(new CountAction(this, this.getScan(c, type, null)), type, table, meta == null ? null : meta.getTablePostfix(), null);
+		String tablePostfix = meta == null ? null : meta.getTablePostfix();
+		MultiRangeConstraint ranges = MultiRangeConstraint.asMultiRange(c);
+		if (ranges == null)
+			return this.tryPerform(new CountAction(this, this.getScan(c, type, null)), type, table, tablePostfix, null);
+		long ret = 0;
+		for (Constraint range : ranges.getRanges()) {
+			ret += this.tryPerform(new CountAction(this, this.getScan(range, type, null)), type, table, tablePostfix, null);
+		}
+		return ret;
 	}
 
 	@Override
@@ -2175,16 +2621,50 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		Map<String, Field> cf = toMap(families, meta);
 		
 		Class<? extends PersistingElement> clazz = meta == null ? null : meta.getClazz();
-		Scan s = this.getScan(c, clazz, cf);
-		int cacheSize = s.getCaching();
-		if (cacheSize > limit)
-			s.setCaching(limit);
-		
 		String tablePostfix = meta == null ? null : meta.getTablePostfix();
-		ResultScanner r = this.tryPerform(new ScanAction(s), clazz, table, tablePostfix, cf);
-		return new CloseableIterator(this, clazz, table, tablePostfix, c, limit, cf, r, cf != null);
+		boolean ordered = meta == null || !meta.isUnordered();
+		MultiRangeConstraint ranges = MultiRangeConstraint.asMultiRange(c);
+		Action<ResultScanner> scan;
+		if (ranges == null) {
+			Scan s = this.getSearchScan(c, clazz, table, cf, limit);
+			if (this.getScanParallelism() > 1)
+				scan = new ParallelScanAction(this, s, ordered, limit);
+			else
+				scan = new ScanAction(s);
+		} else {
+			//One scan per range ; next ranges are read ahead while previous ones are consumed
+			List<Scan> scans = new ArrayList<Scan>(ranges.getRanges().size());
+			for (Constraint range : ranges.getRanges()) {
+				scans.add(this.getSearchScan(range, clazz, table, cf, limit));
+			}
+			scan = new ParallelScanAction(this, scans, ordered, limit);
+		}
+		ResultScanner r = this.tryPerform(scan, clazz, table, tablePostfix, cf);
+		return new CloseableIterator(this, clazz, table, tablePostfix, c, limit, cf, r, cf != null, ordered);
+	}
+	
+	/**
+	 * The scan for a search, with caching adapted to the size of rows and to the limit.
+	 */
+	private Scan getSearchScan(Constraint c, Class<? extends PersistingElement> clazz, MangledTableName table, Map<String, Field> cf, int limit) throws DatabaseNotReachedException {
+		Scan s = this.getScan(c, clazz, cf);
+		Long cachingBytes = this.getScanCachingBytes();
+		if (cachingBytes != null) {
+			Integer adaptiveCaching = this.rowSizes.getCaching(table, cf == null ? null : cf.keySet(), cachingBytes);
+			if (adaptiveCaching != null)
+				s.setCaching(adaptiveCaching);
+		}
+		if (limit > 0 && limit < Integer.MAX_VALUE) {
+			int cacheSize = s.getCaching();
+			if (cacheSize > limit)
+				s.setCaching(limit);
+			//Region servers should not send more than limit rows each
+			s.setFilter(this.addFilter(s.getFilter(), new PageFilter(limit)));
+		}
+		return s;
 	}
 
+	@Override
 	public void truncate(MetaInformation meta, String tableName, Constraint c) throws DatabaseNotReachedException {
 		MangledTableName table = new MangledTableName(tableName);
 		if (!this.hasTable(table))
@@ -2192,17 +2672,88 @@ public class Store implements com.googlecode.n_orm.storeapi.Store, ActionnableSt
 		
 		logger.info("Truncating table " + table);
 		
-		TruncateAction action = new TruncateAction(this, this.getScan(c, meta == null ? null : meta.getClazz(), null));
-		this.tryPerform(action, meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), null);
+		MultiRangeConstraint ranges = MultiRangeConstraint.asMultiRange(c);
+		boolean wholeTable = c == null || (ranges == null && c.getStartKey() == null && c.getEndKey() == null && !c.hasPropertyConstraints());
+		if (ranges != null) {
+			for (Constraint range : ranges.getRanges()) {
+				TruncateAction action = new TruncateAction(this, this.getScan(range, meta == null ? null : meta.getClazz(), null));
+				this.tryPerform(action, meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), null);
+			}
+		} else if (!wholeTable || this.isTruncateMapRed() || !this.recreateTable(table)) {
+			TruncateAction action = new TruncateAction(this, this.getScan(c, meta == null ? null : meta.getClazz(), null));
+			this.tryPerform(action, meta == null ? null : meta.getClazz(), table, meta == null ? null : meta.getTablePostfix(), null);
+		}
 		
 		logger.info("Truncated table " + table);
 	}
+	
+	private void createTable(HTableDescriptor td, byte[][] splits) throws IOException {
+		if (splits.length == 0)
+			this.admin.createTable(td);
+		else
+			this.admin.createTable(td, splits);
+	}
+	
+	/**
+	 * Empties a table by dropping it and creating it again with the same descriptor and region boundaries.
+	 * @return false if the table has less than {@link #getTruncateRecreateMinRegions()} regions, in which case nothing is done
+	 */
+	private boolean recreateTable(MangledTableName table) throws DatabaseNotReachedException {
+		byte[] name = table.getNameAsBytes();
+		TableLocker lock = this.getLock(table);
+		lock.exclusiveLockTable();
+		HTableDescriptor td = null;
+		byte[][] splits = null;
+		boolean dropped = false;
+		try {
+			List<HRegionInfo> regions = new ArrayList<HRegionInfo>(this.admin.getTableRegions(name));
+			if (regions.size() < this.getTruncateRecreateMinRegions())
+				return false;
+			Collections.sort(regions);
+			splits = new byte[regions.size()-1][];
+			for (int i = 1; i < regions.size(); ++i) {
+				splits[i-1] = regions.get(i).getStartKey();
+			}
+			td = this.admin.getTableDescriptor(name);
+			
+			logger.info("Dropping table " + table + " with " + regions.size() + " regions in order to truncate it");
+			if (this.admin.isTableEnabled(name))
+				this.admin.disableTable(name);
+			this.admin.deleteTable(name);
+			dropped = true;
+			this.uncache(table);
+			this.createTable(td, splits);
+			this.admin.getConnection().clearRegionCache(name);
+			this.cache(table, td);
+			logger.info("Table " + table + " re-created");
+			return true;
+		} catch (IOException x) {
+			errorLogger.log(Level.SEVERE, "Could not re-create table " + table, x);
+			this.uncache(table);
+			if (dropped) {
+				//The table must not be lost: trying again to create it as it was
+				try {
+					if (!this.admin.tableExists(name))
+						this.createTable(td, splits);
+					this.admin.getConnection().clearRegionCache(name);
+					logger.info("Table " + table + " re-created after a failure");
+				} catch (IOException y) {
+					errorLogger.log(Level.SEVERE, "Table " + table + " was dropped and could not be re-created ; it needs to be created again with descriptor " + td + " and " + splits.length + " split keys", y);
+				}
+			}
+			throw new DatabaseNotReachedException(x);
+		} finally {
+			lock.exclusiveUnlockTable();
+		}
+	}
 
 	@Override
 	public <AE extends PersistingElement, E extends AE> void process(MetaInformation meta,
 			final String tableName, Constraint c, Set<String> families, Class<E> elementClass,
 			Process<AE> action, final Callback callback)
 			throws DatabaseNotReachedException {
+		if (MultiRangeConstraint.asMultiRange(c) != null)
+			throw new IllegalArgumentException("Server-side processes cannot search several key ranges at once");
 		final MangledTableName table = new MangledTableName(tableName);
 		if (! this.hasTable(table)) {
 			if (callback != null)
@@ -0,0 +1,208 @@
+package com.googlecode.n_orm.hbase;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.googlecode.n_orm.PersistingElement;
+import com.googlecode.n_orm.PropertyManagement;
+import com.googlecode.n_orm.hbase.HBaseSchema.WALWritePolicy;
+import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
+
+/**
+ * Everything that can be computed once for writing elements of a given class into a given table:
+ * mangled table name, binary names for column families and (some of) their qualifiers,
+ * and WAL policy for each column family.
+ * Plans are thread-safe and are shared by all writes for the same class and table.
+ */
+class WritePlan {
+	/**
+	 * Maximum number of binary qualifiers remembered per column family.
+	 * Qualifiers for properties are bounded by the number of properties, but qualifiers for other column families
+	 * are keys of maps or sets and must not be all retained.
+	 */
+	static final int MAX_INTERNED_QUALIFIERS = 1024;
+
+	/**
+	 * A column family as written by this plan.
+	 */
+	static class Family {
+		private final String name;
+		private final byte[] nameBytes;
+		private final Field field;
+		private final WALWritePolicy walPolicy;
+		private final ConcurrentMap<String, byte[]> qualifiers = new ConcurrentHashMap<String, byte[]>();
+
+		private Family(String name, Field field, WALWritePolicy classPolicy) {
+			this.name = name;
+			this.nameBytes = Bytes.toBytes(name);
+			this.field = field;
+
+			WALWritePolicy wtw;
+			if (PropertyManagement.PROPERTY_COLUMNFAMILY_NAME.equals(name)) {
+				// Properties use schema for classes
+				wtw = classPolicy;
+			} else {
+				HBaseSchema schema = field == null ? null : field.getAnnotation(HBaseSchema.class);
+				// No explicit schema mean schema for class
+				if (schema == null) {
+					wtw = classPolicy;
+				} else {
+					wtw = schema.writeToWAL();
+					if (WALWritePolicy.UNSET.equals(wtw)) {
+						wtw = classPolicy;
+					}
+				}
+			}
+			this.walPolicy = wtw;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public byte[] getNameBytes() {
+			return nameBytes;
+		}
+
+		public WALWritePolicy getWALPolicy() {
+			return walPolicy;
+		}
+
+		/**
+		 * The binary representation for a qualifier of this family.
+		 * Returned array must not be modified.
+		 */
+		public byte[] getQualifier(String qualifier) {
+			byte[] ret = this.qualifiers.get(qualifier);
+			if (ret == null) {
+				ret = Bytes.toBytes(qualifier);
+				if (this.qualifiers.size() < MAX_INTERNED_QUALIFIERS)
+					this.qualifiers.put(qualifier, ret);
+			}
+			return ret;
+		}
+	}
+
+	private final MangledTableName table;
+	private final String updateTagKey;
+	private final WALWritePolicy classWALPolicy;
+	private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<String, Family>();
+	private volatile Map<String, Field> lastFamilies = null;
+
+	WritePlan(Class<? extends PersistingElement> clazz, String tableName) {
+		this.table = new MangledTableName(tableName);
+		this.updateTagKey = "HBaseNextPossibleUpdateInTable" + this.table.getName();
+		HBaseSchema clazzAnnotation = clazz == null ? null : clazz.getAnnotation(HBaseSchema.class);
+		this.classWALPolicy = clazzAnnotation == null ? WALWritePolicy.UNSET : clazzAnnotation.writeToWAL();
+	}
+
+	public MangledTableName getTable() {
+		return table;
+	}
+
+	/**
+	 * The key for the additional property of persisting elements that stores next possible update time for this table.
+	 */
+	public String getUpdateTagKey() {
+		return updateTagKey;
+	}
+
+	/**
+	 * The column family with the given name.
+	 * @param field the field for this column family, if known
+	 */
+	public Family getFamily(String name, Field field) {
+		Family ret = this.families.get(name);
+		if (ret == null || (ret.field == null && field != null)) {
+			ret = new Family(name, field, this.classWALPolicy);
+			this.families.put(name, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * The column family with the given name, with its field as found in the given map.
+	 */
+	public Family getFamily(String name, Map<String, Field> fields) {
+		Family ret = this.families.get(name);
+		if (ret != null && (ret.field != null || fields == null))
+			return ret;
+		return this.getFamily(name, fields == null ? null : fields.get(name));
+	}
+
+	private static boolean containsAll(Map<String, Field> families, Set<String> keys) {
+		if (keys == null)
+			return true;
+		for (String key : keys) {
+			if (!families.containsKey(key))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean contains(Map<String, ?> map, String key) {
+		return map != null && map.containsKey(key);
+	}
+
+	/**
+	 * Whether the given families are exactly those involved in a write, with same fields.
+	 */
+	private static boolean matches(Map<String, Field> families, ColumnFamilyData changed, Map<String, Set<String>> removed, Map<String, Map<String, Number>> increments, Map<String, Field> fields) {
+		if (families == null)
+			return false;
+		if (!containsAll(families, changed == null ? null : changed.keySet())
+				|| !containsAll(families, removed == null ? null : removed.keySet())
+				|| !containsAll(families, increments == null ? null : increments.keySet()))
+			return false;
+		for (Entry<String, Field> fam : families.entrySet()) {
+			String name = fam.getKey();
+			if (!PropertyManagement.PROPERTY_COLUMNFAMILY_NAME.equals(name) && !contains(changed, name) && !contains(removed, name) && !contains(increments, name))
+				return false;
+			if (fields != null) {
+				Field f = fields.get(name);
+				if (f != null && f != fam.getValue())
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The families involved in the given write (always including the {@link PropertyManagement#PROPERTY_COLUMNFAMILY_NAME properties family}).
+	 * The last computed map is reused as long as writes involve the same families.
+	 * @param fields fields known for families (see {@link com.googlecode.n_orm.storeapi.MetaInformation#getFamilies()})
+	 * @param store the store used to compute the map in case it cannot be reused
+	 * @return a map that must not be modified
+	 */
+	public Map<String, Field> getFamilies(ColumnFamilyData changed, Map<String, Set<String>> removed, Map<String, Map<String, Number>> increments, Map<String, Field> fields, Store store) {
+		Map<String, Field> ret = this.lastFamilies;
+		if (matches(ret, changed, removed, increments, fields))
+			return ret;
+		ret = store.toMap(involvedFamilies(changed, removed, increments), fields);
+		//Given fields might be changed later on
+		ret = new TreeMap<String, Field>(ret);
+		this.lastFamilies = ret;
+		return ret;
+	}
+
+	static Set<String> involvedFamilies(ColumnFamilyData changed, Map<String, Set<String>> removed, Map<String, Map<String, Number>> increments) {
+		Set<String> families = new HashSet<String>();
+		if (changed !=null) families.addAll(changed.keySet());
+		if (removed != null) families.addAll(removed.keySet());
+		if (increments != null) families.addAll(increments.keySet());
+
+		//In HBase, an element only exists when there is a value for its column family
+		//Storing an empty value with an empty qualifier within the properties family
+		//Thus the properties family is always involved
+		families.add(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME);
+		return families;
+	}
+}
@@ -0,0 +1,67 @@
+package com.googlecode.n_orm.hbase.actions;
+
+import java.io.IOException;
+import java.util.logging.Level;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+
+import com.googlecode.n_orm.hbase.MangledTableName;
+import com.googlecode.n_orm.hbase.Store;
+import com.googlecode.n_orm.hbase.coprocessor.RowCountProtocol;
+
+public class ColumnCountAction extends Action<Long> {
+	
+	private final Store store;
+	private final Get get;
+
+	public ColumnCountAction(Store store, Get get) {
+		super();
+		this.store = store;
+		this.get = get;
+	}
+
+	@Override
+	public Long perform() throws Exception {
+		MangledTableName table = new MangledTableName(getTable());
+		if (this.store.mayCountServerSide(table)) {
+			try {
+				return this.countServerSide();
+			} catch (Error x) {
+				throw x;
+			} catch (Throwable x) {
+				Store.errorLogger.log(Level.INFO, "Cannot count columns in table " + table + " on region servers ; counting on client side", x);
+				this.store.countServerSideFailed(table);
+			}
+		}
+		return this.countSimple();
+	}
+	
+	/**
+	 * Counts columns on the region server holding the row using the {@link com.googlecode.n_orm.hbase.coprocessor.RowCountEndpoint} coprocessor.
+	 * The region server only sends back the number of columns.
+	 */
+	protected long countServerSide() throws Throwable {
+		return getTable().coprocessorProxy(RowCountProtocol.class, this.get.getRow()).getColumnCount(this.get);
+	}
+
+	/**
+	 * Counts columns on the client side ; values are not sent back by the region server, only qualifiers.
+	 */
+	protected long countSimple() throws IOException {
+		Get g = new Get(this.get.getRow());
+		for (byte[] family : this.get.familySet()) {
+			g.addFamily(family);
+		}
+		FilterList filter = new FilterList();
+		if (this.get.getFilter() != null)
+			filter.addFilter(this.get.getFilter());
+		filter.addFilter(new KeyOnlyFilter());
+		g.setFilter(filter);
+		Result r = getTable().get(g);
+		return r.isEmpty() ? 0 : r.size();
+	}
+
+}
@@ -1,14 +1,20 @@
 package com.googlecode.n_orm.hbase.actions;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Level;
 
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.coprocessor.Batch;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.mapreduce.Job;
 
 import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.hbase.MangledTableName;
+import com.googlecode.n_orm.hbase.ParallelScanner;
 import com.googlecode.n_orm.hbase.Store;
+import com.googlecode.n_orm.hbase.coprocessor.RowCountProtocol;
 import com.googlecode.n_orm.hbase.mapreduce.RowCounter;
 
 public class CountAction extends Action<Long> {
@@ -27,13 +33,46 @@ public class CountAction extends Action<Long> {
 	public Long perform() throws Exception {
 		if (this.store.isCountMapRed())
 			return this.countMapRed();
-		else
-			return this.countSimple();
+		
+		MangledTableName table = new MangledTableName(getTable());
+		if (this.store.mayCountServerSide(table)) {
+			try {
+				return this.countServerSide();
+			} catch (Error x) {
+				throw x;
+			} catch (Throwable x) {
+				Store.errorLogger.log(Level.INFO, "Cannot count rows of table " + table + " on region servers ; counting on client side", x);
+				this.store.countServerSideFailed(table);
+			}
+		}
+		return this.countSimple();
+	}
+	
+	/**
+	 * Counts rows on region servers using the {@link com.googlecode.n_orm.hbase.coprocessor.RowCountEndpoint} coprocessor.
+	 * Regions are counted in parallel, and only send back their number of rows.
+	 */
+	protected long countServerSide() throws Throwable {
+		final Scan s = new Scan(this.scan);
+		Map<byte[], Long> counts = getTable().coprocessorExec(RowCountProtocol.class, s.getStartRow(), s.getStopRow(), new Batch.Call<RowCountProtocol, Long>() {
+
+			@Override
+			public Long call(RowCountProtocol instance) throws IOException {
+				return instance.getRowCount(s);
+			}
+		});
+		long count = 0;
+		for (Long regionCount : counts.values()) {
+			count += regionCount;
+		}
+		return count;
 	}
 
 	protected long countSimple() throws IOException {
 		this.scan.setCaching(scanCaching);
-		ResultScanner r = getTable().getScanner(this.scan);
+		ResultScanner r = this.store.getCountParallelism() > 1
+				? new ParallelScanner(this.store, getTable().getTableName(), this.scan, this.store.getCountParallelism(), false, -1)
+				: getTable().getScanner(this.scan);
 		int count = 0;
 		try {
 			while (true) {
@@ -0,0 +1,53 @@
+package com.googlecode.n_orm.hbase.actions;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+
+import com.googlecode.n_orm.hbase.ParallelScanner;
+import com.googlecode.n_orm.hbase.Store;
+
+
+public class ParallelScanAction extends Action<ResultScanner> {
+	
+	private final Store store;
+	private final List<Scan> scans;
+	private final boolean ordered;
+	private final int limit;
+
+	public ParallelScanAction(Store store, Scan scan, boolean ordered, int limit) {
+		this(store, Collections.singletonList(scan), ordered, limit);
+	}
+
+	/**
+	 * @param scans disjoint scans sorted according to their start rows
+	 */
+	public ParallelScanAction(Store store, List<Scan> scans, boolean ordered, int limit) {
+		super();
+		this.store = store;
+		this.scans = scans;
+		this.ordered = ordered;
+		this.limit = limit;
+	}
+
+	public Scan getScan() {
+		return scans.isEmpty() ? null : scans.get(0);
+	}
+
+	public List<Scan> getScans() {
+		return scans;
+	}
+
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	@Override
+	public ResultScanner perform() throws IOException {
+		return new ParallelScanner(this.store, this.getTable().getTableName(), this.getScans(), this.store.getScanParallelism(), this.isOrdered(), this.limit);
+	}
+	
+}
@@ -12,10 +12,13 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.mapreduce.Job;
 
 import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.hbase.ParallelScanner;
 import com.googlecode.n_orm.hbase.Store;
 import com.googlecode.n_orm.hbase.mapreduce.Truncator;
 
 public class TruncateAction extends Action<Void> {
+	public static int deleteBatchSize = 1000;
+	
 	private final Store store;
 	private final Scan scan;
 
@@ -34,21 +37,29 @@ public class TruncateAction extends Action<Void> {
 		return null;
 	}
 	
+	/**
+	 * Deletes rows by batches of {@link #deleteBatchSize}.
+	 * In case {@link Store#getTruncateParallelism()} is greater than 1, regions are scanned in parallel.
+	 * Deletes for a batch are sent at once to the involved region servers.
+	 */
 	protected void truncateSimple() throws IOException  {
 		ResultScanner r = null;
 
 		try {
-			r = this.getTable().getScanner(this.scan);
-			final int nbRows = 100;
-			List<Delete> dels = new ArrayList<Delete>(nbRows);
-			Result [] res = r.next(nbRows);
+			this.scan.setCaching(deleteBatchSize);
+			int parallelism = this.store.getTruncateParallelism();
+			r = parallelism > 1
+					? new ParallelScanner(this.store, getTable().getTableName(), this.scan, parallelism, false, -1)
+					: this.getTable().getScanner(this.scan);
+			List<Delete> dels = new ArrayList<Delete>(deleteBatchSize);
+			Result [] res = r.next(deleteBatchSize);
 			while (res != null && res.length != 0) {
 				dels.clear();
 				for (Result result : res) {
 					dels.add(new Delete(result.getRow()));
 				}
 				getTable().delete(dels);
-				res = r.next(nbRows);
+				res = r.next(deleteBatchSize);
 			}
 		} finally {
 			if (r != null)
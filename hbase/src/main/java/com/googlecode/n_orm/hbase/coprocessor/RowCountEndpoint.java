@@ -0,0 +1,64 @@
+package com.googlecode.n_orm.hbase.coprocessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.BaseEndpointCoprocessor;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+
+/**
+ * Region server side implementation for {@link RowCountProtocol}.
+ * Contrary to the HBase aggregation endpoint, rows (or columns of a row) can be counted whatever the number of scanned column families.
+ * This endpoint must be available to region servers, either by listing it in the hbase.coprocessor.region.classes property
+ * of region servers, or by declaring it for tables (see {@link com.googlecode.n_orm.hbase.Store#setCountServerSide(boolean)}) ;
+ * in both cases, the n-orm HBase driver jar has to be in the classpath of region servers.
+ */
+public class RowCountEndpoint extends BaseEndpointCoprocessor implements RowCountProtocol {
+	private static final int COLUMN_BATCH = 1000;
+
+	@Override
+	public long getRowCount(Scan scan) throws IOException {
+		InternalScanner scanner = ((RegionCoprocessorEnvironment)this.getEnvironment()).getRegion().getScanner(scan);
+		long count = 0;
+		try {
+			List<KeyValue> results = new ArrayList<KeyValue>();
+			boolean hasMore;
+			do {
+				hasMore = scanner.next(results);
+				if (!results.isEmpty())
+					count++;
+				results.clear();
+			} while (hasMore);
+		} finally {
+			scanner.close();
+		}
+		return count;
+	}
+
+	@Override
+	public long getColumnCount(Get get) throws IOException {
+		Scan scan = new Scan(get);
+		//Not loading the whole row in memory at once
+		scan.setBatch(COLUMN_BATCH);
+		InternalScanner scanner = ((RegionCoprocessorEnvironment)this.getEnvironment()).getRegion().getScanner(scan);
+		long count = 0;
+		try {
+			List<KeyValue> results = new ArrayList<KeyValue>();
+			boolean hasMore;
+			do {
+				hasMore = scanner.next(results);
+				count += results.size();
+				results.clear();
+			} while (hasMore);
+		} finally {
+			scanner.close();
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.googlecode.n_orm.hbase.coprocessor;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.ipc.CoprocessorProtocol;
+
+/**
+ * Counts rows of a region, or columns of a row, on the region server.
+ * @see RowCountEndpoint
+ */
+public interface RowCountProtocol extends CoprocessorProtocol {
+	
+	/**
+	 * The number of rows within the region that are returned by the given scan.
+	 */
+	long getRowCount(Scan scan) throws IOException;
+	
+	/**
+	 * The number of columns of the row that are returned by the given get.
+	 */
+	long getColumnCount(Get get) throws IOException;
+}
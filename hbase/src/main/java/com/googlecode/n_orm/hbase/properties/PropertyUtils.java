@@ -8,6 +8,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HTableDescriptor;
@@ -126,10 +127,20 @@ public class PropertyUtils {
 
 	static final Map<PropertyCacheKey, PropertyCacheValue> values = new ConcurrentHashMap<PropertyCacheKey, PropertyCacheValue>();
 
+	private static final AtomicLong cacheVersion = new AtomicLong();
+
 	public static void clearCachedValues() {
+		cacheVersion.incrementAndGet();
 		values.clear();
 	}
 
+	/**
+	 * A number that changes each time cached values are cleared, i.e. each time expected schema may change.
+	 */
+	public static long getCacheVersion() {
+		return cacheVersion.get();
+	}
+
 	static Map<TypeWithPostfix, HBaseSchema> specificities = new TreeMap<TypeWithPostfix, HBaseSchema>();
 
 	/**
@@ -137,7 +148,7 @@ public class PropertyUtils {
 	 */
 	public static void clearAllSchemaSpecificities() {
 		specificities.clear();
-		values.clear();
+		clearCachedValues();
 	}
 
 	/**
@@ -161,7 +172,7 @@ public class PropertyUtils {
 		if (clazz == null)
 			throw new NullPointerException();
 		specificities.put(new ClassWithPostfix(clazz, tablePostfix), schema);
-		values.clear();
+		clearCachedValues();
 	}
 
 	/**
@@ -183,6 +194,6 @@ public class PropertyUtils {
 			throw new NullPointerException();
 		specificities.put(new ColumnFamilyWithPostfix(field, tablePostfix),
 				schema);
-		values.clear();
+		clearCachedValues();
 	}
 }
@@ -0,0 +1,104 @@
+package com.googlecode.n_orm.hbase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.googlecode.n_orm.hbase.Store;
+import com.googlecode.n_orm.storeapi.Constraint;
+import com.googlecode.n_orm.storeapi.DefaultColumnFamilyData;
+import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
+
+public class ColumnPagingTest {
+	private static Store store;
+	private static final String testTable = "testtable";
+	private static final String testId = "testid";
+	private static final String testFamily = "fam";
+
+	@BeforeClass
+	public static void prepareStore() {
+		HBaseLauncher.prepareHBase();
+		store = HBaseLauncher.hbaseStore;
+	}
+
+	@Before
+	@After
+	public void truncateTestTable() throws IOException {
+		if (store.getAdmin().tableExists(testTable)) {
+			store.truncate(null, testTable, (Constraint)null);
+			assertEquals(0, store.count(null, testTable, (Constraint)null));
+		}
+	}
+
+	private void storeColumns(int number) {
+		int[] columns = new int[number];
+		for (int i = 0; i < number; ++i) {
+			columns[i] = i;
+		}
+		this.storeColumns(columns);
+	}
+
+	private void storeColumns(int... columns) {
+		ColumnFamilyData change = new DefaultColumnFamilyData();
+		Map<String, byte[]> famChange = new TreeMap<String, byte[]>();
+		for (int i : columns) {
+			famChange.put("col" + i, new byte[]{(byte) i});
+		}
+		change.put(testFamily, famChange);
+		store.storeChanges(null, testTable, testId, change, null, null);
+	}
+
+	private void checkPage(Map<String, byte[]> page, int... expectedColumns) {
+		String[] expected = new String[expectedColumns.length];
+		for (int i = 0; i < expectedColumns.length; ++i) {
+			expected[i] = "col" + expectedColumns[i];
+		}
+		assertEquals(Arrays.asList(expected), Arrays.asList(page.keySet().toArray(new String[page.size()])));
+		for (int col : expectedColumns) {
+			assertEquals(col, page.get("col" + col)[0]);
+		}
+	}
+
+	@Test
+	public void forward() {
+		this.storeColumns(8);
+		checkPage(store.getPage(null, testTable, testId, testFamily, null, 3, false), 0, 1, 2);
+		checkPage(store.getPage(null, testTable, testId, testFamily, "col2", 3, false), 3, 4, 5);
+		checkPage(store.getPage(null, testTable, testId, testFamily, "col5", 3, false), 6, 7);
+		assertNull(store.getPage(null, testTable, testId, testFamily, "col7", 3, false));
+	}
+
+	@Test
+	public void reverse() {
+		this.storeColumns(8);
+		checkPage(store.getPage(null, testTable, testId, testFamily, null, 3, true), 7, 6, 5);
+		checkPage(store.getPage(null, testTable, testId, testFamily, "col5", 3, true), 4, 3, 2);
+		checkPage(store.getPage(null, testTable, testId, testFamily, "col2", 3, true), 1, 0);
+		assertNull(store.getPage(null, testTable, testId, testFamily, "col0", 3, true));
+	}
+
+	@Test
+	public void reverseWithWritesBetweenPages() {
+		this.storeColumns(8);
+		checkPage(store.getPage(null, testTable, testId, testFamily, null, 3, true), 7, 6, 5);
+		//Column names are sorted as strings: col45 is between col4 and col5, and col55 between col5 and col6
+		this.storeColumns(45, 55);
+		checkPage(store.getPage(null, testTable, testId, testFamily, "col5", 3, true), 45, 4, 3);
+		checkPage(store.getPage(null, testTable, testId, testFamily, "col3", 3, true), 2, 1, 0);
+	}
+
+	@Test
+	public void reverseWholeFamily() {
+		this.storeColumns(3);
+		checkPage(store.getPage(null, testTable, testId, testFamily, null, 5, true), 2, 1, 0);
+	}
+}
@@ -1,11 +1,14 @@
 package com.googlecode.n_orm.hbase;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.apache.hadoop.hbase.client.Scan;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -13,6 +16,7 @@ import org.junit.Test;
 
 import com.googlecode.n_orm.conversion.ConversionTools;
 import com.googlecode.n_orm.hbase.Store;
+import com.googlecode.n_orm.hbase.actions.CountAction;
 import com.googlecode.n_orm.storeapi.Constraint;
 import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
 import com.googlecode.n_orm.storeapi.DefaultColumnFamilyData;
@@ -111,6 +115,56 @@ public class CountTest {
 		assertEquals(1+66-33, store.count(null, testTable, new Constraint(ConversionTools.convertToString(33), ConversionTools.convertToString(66))));
 	}
 	
+	@Test
+	public void serverSide() {
+		for(int i = 0 ; i < 100; ++i) {
+			store.storeChanges(null, testTable, ConversionTools.convertToString(i), null , null, null);
+		}
+		boolean wasServerSide = store.isCountServerSide();
+		store.setCountServerSide(true);
+		try {
+			assertEquals(100l, store.count(null, testTable, (Constraint)null));
+			assertEquals(1+66-33, store.count(null, testTable, new Constraint(ConversionTools.convertToString(33), ConversionTools.convertToString(66))));
+			assertTrue(store.mayCountServerSide(new MangledTableName(testTable)));
+		} finally {
+			store.setCountServerSide(wasServerSide);
+		}
+	}
+	
+	/**
+	 * Counts on region servers, on the client side, and falling back to the client side
+	 * in case region servers do not provide the RowCountEndpoint coprocessor.
+	 */
+	@Test
+	public void serverSideAndClientSideAgree() {
+		for(int i = 0 ; i < 100; ++i) {
+			store.storeChanges(null, testTable, ConversionTools.convertToString(i), null , null, null);
+		}
+		MangledTableName table = new MangledTableName(testTable);
+		boolean wasServerSide = store.isCountServerSide();
+		try {
+			store.setCountServerSide(false);
+			long clientSide = store.count(null, testTable, (Constraint)null);
+			assertEquals(100l, clientSide);
+			
+			store.setCountServerSide(true);
+			assertEquals(clientSide, store.count(null, testTable, (Constraint)null));
+			assertTrue(store.mayCountServerSide(table));
+			
+			//The test cluster loads the coprocessor for all regions: simulating a cluster without it
+			CountAction noEndpoint = new CountAction(store, new Scan()) {
+				@Override
+				protected long countServerSide() throws Throwable {
+					throw new IOException("No RowCountEndpoint coprocessor");
+				}
+			};
+			assertEquals(clientSide, store.tryPerform(noEndpoint, null, table, null, null).longValue());
+			assertFalse(store.mayCountServerSide(table));
+		} finally {
+			store.setCountServerSide(wasServerSide);
+		}
+	}
+	
 	@Test
 	public void thousandsFrom33to66() {
 		for(int i = 0 ; i < 10000; ++i) {
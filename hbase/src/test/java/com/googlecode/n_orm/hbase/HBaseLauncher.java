@@ -8,11 +8,13 @@ import java.util.TreeMap;
 
 import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.coprocessor.CoprocessorHost;
 
 import com.googlecode.n_orm.DatabaseNotReachedException;
 import com.googlecode.n_orm.StoreSelector;
 import com.googlecode.n_orm.StoreTestLauncher;
 import com.googlecode.n_orm.hbase.Store;
+import com.googlecode.n_orm.hbase.coprocessor.RowCountEndpoint;
 
 
 public class HBaseLauncher extends StoreTestLauncher {
@@ -50,6 +52,7 @@ public class HBaseLauncher extends StoreTestLauncher {
 					hBaseServer.getConfiguration().setInt("hbase.regionserver.msginterval", 100);
 					hBaseServer.getConfiguration().setInt("hbase.client.pause", 250);
 					hBaseServer.getConfiguration().setInt("hbase.client.retries.number", hbaseMaxRetries);
+					hBaseServer.getConfiguration().set(CoprocessorHost.REGION_COPROCESSOR_CONF_KEY, RowCountEndpoint.class.getName());
 //					if (hbaseHost != null)
 //						hBaseServer.getConfiguration().set(HConstants.ZOOKEEPER_QUORUM, hbaseHost);
 //					if (hbasePort != null)
@@ -0,0 +1,101 @@
+package com.googlecode.n_orm.hbase;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.googlecode.n_orm.storeapi.Row;
+import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
+
+public class LazyRowTest {
+
+	private static KeyValue kv(String fam, String qual, long ts, String val) {
+		return new KeyValue(Bytes.toBytes("row"), Bytes.toBytes(fam), Bytes.toBytes(qual), ts, Bytes.toBytes(val));
+	}
+
+	private static Result result() {
+		return new Result(new KeyValue[] {
+				kv("fam1", "a", 2, "a2"),
+				kv("fam1", "a", 1, "a1"),
+				kv("fam1", "b", 1, "b1"),
+				kv("fam2", "c", 1, "c1")
+		});
+	}
+
+	@Test
+	public void key() {
+		assertEquals("row", new LazyRow(result(), true).getKey());
+	}
+
+	@Test
+	public void noValues() {
+		assertNull(new LazyRow(result(), false).getValues());
+	}
+
+	@Test
+	public void families() {
+		ColumnFamilyData data = new LazyRow(result(), true).getValues();
+		assertEquals(2, data.size());
+		assertTrue(data.containsKey("fam1"));
+		assertTrue(data.containsKey("fam2"));
+		assertFalse(data.containsKey("fam3"));
+		assertNull(data.get("fam3"));
+		Iterator<String> fams = data.keySet().iterator();
+		assertEquals("fam1", fams.next());
+		assertEquals("fam2", fams.next());
+		assertFalse(fams.hasNext());
+	}
+
+	@Test
+	public void latestVersionOnly() {
+		Map<String, byte[]> fam1 = new LazyRow(result(), true).getValues().get("fam1");
+		assertEquals(2, fam1.size());
+		assertEquals("a2", Bytes.toString(fam1.get("a")));
+		assertEquals("b1", Bytes.toString(fam1.get("b")));
+		assertNull(fam1.get("c"));
+
+		Iterator<Entry<String, byte[]>> it = fam1.entrySet().iterator();
+		Entry<String, byte[]> e = it.next();
+		assertEquals("a", e.getKey());
+		assertEquals("a2", Bytes.toString(e.getValue()));
+		e = it.next();
+		assertEquals("b", e.getKey());
+		assertEquals("b1", Bytes.toString(e.getValue()));
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void emptyResult() {
+		ColumnFamilyData data = new LazyRow(new Result(new KeyValue[0]), true).getValues();
+		assertTrue(data.isEmpty());
+		assertNull(data.get("fam1"));
+	}
+
+	@Test
+	public void serialization() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(new LazyRow(result(), true));
+		oos.close();
+		Row row = (Row) new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+
+		assertEquals("row", row.getKey());
+		ColumnFamilyData data = row.getValues();
+		assertEquals(2, data.size());
+		assertEquals(2, data.get("fam1").size());
+		assertEquals("a2", Bytes.toString(data.get("fam1").get("a")));
+		assertEquals("b1", Bytes.toString(data.get("fam1").get("b")));
+		assertEquals("c1", Bytes.toString(data.get("fam2").get("c")));
+	}
+}
@@ -0,0 +1,132 @@
+package com.googlecode.n_orm.hbase;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Test;
+
+import com.googlecode.n_orm.PropertyManagement;
+import com.googlecode.n_orm.conversion.ConversionTools;
+
+public class ParallelScannerTest {
+	private static final byte[] table = Bytes.toBytes("t");
+	
+	private static List<HRegionInfo> regions() {
+		return Arrays.asList(
+				new HRegionInfo(table, Bytes.toBytes("m"), new byte[0]),
+				new HRegionInfo(table, new byte[0], Bytes.toBytes("f")),
+				new HRegionInfo(table, Bytes.toBytes("f"), Bytes.toBytes("m")));
+	}
+	
+	private static void assertRange(String start, String stop, Scan s) {
+		assertEquals(start, Bytes.toString(s.getStartRow()));
+		assertEquals(stop, Bytes.toString(s.getStopRow()));
+	}
+
+	@Test
+	public void fullScan() throws Exception {
+		List<Scan> scans = ParallelScanner.splitPerRegion(regions(), new Scan());
+		assertEquals(3, scans.size());
+		assertRange("", "f", scans.get(0));
+		assertRange("f", "m", scans.get(1));
+		assertRange("m", "", scans.get(2));
+	}
+
+	@Test
+	public void boundedScan() throws Exception {
+		List<Scan> scans = ParallelScanner.splitPerRegion(regions(), new Scan(Bytes.toBytes("b"), Bytes.toBytes("h")));
+		assertEquals(2, scans.size());
+		assertRange("b", "f", scans.get(0));
+		assertRange("f", "h", scans.get(1));
+	}
+
+	@Test
+	public void scanWithinRegion() throws Exception {
+		List<Scan> scans = ParallelScanner.splitPerRegion(regions(), new Scan(Bytes.toBytes("n")));
+		assertEquals(1, scans.size());
+		assertRange("n", "", scans.get(0));
+	}
+
+	private static final String testTable = "parallelscannertesttable";
+	
+	@After
+	public void deleteTestTable() throws IOException {
+		Store store = HBaseLauncher.hbaseStore;
+		if (store != null && store.getAdmin().tableExists(testTable)) {
+			store.getAdmin().disableTable(testTable);
+			store.getAdmin().deleteTable(testTable);
+		}
+	}
+	
+	/**
+	 * Opens a scanner over a table with 4 regions of 25 rows, scanned at once and received one row at a time.
+	 */
+	private ParallelScanner openScanner(Store store) throws IOException {
+		HTableDescriptor td = new HTableDescriptor(testTable);
+		td.addFamily(new HColumnDescriptor(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME));
+		store.getAdmin().createTable(td, new byte[][] {
+				Bytes.toBytes(ConversionTools.convertToString(25)),
+				Bytes.toBytes(ConversionTools.convertToString(50)),
+				Bytes.toBytes(ConversionTools.convertToString(75))});
+		for(int i = 0 ; i < 100; ++i) {
+			store.storeChanges(null, testTable, ConversionTools.convertToString(i), null , null, null);
+		}
+		Scan scan = new Scan();
+		scan.setCaching(1);
+		return new ParallelScanner(store, Bytes.toBytes(testTable), scan, 4, true, -1);
+	}
+	
+	private void waitForIdleScanThreads(Store store, long timeoutMs) throws InterruptedException {
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) store.getScanExecutor();
+		long end = System.currentTimeMillis() + timeoutMs;
+		while (executor.getActiveCount() > 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, executor.getActiveCount());
+	}
+	
+	@Test
+	public void closedScannerReleasesThreads() throws Exception {
+		HBaseLauncher.prepareHBase();
+		Store store = HBaseLauncher.hbaseStore;
+		ParallelScanner scanner = this.openScanner(store);
+		assertNotNull(scanner.next());
+		scanner.close();
+		waitForIdleScanThreads(store, 5000);
+		assertNull(scanner.next());
+	}
+	
+	@Test
+	public void unclosedScannerReleasesThreads() throws Exception {
+		HBaseLauncher.prepareHBase();
+		Store store = HBaseLauncher.hbaseStore;
+		long timeout = store.getScanResultsTimeoutMs();
+		store.setScanResultsTimeoutMs(500);
+		try {
+			ParallelScanner scanner = this.openScanner(store);
+			assertNotNull(scanner.next());
+			waitForIdleScanThreads(store, 10000);
+			
+			//Rows sent before the timeout can still be read
+			try {
+				while (scanner.next() != null);
+				fail("Reading a scanner that was not read for too long should fail");
+			} catch (IOException x) {
+				assertTrue(x.getCause() instanceof TimeoutException);
+			}
+		} finally {
+			store.setScanResultsTimeoutMs(timeout);
+		}
+	}
+}
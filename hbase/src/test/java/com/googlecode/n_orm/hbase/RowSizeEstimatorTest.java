@@ -0,0 +1,51 @@
+package com.googlecode.n_orm.hbase;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class RowSizeEstimatorTest {
+	private final MangledTableName table = new MangledTableName("t");
+
+	@Test
+	public void unknown() {
+		RowSizeEstimator e = new RowSizeEstimator();
+		assertNull(e.getCaching(table, null, 1000));
+	}
+
+	@Test
+	public void tooFewRows() {
+		RowSizeEstimator e = new RowSizeEstimator();
+		e.observe(table, null, RowSizeEstimator.MIN_ROWS-1, 1000);
+		assertNull(e.getEstimate(table, null));
+	}
+
+	@Test
+	public void caching() {
+		RowSizeEstimator e = new RowSizeEstimator();
+		e.observe(table, null, 100, 10000);
+		assertEquals(100l, e.getEstimate(table, null).longValue());
+		assertEquals(10, e.getCaching(table, null, 1000).intValue());
+		assertEquals(1, e.getCaching(table, null, 10).intValue());
+	}
+
+	@Test
+	public void perFamilies() {
+		RowSizeEstimator e = new RowSizeEstimator();
+		e.observe(table, new HashSet<String>(Arrays.asList("a", "b")), 100, 10000);
+		assertNull(e.getEstimate(table, null));
+		assertEquals(100l, e.getEstimate(table, new HashSet<String>(Arrays.asList("b", "a"))).longValue());
+	}
+
+	@Test
+	public void smoothed() {
+		RowSizeEstimator e = new RowSizeEstimator();
+		e.observe(table, null, 100, 10000);
+		e.observe(table, null, 100, 20000);
+		long estimate = e.getEstimate(table, null);
+		assertTrue(estimate > 100 && estimate < 200);
+	}
+}
@@ -0,0 +1,67 @@
+package com.googlecode.n_orm.hbase;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.googlecode.n_orm.hbase.properties.PropertyUtils;
+
+public class SchemaLeasesTest {
+	private final MangledTableName table = new MangledTableName("t"), otherTable = new MangledTableName("u");
+	private final Map<String, Field> families = new HashMap<String, Field>();
+	
+	public SchemaLeasesTest() {
+		families.put("props", null);
+	}
+
+	@Test
+	public void granted() {
+		SchemaLeases l = new SchemaLeases();
+		assertFalse(l.isValid(table, null, null, families));
+		l.grant(table, null, null, families, l.getStamp(), 10000);
+		assertTrue(l.isValid(table, null, null, families));
+		assertTrue(l.isValid(table, null, null, new HashMap<String, Field>(families)));
+		assertFalse(l.isValid(table, null, null, null));
+		assertFalse(l.isValid(table, null, "post", families));
+		assertFalse(l.isValid(otherTable, null, null, families));
+	}
+
+	@Test
+	public void expired() throws InterruptedException {
+		SchemaLeases l = new SchemaLeases();
+		l.grant(table, null, null, families, l.getStamp(), 1);
+		Thread.sleep(5);
+		assertFalse(l.isValid(table, null, null, families));
+	}
+
+	@Test
+	public void revoked() {
+		SchemaLeases l = new SchemaLeases();
+		l.grant(table, null, null, families, l.getStamp(), 10000);
+		l.grant(otherTable, null, null, families, l.getStamp(), 10000);
+		l.revoke(table);
+		assertFalse(l.isValid(table, null, null, families));
+		assertTrue(l.isValid(otherTable, null, null, families));
+	}
+
+	@Test
+	public void revokedDuringVerification() {
+		SchemaLeases l = new SchemaLeases();
+		long stamp = l.getStamp();
+		l.revoke(table);
+		l.grant(table, null, null, families, stamp, 10000);
+		assertFalse(l.isValid(table, null, null, families));
+	}
+
+	@Test
+	public void settingsChanged() {
+		SchemaLeases l = new SchemaLeases();
+		l.grant(table, null, null, families, l.getStamp(), 10000);
+		PropertyUtils.clearCachedValues();
+		assertFalse(l.isValid(table, null, null, families));
+	}
+}
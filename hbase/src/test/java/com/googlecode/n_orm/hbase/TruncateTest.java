@@ -0,0 +1,118 @@
+package com.googlecode.n_orm.hbase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.googlecode.n_orm.PropertyManagement;
+import com.googlecode.n_orm.conversion.ConversionTools;
+import com.googlecode.n_orm.storeapi.Constraint;
+import com.googlecode.n_orm.storeapi.DefaultColumnFamilyData;
+import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
+
+public class TruncateTest {
+	private static Store store;
+	private static final String testTable = "truncatetesttable";
+	
+	@BeforeClass
+	public static void prepareStore() {
+		HBaseLauncher.prepareHBase();
+		store = HBaseLauncher.hbaseStore;
+	}
+	
+	@After
+	public void deleteTestTable() throws IOException {
+		if (store.getAdmin().tableExists(testTable)) {
+			store.getAdmin().disableTable(testTable);
+			store.getAdmin().deleteTable(testTable);
+		}
+	}
+	
+	private void createSplitTable(int regions) throws IOException {
+		HTableDescriptor td = new HTableDescriptor(testTable);
+		td.addFamily(new HColumnDescriptor(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME));
+		byte[][] splits = new byte[regions-1][];
+		for (int i = 1; i < regions; ++i) {
+			splits[i-1] = Bytes.toBytes(ConversionTools.convertToString(i*100/regions));
+		}
+		store.getAdmin().createTable(td, splits);
+	}
+	
+	private void storeRows(int rows) {
+		for(int i = 0 ; i < rows; ++i) {
+			store.storeChanges(null, testTable, ConversionTools.convertToString(i), null , null, null);
+		}
+	}
+	
+	@Test
+	public void smallTable() {
+		this.storeRows(100);
+		store.truncate(null, testTable, (Constraint)null);
+		assertEquals(0l, store.count(null, testTable, (Constraint)null));
+	}
+	
+	@Test
+	public void recreatedTable() throws IOException {
+		this.createSplitTable(4);
+		this.storeRows(100);
+		store.truncate(null, testTable, (Constraint)null);
+		assertEquals(0l, store.count(null, testTable, (Constraint)null));
+		assertEquals(4, store.getAdmin().getTableRegions(Bytes.toBytes(testTable)).size());
+		
+		this.storeRows(10);
+		assertEquals(10l, store.count(null, testTable, (Constraint)null));
+	}
+	
+	@Test
+	public void recreatedTableWrittenAndRead() throws IOException {
+		this.createSplitTable(2);
+		this.storeRows(100);
+		store.truncate(null, testTable, (Constraint)null);
+		assertEquals(2, store.getAdmin().getTableRegions(Bytes.toBytes(testTable)).size());
+		assertEquals(0l, store.count(null, testTable, (Constraint)null));
+		
+		for (int i : new int[] {10, 90}) { //One row per region
+			ColumnFamilyData change = new DefaultColumnFamilyData();
+			Map<String, byte[]> props = new TreeMap<String, byte[]>();
+			props.put("prop", new byte[] {(byte) i});
+			change.put(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, props);
+			store.storeChanges(null, testTable, ConversionTools.convertToString(i), change, null, null);
+		}
+		assertEquals(2l, store.count(null, testTable, (Constraint)null));
+		for (int i : new int[] {10, 90}) {
+			Map<String, byte[]> props = store.get(null, testTable, ConversionTools.convertToString(i), PropertyManagement.PROPERTY_COLUMNFAMILY_NAME);
+			assertArrayEquals(new byte[] {(byte) i}, props.get("prop"));
+		}
+		assertFalse(store.exists(null, testTable, ConversionTools.convertToString(50)));
+	}
+	
+	@Test
+	public void range() throws IOException {
+		this.createSplitTable(4);
+		this.storeRows(100);
+		store.truncate(null, testTable, new Constraint(ConversionTools.convertToString(10), ConversionTools.convertToString(89)));
+		assertEquals(20l, store.count(null, testTable, (Constraint)null));
+	}
+	
+	@Test
+	public void rangeSequential() throws IOException {
+		int parallelism = store.getTruncateParallelism();
+		store.setTruncateParallelism(1);
+		try {
+			this.range();
+		} finally {
+			store.setTruncateParallelism(parallelism);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package com.googlecode.n_orm.hbase;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.googlecode.n_orm.Key;
+import com.googlecode.n_orm.Persisting;
+import com.googlecode.n_orm.PropertyManagement;
+import com.googlecode.n_orm.cf.SetColumnFamily;
+import com.googlecode.n_orm.hbase.HBaseSchema.WALWritePolicy;
+import com.googlecode.n_orm.storeapi.DefaultColumnFamilyData;
+import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
+
+public class WritePlanTest {
+	//Only used for its toMap method, which does not require any connection
+	private final Store store = new Store(new Properties());
+
+	@Persisting
+	@HBaseSchema(writeToWAL=WALWritePolicy.SKIP)
+	public static class Element extends DummyPersistingElement {
+		private static final long serialVersionUID = -2217384547325004447L;
+		@Key
+		public String key;
+		@HBaseSchema(writeToWAL=WALWritePolicy.USE)
+		public SetColumnFamily<String> usingWal = new SetColumnFamily<String>();
+		public SetColumnFamily<String> unset = new SetColumnFamily<String>();
+	}
+
+	private static Map<String, Field> fields() throws Exception {
+		Map<String, Field> ret = new TreeMap<String, Field>();
+		ret.put("usingWal", Element.class.getField("usingWal"));
+		ret.put("unset", Element.class.getField("unset"));
+		return ret;
+	}
+
+	@Test
+	public void walPolicies() throws Exception {
+		WritePlan plan = new WritePlan(Element.class, "t");
+		Map<String, Field> fields = fields();
+		assertEquals(WALWritePolicy.SKIP, plan.getFamily(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, fields).getWALPolicy());
+		assertEquals(WALWritePolicy.USE, plan.getFamily("usingWal", fields).getWALPolicy());
+		assertEquals(WALWritePolicy.SKIP, plan.getFamily("unset", fields).getWALPolicy());
+	}
+
+	@Test
+	public void fieldDiscoveredLater() throws Exception {
+		WritePlan plan = new WritePlan(Element.class, "t");
+		assertEquals(WALWritePolicy.SKIP, plan.getFamily("usingWal", (Field)null).getWALPolicy());
+		assertEquals(WALWritePolicy.USE, plan.getFamily("usingWal", fields()).getWALPolicy());
+		assertEquals(WALWritePolicy.USE, plan.getFamily("usingWal", (Field)null).getWALPolicy());
+	}
+
+	@Test
+	public void unknownClass() {
+		WritePlan plan = new WritePlan(null, "t");
+		assertEquals(WALWritePolicy.UNSET, plan.getFamily(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, (Field)null).getWALPolicy());
+		assertEquals("HBaseNextPossibleUpdateInTable" + plan.getTable().getName(), plan.getUpdateTagKey());
+	}
+
+	@Test
+	public void internedNames() {
+		WritePlan plan = new WritePlan(Element.class, "t");
+		WritePlan.Family fam = plan.getFamily("unset", (Field)null);
+		assertArrayEquals(Bytes.toBytes("unset"), fam.getNameBytes());
+		byte[] q = fam.getQualifier("qual");
+		assertArrayEquals(Bytes.toBytes("qual"), q);
+		assertSame(q, fam.getQualifier("qual"));
+	}
+
+	@Test
+	public void boundedQualifiers() {
+		WritePlan plan = new WritePlan(Element.class, "t");
+		WritePlan.Family fam = plan.getFamily("unset", (Field)null);
+		for (int i = 0; i < WritePlan.MAX_INTERNED_QUALIFIERS; ++i) {
+			fam.getQualifier("q" + i);
+		}
+		byte[] q = fam.getQualifier("other");
+		assertArrayEquals(Bytes.toBytes("other"), q);
+		assertNotSame(q, fam.getQualifier("other"));
+		assertSame(fam.getQualifier("q0"), fam.getQualifier("q0"));
+	}
+
+	@Test
+	public void familiesReused() throws Exception {
+		WritePlan plan = new WritePlan(Element.class, "t");
+		Map<String, Field> fields = fields();
+		ColumnFamilyData changed = new DefaultColumnFamilyData();
+		changed.put("usingWal", new TreeMap<String, byte[]>());
+		Map<String, Field> fams = plan.getFamilies(changed, null, null, fields, store);
+		assertEquals(2, fams.size());
+		assertSame(fields.get("usingWal"), fams.get("usingWal"));
+		assertTrue(fams.containsKey(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME));
+		assertSame(fams, plan.getFamilies(changed, null, null, fields, store));
+
+		changed.put("unset", new TreeMap<String, byte[]>());
+		Map<String, Field> fams2 = plan.getFamilies(changed, null, null, fields, store);
+		assertNotSame(fams, fams2);
+		assertEquals(3, fams2.size());
+
+		changed.remove("unset");
+		assertEquals(fams, plan.getFamilies(changed, null, null, fields, store));
+	}
+
+	/**
+	 * Writes with the same shape should not compute families, binary names or WAL policy again.
+	 */
+	@Test
+	public void repeatedWrites() throws Exception {
+		WritePlan plan = new WritePlan(Element.class, "t");
+		Map<String, Field> fields = fields();
+		ColumnFamilyData changed = new DefaultColumnFamilyData();
+		Map<String, byte[]> props = new TreeMap<String, byte[]>();
+		props.put("prop1", new byte[] {1});
+		props.put("prop2", new byte[] {2});
+		changed.put(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, props);
+		Map<String, byte[]> cf = new TreeMap<String, byte[]>();
+		cf.put("elt", new byte[0]);
+		changed.put("usingWal", cf);
+
+		Map<String, Field> fams = plan.getFamilies(changed, null, null, fields, store);
+		assertEquals(store.toMap(WritePlan.involvedFamilies(changed, null, null), fields), fams);
+		Map<String, WritePlan.Family> families = new TreeMap<String, WritePlan.Family>();
+		Map<String, byte[]> qualifiers = new TreeMap<String, byte[]>();
+		for (Map.Entry<String, Map<String, byte[]>> family : changed.entrySet()) {
+			WritePlan.Family fam = plan.getFamily(family.getKey(), fams);
+			assertArrayEquals(Bytes.toBytes(family.getKey()), fam.getNameBytes());
+			families.put(family.getKey(), fam);
+			for (String qual : family.getValue().keySet()) {
+				byte[] q = fam.getQualifier(qual);
+				assertArrayEquals(Bytes.toBytes(qual), q);
+				qualifiers.put(family.getKey() + ':' + qual, q);
+			}
+		}
+		assertEquals(WALWritePolicy.USE, families.get("usingWal").getWALPolicy());
+		assertEquals(WALWritePolicy.SKIP, families.get(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME).getWALPolicy());
+
+		for (int i = 0; i < 10; ++i) {
+			assertSame(fams, plan.getFamilies(changed, null, null, fields, store));
+			for (Map.Entry<String, Map<String, byte[]>> family : changed.entrySet()) {
+				WritePlan.Family fam = plan.getFamily(family.getKey(), fams);
+				assertSame(families.get(family.getKey()), fam);
+				for (String qual : family.getValue().keySet()) {
+					assertSame(qualifiers.get(family.getKey() + ':' + qual), fam.getQualifier(qual));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Qualifiers as they are computed by {@link Store#storeChanges} for a write of an {@link Element}.
+	 */
+	private List<byte[]> writtenQualifiers(ColumnFamilyData changed, Map<String, Field> fields) {
+		WritePlan plan = store.getWritePlan(Element.class, "t");
+		Map<String, Field> fams = plan.getFamilies(changed, null, null, fields, store);
+		List<byte[]> ret = new ArrayList<byte[]>();
+		for (Map.Entry<String, Map<String, byte[]>> family : changed.entrySet()) {
+			WritePlan.Family fam = plan.getFamily(family.getKey(), fams);
+			for (String qual : family.getValue().keySet()) {
+				ret.add(fam.getQualifier(qual));
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void qualifiersSharedAcrossWrites() throws Exception {
+		Map<String, Field> fields = fields();
+		ColumnFamilyData changed = new DefaultColumnFamilyData();
+		Map<String, byte[]> props = new TreeMap<String, byte[]>();
+		props.put("prop1", new byte[] {1});
+		changed.put(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, props);
+		Map<String, byte[]> cf = new TreeMap<String, byte[]>();
+		cf.put("elt", new byte[0]);
+		changed.put("usingWal", cf);
+
+		List<byte[]> first = writtenQualifiers(changed, fields);
+		List<byte[]> second = writtenQualifiers(changed, fields);
+		assertEquals(2, first.size());
+		assertEquals(first.size(), second.size());
+		for (int i = 0; i < first.size(); ++i) {
+			assertSame(first.get(i), second.get(i));
+		}
+
+		//Qualifiers beyond the limit are not interned anymore, but are still written correctly
+		WritePlan.Family fam = store.getWritePlan(Element.class, "t").getFamily("usingWal", fields);
+		for (int i = 0; i < WritePlan.MAX_INTERNED_QUALIFIERS; ++i) {
+			fam.getQualifier("q" + i);
+		}
+		cf.put("overflow", new byte[0]);
+		first = writtenQualifiers(changed, fields);
+		second = writtenQualifiers(changed, fields);
+		assertEquals(3, first.size());
+		for (int i = 0; i < first.size(); ++i) {
+			assertArrayEquals(first.get(i), second.get(i));
+		}
+		//Written in family order: props:prop1, usingWal:elt, usingWal:overflow
+		assertSame(first.get(0), second.get(0));
+		assertSame(first.get(1), second.get(1));
+		assertArrayEquals(Bytes.toBytes("overflow"), first.get(2));
+		assertNotSame(first.get(2), second.get(2));
+	}
+}
@@ -0,0 +1,278 @@
+package com.googlecode.n_orm;
+
+import java.lang.reflect.Array;
+import java.util.Date;
+
+import com.googlecode.n_orm.conversion.ConversionTools;
+
+/**
+ * Compact and order-preserving representation of keys for classes using {@link KeyEncoding#BINARY}.
+ * Representations are strings so that they can be used as identifiers ; ordering them as strings,
+ * or as their UTF-8 encoding, orders represented values.
+ * <ul>
+ * <li>booleans, naturals, characters and {@link Date}s are written big-endian with a fixed width,
+ * one character (from 0x00 to 0xFF) per byte, with sign bit flipped for signed values,</li>
+ * <li>other simple values (e.g. strings or enums) are written as their string representation,
+ * with character 0x0000 escaped as 0x0000 0xFFFF, and terminated by 0x0000 0x0001,</li>
+ * <li>arrays are written as their length on 4 bytes followed by their elements,</li>
+ * <li>keyed elements are written as the name of their class (as a string, empty in case it is the expected type) followed by their keys.</li>
+ * </ul>
+ * All bytes of {@link Key#reverted() reverted} values are complemented.
+ * The identifier for an element is the representation of its keys followed by {@link KeyManagement#KEY_END_SEPARATOR}.
+ */
+public final class BinaryKeys {
+	private static final char ESCAPE = '\u0000', ESCAPED = '\uFFFF', TERMINATOR = '\u0001';
+
+	private BinaryKeys() {}
+
+	/**
+	 * Number of bytes used to represent values of the given type ; -1 if not represented with a fixed width.
+	 */
+	private static int getWidth(Class<?> type) {
+		if (type.equals(int.class) || type.equals(Integer.class))
+			return Integer.SIZE/Byte.SIZE;
+		if (type.equals(long.class) || type.equals(Long.class) || Date.class.isAssignableFrom(type))
+			return Long.SIZE/Byte.SIZE;
+		if (type.equals(short.class) || type.equals(Short.class) || type.equals(char.class) || type.equals(Character.class))
+			return Short.SIZE/Byte.SIZE;
+		if (type.equals(byte.class) || type.equals(Byte.class) || type.equals(boolean.class) || type.equals(Boolean.class))
+			return 1;
+		return -1;
+	}
+
+	private static boolean isSigned(Class<?> type) {
+		return !(type.equals(char.class) || type.equals(Character.class) || type.equals(boolean.class) || type.equals(Boolean.class));
+	}
+
+	private static boolean isKeyed(Class<?> type) {
+		return type.isInterface() || KeyManagement.getInstance().detectKeys(type).size() > 0;
+	}
+
+	/**
+	 * The representation for the given value.
+	 * @param type the expected type for the value
+	 */
+	public static String toString(Object value, Class<?> type, boolean reverted) {
+		StringBuilder ret = new StringBuilder();
+		append(ret, value, type, reverted);
+		return ret.toString();
+	}
+
+	/**
+	 * Appends the representation for the given value.
+	 * @param type the expected type for the value
+	 */
+	public static void append(StringBuilder sb, Object value, Class<?> type, boolean reverted) {
+		if (value == null)
+			throw new IllegalArgumentException("Cannot represent a null value of " + type);
+		if (type.isArray()) {
+			if (reverted)
+				throw new IllegalArgumentException("Cannot revert an array such as " + type.getName());
+			int length = Array.getLength(value);
+			appendFixed(sb, length, Integer.SIZE/Byte.SIZE, false, false);
+			Class<?> componentType = type.getComponentType();
+			for (int i = 0; i < length; ++i) {
+				append(sb, Array.get(value, i), componentType, false);
+			}
+		} else if (isKeyed(type)) {
+			if (reverted)
+				throw new IllegalArgumentException("Cannot revert a keyed element such as " + type.getName());
+			appendString(sb, value.getClass().equals(type) ? "" : value.getClass().getName());
+			appendKeys(sb, value);
+		} else {
+			int width = getWidth(type);
+			if (width < 0) {
+				appendString(sb, reverted ? ConversionTools.convertToStringReverted(value, type) : ConversionTools.convertToString(value, type));
+			} else {
+				long bits;
+				if (value instanceof Boolean)
+					bits = ((Boolean)value).booleanValue() ? 1 : 0;
+				else if (value instanceof Character)
+					bits = ((Character)value).charValue();
+				else if (value instanceof Date)
+					bits = ((Date)value).getTime();
+				else
+					bits = ((Number)value).longValue();
+				appendFixed(sb, bits, width, isSigned(type), reverted);
+			}
+		}
+	}
+
+	/**
+	 * Appends the representation for all keys of the given element, in key order.
+	 */
+	static void appendKeys(StringBuilder sb, Object element) {
+		IdentifierLayout layout = KeyManagement.getInstance().getIdentifierLayout(element.getClass());
+		for (int i = 0; i < layout.getKeyCount(); ++i) {
+			append(sb, layout.getValue(element, i), layout.getKeyType(i), layout.isReverted(i));
+		}
+	}
+
+	private static void appendFixed(StringBuilder sb, long bits, int width, boolean signed, boolean reverted) {
+		for (int i = width-1; i >= 0; --i) {
+			int b = (int) (bits >>> (i*Byte.SIZE)) & 0xFF;
+			if (signed && i == width-1)
+				b ^= 0x80;
+			if (reverted)
+				b ^= 0xFF;
+			sb.append((char) b);
+		}
+	}
+
+	private static void appendString(StringBuilder sb, String value) {
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			sb.append(c);
+			if (c == ESCAPE)
+				sb.append(ESCAPED);
+		}
+		sb.append(ESCAPE).append(TERMINATOR);
+	}
+
+	/**
+	 * Reads values from a representation, from its beginning.
+	 */
+	static class Reader {
+		private final String rep;
+		private final int end;
+		private int pos;
+
+		/**
+		 * @param end the index in the representation where reading must stop (excluded)
+		 */
+		Reader(String rep, int end) {
+			this.rep = rep;
+			this.end = end;
+			this.pos = 0;
+		}
+
+		public boolean isEmpty() {
+			return this.pos >= this.end;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at index " + this.pos + " of binary key " + PersistingMixin.getInstance().identifierToString(this.rep));
+		}
+
+		private char next() {
+			if (this.isEmpty())
+				throw this.error("Unexpected end of key");
+			return this.rep.charAt(this.pos++);
+		}
+
+		/**
+		 * Reads values for all keys of the given type, in key order.
+		 */
+		public Object[] readKeys(Class<?> type) {
+			IdentifierLayout layout = KeyManagement.getInstance().getIdentifierLayout(type);
+			Object[] ret = new Object[layout.getKeyCount()];
+			for (int i = 0; i < ret.length; ++i) {
+				ret[i] = this.read(layout.getKeyType(i), layout.isReverted(i));
+			}
+			return ret;
+		}
+
+		public Object read(Class<?> type, boolean reverted) {
+			if (type.isArray()) {
+				if (reverted)
+					throw new IllegalArgumentException("Cannot revert an array such as " + type.getName());
+				int length = (int) this.readFixed(Integer.SIZE/Byte.SIZE, false, false);
+				if (length < 0)
+					throw this.error("Invalid array length " + length);
+				Class<?> componentType = type.getComponentType();
+				Object ret = Array.newInstance(componentType, length);
+				for (int i = 0; i < length; ++i) {
+					Array.set(ret, i, this.read(componentType, false));
+				}
+				return ret;
+			} else if (isKeyed(type)) {
+				if (reverted)
+					throw new IllegalArgumentException("Cannot revert a keyed element such as " + type.getName());
+				return this.readKeyedElement(type);
+			} else {
+				int width = getWidth(type);
+				if (width < 0) {
+					String str = this.readString();
+					return reverted ? ConversionTools.convertFromStringReverted(type, str) : ConversionTools.convertFromString(type, str);
+				}
+				long bits = this.readFixed(width, isSigned(type), reverted);
+				if (type.equals(int.class) || type.equals(Integer.class))
+					return (int) bits;
+				if (type.equals(long.class) || type.equals(Long.class))
+					return bits;
+				if (type.equals(short.class) || type.equals(Short.class))
+					return (short) bits;
+				if (type.equals(byte.class) || type.equals(Byte.class))
+					return (byte) bits;
+				if (type.equals(char.class) || type.equals(Character.class))
+					return (char) bits;
+				if (type.equals(boolean.class) || type.equals(Boolean.class))
+					return bits != 0;
+				return new Date(bits);
+			}
+		}
+
+		private Object readKeyedElement(Class<?> type) {
+			String typeName = this.readString();
+			Class<?> actualType = type;
+			if (!typeName.isEmpty()) {
+				try {
+					actualType = Class.forName(typeName);
+				} catch (ClassNotFoundException e) {
+					throw new IllegalArgumentException("Cannot find class " + typeName + " as declared in key " + PersistingMixin.getInstance().identifierToString(this.rep), e);
+				}
+				if (!type.isAssignableFrom(actualType))
+					throw new IllegalArgumentException("Expecting a " + type + " element while key declares incompatible type " + typeName);
+			} else if (type.isInterface()) {
+				throw this.error("Cannot determine subclass of " + type);
+			}
+			KeyManagement km = KeyManagement.getInstance();
+			Object ret = km.createElement(actualType, this.readKeys(actualType));
+			if (ret instanceof PersistingElement) {
+				PersistingElement known = km.getKnownPersistingElement(((PersistingElement)ret).getFullIdentifier());
+				if (known != null)
+					ret = known;
+				else
+					km.register((PersistingElement) ret);
+			}
+			return ret;
+		}
+
+		private long readFixed(int width, boolean signed, boolean reverted) {
+			long ret = 0;
+			for (int i = width-1; i >= 0; --i) {
+				int b = this.next();
+				if (b > 0xFF)
+					throw this.error("Invalid byte " + b);
+				if (reverted)
+					b ^= 0xFF;
+				if (signed && i == width-1)
+					b ^= 0x80;
+				ret = (ret << Byte.SIZE) | b;
+			}
+			if (signed) {
+				//Extending sign
+				int shift = Long.SIZE - width*Byte.SIZE;
+				ret = (ret << shift) >> shift;
+			}
+			return ret;
+		}
+
+		private String readString() {
+			StringBuilder ret = new StringBuilder();
+			while (true) {
+				char c = this.next();
+				if (c == ESCAPE) {
+					c = this.next();
+					if (c == TERMINATOR)
+						return ret.toString();
+					if (c != ESCAPED)
+						throw this.error("Invalid escaped character " + (int)c);
+					ret.append(ESCAPE);
+				} else {
+					ret.append(c);
+				}
+			}
+		}
+	}
+}
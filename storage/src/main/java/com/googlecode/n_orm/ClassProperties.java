@@ -0,0 +1,136 @@
+package com.googlecode.n_orm;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable description of the properties of a class, including inherited ones
+ * (see {@link PropertyManagement#getProperties(Class)}).
+ * Descriptions are built once per class and can be read concurrently without locking.
+ * Flags about properties are computed the first time they are requested,
+ * as computing them may require describing the classes of properties.
+ */
+final class ClassProperties {
+	private static final byte UNKNOWN = 0, FALSE = 1, TRUE = 2;
+
+	private final Class<?> type;
+	private final Field[] properties;
+	private final Set<Field> propertySet;
+	private final Map<String, Field> byName;
+	private final Map<Field, Integer> indexes;
+	// Computed flags ; races are harmless as computing a flag always gives the same result
+	private final byte[] keys, reverted, persistingTypes, implicitActivations;
+
+	/**
+	 * @param declaredProperties properties declared by the class, in declaration order
+	 * @param superProperties description of the properties of the superclass ; null if none
+	 */
+	ClassProperties(Class<?> type, Field[] declaredProperties, ClassProperties superProperties) {
+		this.type = type;
+		Field[] superFields = superProperties == null ? new Field[0] : superProperties.properties;
+		this.properties = new Field[declaredProperties.length + superFields.length];
+		System.arraycopy(declaredProperties, 0, this.properties, 0, declaredProperties.length);
+		System.arraycopy(superFields, 0, this.properties, declaredProperties.length, superFields.length);
+		this.propertySet = Collections.unmodifiableSet(new LinkedHashSet<Field>(Arrays.asList(this.properties)));
+		this.byName = new HashMap<String, Field>();
+		this.indexes = new HashMap<Field, Integer>();
+		for (int i = 0; i < this.properties.length; ++i) {
+			Field f = this.properties[i];
+			// Properties of the class hide properties with the same name from superclasses
+			if (!this.byName.containsKey(f.getName()))
+				this.byName.put(f.getName(), f);
+			this.indexes.put(f, i);
+		}
+		this.keys = new byte[this.properties.length];
+		this.reverted = new byte[this.properties.length];
+		this.persistingTypes = new byte[this.properties.length];
+		this.implicitActivations = new byte[this.properties.length];
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Properties of the class, starting with those declared by the class, and then those declared by its superclasses.
+	 * Returned array must not be modified.
+	 */
+	public Field[] getProperties() {
+		return properties;
+	}
+
+	/**
+	 * An unmodifiable set of {@link #getProperties() properties}.
+	 */
+	public Set<Field> getPropertySet() {
+		return propertySet;
+	}
+
+	/**
+	 * The property with the given name ; null if no such property exists.
+	 */
+	public Field getProperty(String name) {
+		return this.byName.get(name);
+	}
+
+	private int indexOf(Field property) {
+		Integer ret = this.indexes.get(property);
+		if (ret == null)
+			throw new IllegalArgumentException(property + " is not a property of " + this.type);
+		return ret;
+	}
+
+	private static boolean is(byte flag) {
+		assert flag != UNKNOWN;
+		return flag == TRUE;
+	}
+
+	private static byte flag(boolean value) {
+		return value ? TRUE : FALSE;
+	}
+
+	/**
+	 * Whether the property is a valid key (see {@link KeyManagement#isKey(Field)}).
+	 */
+	public boolean isKey(Field property) {
+		int i = this.indexOf(property);
+		if (this.keys[i] == UNKNOWN)
+			this.keys[i] = flag(KeyManagement.getInstance().isKey(property));
+		return is(this.keys[i]);
+	}
+
+	/**
+	 * Whether the property is a {@link Key#reverted() reverted} key.
+	 */
+	public boolean isReverted(Field property) {
+		int i = this.indexOf(property);
+		if (this.reverted[i] == UNKNOWN)
+			this.reverted[i] = flag(this.isKey(property) && property.getAnnotation(Key.class).reverted());
+		return is(this.reverted[i]);
+	}
+
+	/**
+	 * Whether the property has a persisting type (see {@link PropertyManagement#isPersistingPropertyType(Class)}).
+	 */
+	public boolean isPersistingType(Field property) {
+		int i = this.indexOf(property);
+		if (this.persistingTypes[i] == UNKNOWN)
+			this.persistingTypes[i] = flag(PropertyManagement.getInstance().isPersistingPropertyType(property.getType()));
+		return is(this.persistingTypes[i]);
+	}
+
+	/**
+	 * Whether the property is annotated with {@link ImplicitActivation}.
+	 */
+	public boolean isImplicitActivation(Field property) {
+		int i = this.indexOf(property);
+		if (this.implicitActivations[i] == UNKNOWN)
+			this.implicitActivations[i] = flag(property.isAnnotationPresent(ImplicitActivation.class));
+		return is(this.implicitActivations[i]);
+	}
+}
@@ -0,0 +1,152 @@
+package com.googlecode.n_orm;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import com.googlecode.n_orm.conversion.ConversionTools;
+
+/**
+ * Immutable description of the keys of a class, in key order, as needed to build and read identifiers
+ * (see {@link KeyManagement#createIdentifier(Object, Class)} and {@link KeyManagement#createElement(Class, String)}).
+ * Layouts are built once per class and can be read concurrently without locking.
+ * A layout is <i>simple</i> in case none of its keys is an array or a keyed element:
+ * identifiers in {@link KeyEncoding#STRING string encoding} can then be read from their beginning,
+ * as each key is a single value followed by either {@link KeyManagement#KEY_SEPARATOR} or {@link KeyManagement#KEY_END_SEPARATOR}.
+ */
+final class IdentifierLayout {
+	private static final char KEY_SEPARATOR = KeyManagement.KEY_SEPARATOR.charAt(0);
+	private static final char KEY_END_SEPARATOR = KeyManagement.KEY_END_SEPARATOR.charAt(0);
+	private static final char ARRAY_SEPARATOR = KeyManagement.ARRAY_SEPARATOR.charAt(0);
+
+	private final Class<?> type;
+	private final Field[] keys;
+	private final PropertyAccessor[] accessors;
+	private final Class<?>[] types;
+	private final boolean[] reverted, keyed;
+	// Length of the string representation of simple keys ; -1 if it depends on the value
+	private final int[] lengths;
+	private final boolean simple;
+
+	/**
+	 * @param keys keys of the class, in key order (see {@link KeyManagement#detectKeys(Class)})
+	 */
+	IdentifierLayout(Class<?> type, List<Field> keys) {
+		KeyManagement km = KeyManagement.getInstance();
+		this.type = type;
+		this.keys = keys.toArray(new Field[keys.size()]);
+		this.accessors = new PropertyAccessor[this.keys.length];
+		this.types = new Class<?>[this.keys.length];
+		this.reverted = new boolean[this.keys.length];
+		this.keyed = new boolean[this.keys.length];
+		this.lengths = new int[this.keys.length];
+		boolean simple = true;
+		for (int i = 0; i < this.keys.length; ++i) {
+			Field key = this.keys[i];
+			Class<?> keyType = key.getType();
+			this.accessors[i] = PropertyAccessor.getAccessor(key);
+			this.types[i] = keyType;
+			this.reverted[i] = key.getAnnotation(Key.class).reverted();
+			this.keyed[i] = !keyType.isArray() && (keyType.isInterface() || km.detectKeys(keyType).size() > 0);
+			this.lengths[i] = keyType.isArray() || this.keyed[i] ? -1 : ConversionTools.getStringLength(keyType);
+			simple &= !keyType.isArray() && !this.keyed[i];
+		}
+		this.simple = simple;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public int getKeyCount() {
+		return this.keys.length;
+	}
+
+	public Field getKey(int index) {
+		return this.keys[index];
+	}
+
+	public Class<?> getKeyType(int index) {
+		return this.types[index];
+	}
+
+	public boolean isReverted(int index) {
+		return this.reverted[index];
+	}
+
+	/**
+	 * Whether the key is an element with keys (not an array).
+	 */
+	public boolean isKeyed(int index) {
+		return this.keyed[index];
+	}
+
+	/**
+	 * Whether no key is an array or a keyed element.
+	 */
+	public boolean isSimple() {
+		return simple;
+	}
+
+	/**
+	 * The non null value of a key of the given element.
+	 * @throws IllegalStateException in case the key is null
+	 */
+	public Object getValue(Object element, int index) {
+		Object ret;
+		try {
+			ret = this.accessors[index].get(element);
+		} catch (Exception x) {
+			ret = PropertyManagement.getInstance().candideReadValue(element, this.keys[index]);
+		}
+		if (ret == null)
+			throw new IllegalStateException("A key cannot be null as it is the case for key " + this.keys[index] + " of " + element);
+		return ret;
+	}
+
+	/**
+	 * Appends the representation of all keys of the given element in {@link KeyEncoding#STRING string encoding},
+	 * separated by {@link KeyManagement#KEY_SEPARATOR} ; the {@link KeyManagement#KEY_END_SEPARATOR} is not appended.
+	 */
+	public void appendKeys(StringBuilder sb, Object element) {
+		for (int i = 0; i < this.keys.length; ++i) {
+			if (i > 0)
+				sb.append(KEY_SEPARATOR);
+			ConversionTools.appendString(sb, this.getValue(element, i), this.types[i], this.reverted[i]);
+		}
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == KEY_SEPARATOR || c == KEY_END_SEPARATOR || c == ARRAY_SEPARATOR;
+	}
+
+	/**
+	 * Reads the values of all keys, in key order, from an identifier in {@link KeyEncoding#STRING string encoding}
+	 * without splitting the identifier.
+	 * @param end the index of the {@link KeyManagement#KEY_END_SEPARATOR} that ends keys in the identifier
+	 * @return null in case the identifier cannot be read that way,
+	 *  i.e. the layout is not {@link #isSimple() simple} or keys do not fit in the identifier
+	 */
+	public Object[] readKeys(String id, int end) {
+		if (!this.simple)
+			return null;
+		Object[] ret = new Object[this.keys.length];
+		int pos = 0;
+		for (int i = 0; i < ret.length; ++i) {
+			int stop;
+			if (this.lengths[i] >= 0) {
+				stop = pos + this.lengths[i];
+				if (stop > end)
+					return null;
+			} else {
+				stop = pos;
+				while (stop < end && !isSeparator(id.charAt(stop)))
+					stop++;
+			}
+			if (i == ret.length-1 ? stop != end : id.charAt(stop) != KEY_SEPARATOR)
+				return null;
+			ret[i] = ConversionTools.convertFromString(this.types[i], id, pos, stop, this.reverted[i]);
+			pos = stop+1;
+		}
+		return ret;
+	}
+}
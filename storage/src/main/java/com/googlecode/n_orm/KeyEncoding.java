@@ -0,0 +1,29 @@
+package com.googlecode.n_orm;
+
+import com.googlecode.n_orm.operations.ImportExport;
+
+/**
+ * The way identifiers of a {@link Persisting} class are built from its keys (see {@link Persisting#keyEncoding()}).
+ * <p>
+ * Changing the encoding of a class makes its existing rows unreachable as their identifiers are still in the former encoding.
+ * To migrate data, elements should be exported (see {@link ImportExport#exportPersistingElements(CloseableIterator, java.io.ObjectOutputStream)})
+ * before the encoding is changed, and imported afterwards (see {@link ImportExport#importPersistingElements(java.io.InputStream)}):
+ * exported elements record the encoding of their identifier, and are stored again with an identifier in the new encoding.
+ * Rows with an identifier in the former encoding should be deleted (e.g. by truncating tables) before importing.
+ * </p>
+ */
+public enum KeyEncoding {
+	/**
+	 * Keys are represented as strings (see {@link com.googlecode.n_orm.conversion.ConversionTools#convertToString(Object)})
+	 * separated with {@link KeyManagement#KEY_SEPARATOR} (see {@link KeyManagement} for a complete description).
+	 */
+	STRING,
+
+	/**
+	 * Keys are represented in a compact, order-preserving form (see {@link BinaryKeys} for a complete description).
+	 * Identifiers are cheaper to build and to parse, and shorter, than {@link #STRING string} identifiers.
+	 * Searches on a key of a key (see {@link com.googlecode.n_orm.query.KeyConstraintBuilder#isAnElement()}) are not supported,
+	 * and elements of such classes cannot be keys of a class using {@link #STRING} encoding.
+	 */
+	BINARY
+}
@@ -0,0 +1,23 @@
+package com.googlecode.n_orm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation may be placed on a property representing a {@link java.util.Map}
+ * column family so that its values are not converted when the column family is activated.
+ * Raw values read from the data store are kept as is, and a value is only converted
+ * the first time it is read (e.g. using {@link java.util.Map#get(Object)} or iterating over entries).
+ * This is useful for large column families of which only a few values are actually read.<br>
+ * As a consequence, the property holds the {@link com.googlecode.n_orm.cf.MapColumnFamily} itself
+ * instead of a {@link java.util.HashMap} copy,
+ * just as if it were declared as a {@link com.googlecode.n_orm.cf.MapColumnFamily}.
+ * When the persisting element is serialized, the property is however serialized as a regular map.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface LazyDecoding {
+
+}
@@ -137,4 +137,11 @@ public @interface Persisting {
 	 * {@link PersistingElementOverFederatedTable#getTablePostfix()}.<br>
 	 */
 	FederatedMode federated() default FederatedMode.NONE;
+
+	/**
+	 * The way identifiers are built from keys.
+	 * Classes of a same hierarchy should use the same encoding.
+	 * @see KeyEncoding
+	 */
+	KeyEncoding keyEncoding() default KeyEncoding.STRING;
 }
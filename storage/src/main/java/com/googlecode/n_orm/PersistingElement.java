@@ -90,6 +90,7 @@ public interface PersistingElement extends Comparable<PersistingElement>, Serial
 	 * The identifier for this persisting element.
 	 * The identifier is computed from a string representation of all keys of this persisting element separated with {@link KeyManagement#KEY_SEPARATOR}.
 	 * Moreover, the identifier ends with {@link KeyManagement#KEY_END_SEPARATOR}.
+	 * Classes may also choose a {@link KeyEncoding#BINARY binary encoding} for keys (see {@link Persisting#keyEncoding()}).
 	 * @throws IllegalStateException in case all keys have not been set
 	 * @see com.googlecode.n_orm.conversion.ConversionTools#convertToString(Object)
 	 */
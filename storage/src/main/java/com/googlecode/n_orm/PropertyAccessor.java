@@ -0,0 +1,128 @@
+package com.googlecode.n_orm;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.googlecode.n_orm.conversion.ConversionTools;
+
+/**
+ * Reads and writes a field.
+ * Accessors are built once for all fields declared by a class, and made accessible at that time.
+ * Fields of a primitive type are compared to their default value without boxing.
+ * @see PropertyManagement#readValue(Object, Field)
+ * @see PropertyManagement#setValue(Object, Field, Object)
+ */
+final class PropertyAccessor {
+	private static enum Kind {OBJECT, BOOLEAN, BYTE, CHAR, SHORT, INT, LONG, FLOAT, DOUBLE}
+
+	private static final ConcurrentMap<Class<?>, Map<Field, PropertyAccessor>> accessors = new ConcurrentHashMap<Class<?>, Map<Field, PropertyAccessor>>();
+
+	/**
+	 * The accessor for the given field.
+	 */
+	static PropertyAccessor getAccessor(Field field) {
+		Class<?> clazz = field.getDeclaringClass();
+		Map<Field, PropertyAccessor> table = accessors.get(clazz);
+		if (table == null) {
+			table = new HashMap<Field, PropertyAccessor>();
+			for (Field f : clazz.getDeclaredFields()) {
+				table.put(f, new PropertyAccessor(f));
+			}
+			Map<Field, PropertyAccessor> existing = accessors.putIfAbsent(clazz, table);
+			if (existing != null)
+				table = existing;
+		}
+		PropertyAccessor ret = table.get(field);
+		return ret == null ? new PropertyAccessor(field) : ret;
+	}
+
+	private static Kind getKind(Class<?> type) {
+		if (!type.isPrimitive())
+			return Kind.OBJECT;
+		if (type.equals(boolean.class))
+			return Kind.BOOLEAN;
+		if (type.equals(byte.class))
+			return Kind.BYTE;
+		if (type.equals(char.class))
+			return Kind.CHAR;
+		if (type.equals(short.class))
+			return Kind.SHORT;
+		if (type.equals(int.class))
+			return Kind.INT;
+		if (type.equals(long.class))
+			return Kind.LONG;
+		if (type.equals(float.class))
+			return Kind.FLOAT;
+		if (type.equals(double.class))
+			return Kind.DOUBLE;
+		return Kind.OBJECT;
+	}
+
+	private final Field field;
+	private final Kind kind;
+	private volatile boolean defaultValueKnown = false;
+	private Object defaultValue;
+
+	private PropertyAccessor(Field field) {
+		this.field = field;
+		this.kind = getKind(field.getType());
+		try {
+			field.setAccessible(true);
+		} catch (SecurityException x) {}
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	public Object get(Object self) throws IllegalAccessException {
+		return this.field.get(self);
+	}
+
+	public void set(Object self, Object value) throws IllegalAccessException {
+		this.field.set(self, value);
+	}
+
+	/**
+	 * The default value for the field (see {@link ConversionTools#getDefaultValue(Class)}).
+	 */
+	public Object getDefaultValue() {
+		if (!this.defaultValueKnown) {
+			this.defaultValue = ConversionTools.getDefaultValue(this.field.getType());
+			this.defaultValueKnown = true;
+		}
+		return this.defaultValue;
+	}
+
+	/**
+	 * Whether the field of the given object holds the {@link #getDefaultValue() default value}.
+	 */
+	public boolean hasDefaultValue(Object self) throws IllegalAccessException {
+		Object def = this.getDefaultValue();
+		if (def == null)
+			return this.field.get(self) == null;
+		switch (this.kind) {
+		case BOOLEAN:
+			return this.field.getBoolean(self) == ((Boolean)def).booleanValue();
+		case BYTE:
+			return this.field.getByte(self) == ((Number)def).byteValue();
+		case CHAR:
+			return this.field.getChar(self) == ((Character)def).charValue();
+		case SHORT:
+			return this.field.getShort(self) == ((Number)def).shortValue();
+		case INT:
+			return this.field.getInt(self) == ((Number)def).intValue();
+		case LONG:
+			return this.field.getLong(self) == ((Number)def).longValue();
+		case FLOAT:
+			return Float.floatToIntBits(this.field.getFloat(self)) == Float.floatToIntBits(((Number)def).floatValue());
+		case DOUBLE:
+			return Double.doubleToLongBits(this.field.getDouble(self)) == Double.doubleToLongBits(((Number)def).doubleValue());
+		default:
+			return def.equals(this.field.get(self));
+		}
+	}
+}
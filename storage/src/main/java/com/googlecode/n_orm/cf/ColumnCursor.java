@@ -0,0 +1,100 @@
+package com.googlecode.n_orm.cf;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.storeapi.ColumnPagingStore;
+import com.googlecode.n_orm.storeapi.Constraint;
+import com.googlecode.n_orm.storeapi.MetaInformation;
+
+/**
+ * Iterates over the elements of a column family as found in the data store, reading them by pages
+ * (see {@link ColumnFamily#iterateInStore(String, int, boolean)}).
+ * Only the current page is kept in memory ; the column family is neither activated nor changed.
+ * Iteration can be resumed later on from the {@link #getLastKey() last read key}.
+ * Pages are read straight from the data store implementation, ignoring any cache or write retention in between.
+ * In case the data store is not a {@link ColumnPagingStore}, all remaining elements are read at once.
+ */
+public class ColumnCursor<T> implements Iterator<Map.Entry<String, T>> {
+	private final ColumnFamily<T> family;
+	private final ColumnPagingStore store;
+	private final int pageSize;
+	private final boolean reverse;
+	private String lastKey;
+	private Iterator<Map.Entry<String, byte[]>> page = null;
+	private boolean lastPage = false;
+
+	ColumnCursor(ColumnFamily<T> family, String startAfter, int pageSize, boolean reverse) {
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("Page size must be at least 1 ; got " + pageSize);
+		this.family = family;
+		this.pageSize = pageSize;
+		this.reverse = reverse;
+		this.lastKey = startAfter;
+		this.store = family.getStoreImplementation(ColumnPagingStore.class);
+	}
+
+	/**
+	 * The key of the last element returned by {@link #next()}, or the key iteration started after if no element was returned yet.
+	 * A new iteration can start after this key so as to resume this one.
+	 */
+	public String getLastKey() {
+		return this.lastKey;
+	}
+
+	public boolean isReverse() {
+		return this.reverse;
+	}
+
+	public int getPageSize() {
+		return this.pageSize;
+	}
+
+	private void fetchPage() throws DatabaseNotReachedException {
+		MetaInformation meta = new MetaInformation().forElement(this.family.getOwner()).forProperty(this.family.getProperty());
+		String table = this.family.getOwner().getTable(), id = this.family.getOwner().getIdentifier(), name = this.family.getName();
+		Map<String, byte[]> values;
+		if (this.store != null) {
+			values = this.store.getPage(meta, table, id, name, this.lastKey, this.pageSize, this.reverse);
+			this.lastPage = values == null || values.size() < this.pageSize;
+		} else {
+			Constraint c = null;
+			if (this.lastKey != null)
+				c = this.reverse ? new Constraint(null, this.lastKey) : new Constraint(this.lastKey + Character.MIN_VALUE, null);
+			values = c == null ? this.family.getOwner().getStore().get(meta, table, id, name) : this.family.getOwner().getStore().get(meta, table, id, name, c);
+			if (values != null) {
+				TreeMap<String, byte[]> sorted = new TreeMap<String, byte[]>(values);
+				if (this.reverse && this.lastKey != null)
+					sorted.remove(this.lastKey);
+				values = this.reverse ? sorted.descendingMap() : sorted;
+			}
+			this.lastPage = true;
+		}
+		this.page = values == null ? null : values.entrySet().iterator();
+	}
+
+	@Override
+	public boolean hasNext() {
+		while ((this.page == null || !this.page.hasNext()) && !this.lastPage)
+			this.fetchPage();
+		return this.page != null && this.page.hasNext();
+	}
+
+	@Override
+	public Map.Entry<String, T> next() {
+		if (!this.hasNext())
+			throw new NoSuchElementException();
+		Map.Entry<String, byte[]> raw = this.page.next();
+		this.lastKey = raw.getKey();
+		return new AbstractMap.SimpleImmutableEntry<String, T>(raw.getKey(), this.family.preparePut(raw.getKey(), raw.getValue()));
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -3,6 +3,8 @@ package com.googlecode.n_orm.cf;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -11,15 +13,21 @@ import java.util.TreeSet;
 
 import com.googlecode.n_orm.AddOnly;
 import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.FederatedTableManagement;
 import com.googlecode.n_orm.IncrementException;
 import com.googlecode.n_orm.IncrementManagement;
 import com.googlecode.n_orm.Incrementing;
+import com.googlecode.n_orm.LazyDecoding;
 import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.PropertyManagement;
+import com.googlecode.n_orm.StorageManagement;
 import com.googlecode.n_orm.consoleannotations.Continuator;
 import com.googlecode.n_orm.conversion.ConversionTools;
+import com.googlecode.n_orm.storeapi.ColumnCountingStore;
+import com.googlecode.n_orm.storeapi.ColumnPagingStore;
 import com.googlecode.n_orm.storeapi.Constraint;
 import com.googlecode.n_orm.storeapi.MetaInformation;
+import com.googlecode.n_orm.storeapi.MultiColumnStore;
 
 
 public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
@@ -31,11 +39,14 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 	protected final PersistingElement owner;
 
 	protected final Map<String, T> collection = new TreeMap<String, T>();
+	//Raw values of activated elements that were not decoded yet ; those are null in collection
+	private Map<String, byte[]> undecoded = null;
 
 	protected boolean allChanged;
 	protected Map<String, ChangeKind> changes;
 	protected final Map<String, Number> increments;
 	protected final boolean addOnly;
+	protected final boolean lazyDecoding;
 	
 	protected long lastActivation = -1;
 	
@@ -46,6 +57,7 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 		this.owner = null;
 		this.increments = null;
 		this.addOnly = false;
+		this.lazyDecoding = false;
 	}
 
 	public ColumnFamily(Class<T> clazz, Field property, String name, PersistingElement owner) {
@@ -55,6 +67,7 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 		this.name = name;
 		this.owner = owner;
 		this.addOnly = property != null && property.isAnnotationPresent(AddOnly.class);
+		this.lazyDecoding = property != null && property.isAnnotationPresent(LazyDecoding.class);
 		if (property != null && property.isAnnotationPresent(Incrementing.class)) {
 			if (!Number.class.isAssignableFrom(clazz))
 				throw new IllegalArgumentException("Only number types may be incrementing, which is not the case of elements of " + property);
@@ -99,6 +112,25 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 		return this.addOnly || this.increments != null;
 	}
 
+	/**
+	 * Whether instances of the given class cannot change once created,
+	 * so that an element cannot change without being put again.
+	 */
+	static boolean isImmutable(Class<?> clazz) {
+		return clazz.isPrimitive() || clazz.isEnum()
+				|| String.class.equals(clazz) || Boolean.class.equals(clazz) || Character.class.equals(clazz)
+				|| Byte.class.equals(clazz) || Short.class.equals(clazz) || Integer.class.equals(clazz)
+				|| Long.class.equals(clazz) || Float.class.equals(clazz) || Double.class.equals(clazz)
+				|| PersistingElement.class.isAssignableFrom(clazz);
+	}
+
+	/**
+	 * Whether values are only converted when first read (see {@link LazyDecoding}).
+	 */
+	public boolean isLazyDecoding() {
+		return this.lazyDecoding;
+	}
+
 	public boolean isActivated() {
 		return this.lastActivation > 0;
 	}
@@ -151,13 +183,21 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 
 	public void rebuild(Map<String, byte[]> rawData) throws DatabaseNotReachedException {
 		this.collection.clear();
+		this.undecoded = null;
 		this.clearChanges();
 		String id = this.owner.getIdentifier();
 		assert id != null;
-		if (rawData != null)
+		if (rawData != null) {
+			if (this.lazyDecoding && !rawData.isEmpty())
+				this.undecoded = new HashMap<String, byte[]>();
 			for (Entry<String, byte[]> entry : rawData.entrySet()) {
-				this.collection.put(entry.getKey(), this.preparePut(entry.getKey(), entry.getValue()));
+				if (this.undecoded != null) {
+					this.collection.put(entry.getKey(), null);
+					this.undecoded.put(entry.getKey(), entry.getValue());
+				} else
+					this.collection.put(entry.getKey(), this.preparePut(entry.getKey(), entry.getValue()));
 			}
+		}
 		setActivated();
 		this.storeToPOJO();
 		assert ! this.hasChanged();
@@ -167,6 +207,33 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 		return ConversionTools.convert(this.clazz, rep);
 	}
 
+	/**
+	 * Converts the raw value for an activated element in case it was not decoded yet.
+	 * @return the decoded value, or null in case the element was already decoded or is not activated
+	 */
+	protected T decode(String key) {
+		if (this.undecoded == null)
+			return null;
+		byte[] rep = this.undecoded.remove(key);
+		if (rep == null)
+			return null;
+		T ret = this.preparePut(key, rep);
+		this.collection.put(key, ret);
+		return ret;
+	}
+
+	/**
+	 * Converts all activated elements that were not decoded yet.
+	 */
+	protected void decodeAll() {
+		if (this.undecoded == null)
+			return;
+		for (String key : this.undecoded.keySet().toArray(new String[this.undecoded.size()])) {
+			this.decode(key);
+		}
+		this.undecoded = null;
+	}
+
 	/**
 	 * Returns the number of activated elements.
 	 */
@@ -175,13 +242,43 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 		return this.collection.size();
 	}
 	
-//	Given up ; not efficient way to do that in HBase 0.20.6
-//	/**
-//	 * Returns the number of elements in the data store.
-//	 */
-//	public int sizeInStore() throws DatabaseNotReachedException {
-//		return this.getOwner().getStore().count(this.ownerTable, this.getOwner().getIdentifier(), this.getName());
-//	}
+	/**
+	 * Returns the number of elements in the data store.
+	 * Changes that are not stored yet are ignored.
+	 * In case the data store is a {@link ColumnCountingStore}, elements are counted by the data store implementation,
+	 * ignoring any cache or write retention in between ; otherwise, elements are read from the data store so as to be counted.
+	 */
+	public long sizeInStore() throws DatabaseNotReachedException {
+		return this.sizeInStore(null);
+	}
+
+	/**
+	 * Returns the number of elements in the data store whose key satisfies the given constraint.
+	 * @see #sizeInStore()
+	 */
+	public long sizeInStore(Constraint c) throws DatabaseNotReachedException {
+		this.owner.checkIsValid();
+		MetaInformation meta = new MetaInformation().forElement(this.owner).forProperty(this.property);
+		ColumnCountingStore counter = this.getStoreImplementation(ColumnCountingStore.class);
+		if (counter != null)
+			return counter.count(meta, this.owner.getTable(), this.owner.getIdentifier(), this.name, c);
+		Map<String, byte[]> elements = c == null ?
+					this.owner.getStore().get(meta, this.owner.getTable(), this.owner.getIdentifier(), this.name)
+				:	this.owner.getStore().get(meta, this.owner.getTable(), this.owner.getIdentifier(), this.name, c);
+		return elements == null ? 0 : elements.size();
+	}
+	
+	/**
+	 * The implementation of the data store of the owner in case it implements the given interface.
+	 * @return null in case the store does not implement the interface, or in case the owner is stored in federated tables
+	 *  as the store then needs to be called through n-orm so that the proper table is found
+	 */
+	<S> S getStoreImplementation(Class<S> clazz) {
+		Object store = StorageManagement.getStoreImplementation(this.owner.getStore());
+		if (!clazz.isInstance(store) || FederatedTableManagement.isFederated(this.owner.getClass()))
+			return null;
+		return clazz.cast(store);
+	}
 
 	/**
 	 * Checks whether this column family is empty.
@@ -216,6 +313,8 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 	public void putElement(String key, T element) throws IncrementException {
 		if (key == null || element == null)
 			throw new NullPointerException();
+		//The previous value is needed to compute the change
+		this.decode(key);
 		T old = this.collection.put(key, element);
 		if (this.increments != null) {
 			Number oVal = (Number) old;
@@ -252,6 +351,8 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 			throw new IllegalStateException("This collection does not accepts removal.");
 		if (this.collection.containsKey(key)) {
 			this.collection.remove(key);
+			if (this.undecoded != null)
+				this.undecoded.remove(key);
 			assert this.changes != null && this.increments == null;
 			this.changes.put(key, ChangeKind.DELETE);
 		}
@@ -269,6 +370,9 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 		} catch (Exception x) {
 			return null;
 		}
+		if (ret != null)
+			return ret;
+		ret = this.decode(key);
 		if (ret != null)
 			return ret;
 		if (this.changes != null && this.changes.containsKey(key)) {
@@ -289,7 +393,7 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 	public T getFromStore(String key) throws DatabaseNotReachedException {
 		//First, tries from the cache
 		if (this.collection.containsKey(key))
-			return this.collection.get(key);
+			return this.getElement(key);
 		if (this.changes != null && this.changes.containsKey(key)) {
 			assert this.changes.get(key).equals(ChangeKind.DELETE);
 			return null;
@@ -307,6 +411,73 @@ public abstract class ColumnFamily<T> implements Comparable<ColumnFamily<T>> {
 		return element;
 	}
 
+	/**
+	 * Iterates over the elements of this column family as found in the data store, reading them by pages of pageSize elements.
+	 * Only the current page is held in memory, so that huge column families can be browsed ;
+	 * this column family is neither activated nor changed, and changes that are not stored yet are ignored.
+	 * Keys are iterated in their natural order, or in reverse order.
+	 * @param startAfter the key after which iteration starts (excluded), e.g. the {@link ColumnCursor#getLastKey() last key} of a previous iteration ; null to start from the first (or last in reverse order) key
+	 * @param pageSize the maximum number of elements to be read at once from the data store
+	 * @param reverse whether keys should be iterated in reverse order
+	 * @see ColumnPagingStore
+	 */
+	public ColumnCursor<T> iterateInStore(String startAfter, int pageSize, boolean reverse) {
+		this.owner.checkIsValid();
+		return new ColumnCursor<T>(this, startAfter, pageSize, reverse);
+	}
+
+	/**
+	 * Finds elements according to their keys.
+	 * Elements that are not in the cache are read from the data store ;
+	 * in case the data store is a {@link MultiColumnStore}, they are requested at once to its implementation, ignoring any cache in between.
+	 * Found elements go into the cache.
+	 * @return found elements mapped according to their keys ; missing elements are not mapped
+	 */
+	public Map<String, T> getFromStore(Collection<String> keys) throws DatabaseNotReachedException {
+		Map<String, T> ret = new TreeMap<String, T>();
+		Set<String> toBeRead = new TreeSet<String>();
+		for (String key : keys) {
+			//First, tries from the cache
+			if (this.collection.containsKey(key)) {
+				ret.put(key, this.getElement(key));
+			} else if (this.changes != null && this.changes.containsKey(key)) {
+				assert this.changes.get(key).equals(ChangeKind.DELETE);
+			} else {
+				assert this.increments == null || !this.increments.containsKey(key);
+				toBeRead.add(key);
+			}
+		}
+		if (toBeRead.isEmpty())
+			return ret;
+		
+		MetaInformation meta = new MetaInformation().forElement(this.owner).forProperty(this.property);
+		MultiColumnStore store = this.getStoreImplementation(MultiColumnStore.class);
+		Map<String, byte[]> found;
+		if (store != null) {
+			found = store.get(meta, this.owner.getTable(), this.owner.getIdentifier(), this.name, toBeRead);
+		} else {
+			found = new TreeMap<String, byte[]>();
+			for (String key : toBeRead) {
+				byte[] res = this.owner.getStore().get(meta, this.owner.getTable(), this.owner.getIdentifier(), this.name, key);
+				if (res != null)
+					found.put(key, res);
+			}
+		}
+		if (found == null || found.isEmpty())
+			return ret;
+		
+		Object pojo = this.getPOJO(true);
+		for (Entry<String, byte[]> res : found.entrySet()) {
+			T element = this.preparePut(res.getKey(), res.getValue());
+			if (this.changes != null)
+				this.changes.remove(res.getKey());
+			this.collection.put(res.getKey(), element);
+			this.addToPOJO(pojo, res.getKey(), element);
+			ret.put(res.getKey(), element);
+		}
+		return ret;
+	}
+
 	@Continuator
 	public Set<String> changedKeySet() {
 		if (this.allChanged ) return this.getKeys();
@@ -1,5 +1,7 @@
 package com.googlecode.n_orm.cf;
 
+import java.io.NotSerializableException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
@@ -16,15 +18,19 @@ import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.consoleannotations.Continuator;
 import com.googlecode.n_orm.conversion.ConversionTools;
 
-public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T> {
+public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>, Serializable {
+	private static final long serialVersionUID = 4512203164788309523L;
 	protected final Class<K> keyClazz;
 	protected final boolean keyIsString;
+	//Whether values cannot change without being put again, so that only changed keys of a TrackedMap need to be checked
+	private final boolean immutableValues;
 	private Set<Map.Entry<K, T>> entries = null;
 	private Set<K> keys = null;
 
 	public MapColumnFamily() {
 		keyClazz = null;
 		keyIsString = false;
+		immutableValues = false;
 	}
 
 	public MapColumnFamily(Class<K> keyClazz, Class<T> valueClazz,
@@ -32,17 +38,30 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 		super(valueClazz, property, name, owner);
 		this.keyClazz = keyClazz;
 		this.keyIsString = this.keyClazz.equals(String.class);
+		this.immutableValues = isImmutable(valueClazz);
 	}
 
 	@Override
 	public Serializable getSerializableVersion() {
-		HashMap<K, T> ret = new HashMap<K, T>();
+		TrackedMap<K, T> ret = new TrackedMap<K, T>();
 		for (Map.Entry<K, T> kv : this.entrySet()) {
 			ret.put(kv.getKey(), kv.getValue());
 		}
+		ret.clearChangedKeys();
 		return ret;
 	}
 
+	/**
+	 * A {@link com.googlecode.n_orm.LazyDecoding lazily decoded} property holds its column family ;
+	 * it is serialized as the {@link #getSerializableVersion() serializable version} of the column family,
+	 * just as a property that is not lazily decoded.
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		if (!this.isLazyDecoding())
+			throw new NotSerializableException(this.getClass().getName());
+		return this.getSerializableVersion();
+	}
+
 	protected String toKey(K key) {
 		return this.keyIsString ? (String) key : ConversionTools
 				.convertToString(key, this.keyClazz);
@@ -89,6 +108,7 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 	@Override
 	@Continuator
 	public boolean containsValue(Object value) {
+		this.decodeAll();
 		return this.collection.containsValue(value);
 	}
 
@@ -305,7 +325,8 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 
 								@Override
 								public T getValue() {
-									return entry.getValue();
+									T ret = entry.getValue();
+									return ret == null ? MapColumnFamily.this.decode(entry.getKey()) : ret;
 								}
 
 								@Override
@@ -456,6 +477,24 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 		}
 	}
 
+	/**
+	 * Gets values for the given keys.
+	 * Values that are unknown in the cache are requested at once to the data store (see {@link #getFromStore(Collection)}).
+	 * Values found in the data store are added as activated elements to the map.
+	 * @return found values mapped according to their keys ; missing keys are not mapped
+	 */
+	public Map<K, T> getAllFromStore(Collection<? extends K> keys) throws DatabaseNotReachedException {
+		Set<String> sKeys = new TreeSet<String>();
+		for (K key : keys) {
+			sKeys.add(this.toKey(key));
+		}
+		Map<K, T> ret = new HashMap<K, T>();
+		for (Map.Entry<String, T> element : this.getFromStore(sKeys).entrySet()) {
+			ret.put(this.fromKey(element.getKey()), element.getValue());
+		}
+		return ret;
+	}
+
 	@Override
 	@Continuator
 	public T put(K key, T value) {
@@ -485,6 +524,7 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 	@Override
 	@Continuator
 	public Collection<T> values() {
+		this.decodeAll();
 		return this.collection.values();
 	}
 
@@ -501,8 +541,28 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 		super.activate(this.toKey((K) from), this.toKey((K) to));
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	protected void updateFromPOJO(Object pojo) {
+		if (pojo instanceof TrackedMap<?, ?>) {
+			TrackedMap<K, T> tracked = (TrackedMap<K, T>) pojo;
+			if (this.immutableValues && tracked.getChangedKeys() != null) {
+				for (Object changed : tracked.getChangedKeys()) {
+					String key = this.toKey((K) changed);
+					if (tracked.containsKey(changed)) {
+						T element = tracked.get(changed);
+						T known = this.getElement(key);
+						if (known == null || this.hasChanged(key, known, element))
+							this.putElement(key, element);
+					} else if (super.containsKey(key)) {
+						this.removeKey(key);
+					}
+				}
+				tracked.clearChangedKeys();
+				return;
+			}
+		}
+
 		Set<String> keys = new TreeSet<String>(this.getKeys());
 
 		@SuppressWarnings("unchecked")
@@ -522,6 +582,9 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 		for (String key : keys) {
 			this.removeKey(key);
 		}
+
+		if (pojo instanceof TrackedMap<?, ?>)
+			((TrackedMap<?, ?>) pojo).clearChangedKeys();
 	}
 
 	@Override
@@ -531,6 +594,8 @@ public class MapColumnFamily<K, T> extends ColumnFamily<T> implements Map<K, T>
 
 		pojoM.clear();
 		pojoM.putAll(this);
+		if (pojoM instanceof TrackedMap<?, ?>)
+			((TrackedMap<?, ?>) pojoM).clearChangedKeys();
 	}
 
 	@Override
@@ -4,7 +4,6 @@ import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
@@ -63,9 +62,12 @@ public class SetColumnFamily<T> extends ColumnFamily<byte[]> implements Set<T> {
 	 * SetColumnFamily inherits ColumnFamily<byte[]> so {@link #getClazz()} returns byte[].class ; this method returns the actual type of expected elements.
 	 */
 	private final Class<T> setElementClazz;
+	//Whether elements cannot change once added, so that only changed elements of a TrackedSet need to be checked
+	private final boolean immutableElements;
 	
 	public SetColumnFamily() {
 		setElementClazz = null;
+		immutableElements = false;
 	}
 
 	public SetColumnFamily(Class<T> clazz, Field property,
@@ -77,6 +79,7 @@ public class SetColumnFamily<T> extends ColumnFamily<byte[]> implements Set<T> {
 			PersistingElement owner) {
 		super(byte[].class, property, name, owner);
 		this.setElementClazz = clazz;
+		this.immutableElements = isImmutable(clazz);
 	}
 	
 	public Class<T> getSetElementClazz() {
@@ -85,7 +88,9 @@ public class SetColumnFamily<T> extends ColumnFamily<byte[]> implements Set<T> {
 
 	@Override
 	public Serializable getSerializableVersion() {
-		return new HashSet<T>(this);
+		TrackedSet<T> ret = new TrackedSet<T>(this);
+		ret.clearChangedElements();
+		return ret;
 	}
 
 	protected String getIndex(T object) {
@@ -165,6 +170,25 @@ public class SetColumnFamily<T> extends ColumnFamily<byte[]> implements Set<T> {
 		return this.getFromStore(id) != null;
 	}
 
+	/**
+	 * Checks whether those elements exist in the family.
+	 * Elements that are unknown in the cache are requested at once to the data store (see {@link #getFromStore(Collection)}).
+	 * Elements that exist are added as activated elements to the collection.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean containsAllInStore(Collection<?> c) throws DatabaseNotReachedException {
+		Set<String> ids = new TreeSet<String>();
+		for (Object o : c) {
+			try {
+				ids.add(this.getIndex((T)o));
+			} catch (ClassCastException x) {
+				return false;
+			}
+		}
+		
+		return this.getFromStore(ids).size() == ids.size();
+	}
+
 	/**
 	 * Removes an element to the column family.
 	 * For this element not to appear anymore in the datastore, the owner object must be called the {@link PersistingElement#store()} method.
@@ -325,12 +349,27 @@ public class SetColumnFamily<T> extends ColumnFamily<byte[]> implements Set<T> {
 	}
 
 
+	@SuppressWarnings("unchecked")
 	@Override
 	protected void updateFromPOJO(Object pojo) {
+		Set<T> pojoS = (Set<T>)pojo;
+		if (this.immutableElements && pojo instanceof TrackedSet<?> && ((TrackedSet<?>) pojo).getChangedElements() != null) {
+			TrackedSet<?> tracked = (TrackedSet<?>) pojo;
+			for (Object changed : tracked.getChangedElements()) {
+				String key = this.getIndex((T) changed);
+				if (tracked.contains(changed)) {
+					if (!this.containsKey(key))
+						this.add((T) changed);
+				} else if (this.containsKey(key)) {
+					this.removeKey(key);
+				}
+			}
+			tracked.clearChangedElements();
+			return;
+		}
+
 		Set<String> keys = new TreeSet<String>(this.getKeys());
 		
-		@SuppressWarnings("unchecked")
-		Set<T> pojoS = (Set<T>)pojo;
 		for (T element : pojoS) {
 			String key = this.getIndex(element);
 			if (!keys.remove(key)) {
@@ -346,6 +385,9 @@ public class SetColumnFamily<T> extends ColumnFamily<byte[]> implements Set<T> {
 		for (String key : keys) {
 			this.removeKey(key);
 		}
+
+		if (pojo instanceof TrackedSet<?>)
+			((TrackedSet<?>) pojo).clearChangedElements();
 	}
 
 	@Override
@@ -355,6 +397,8 @@ public class SetColumnFamily<T> extends ColumnFamily<byte[]> implements Set<T> {
 		
 		pojoS.clear();
 		pojoS.addAll(this);
+		if (pojoS instanceof TrackedSet<?>)
+			((TrackedSet<?>) pojoS).clearChangedElements();
 	}
 
 	@Override
@@ -0,0 +1,217 @@
+package com.googlecode.n_orm.cf;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link HashMap}-backed map that records the keys that are put or removed.
+ * This is the map that is used for a {@link java.util.Map} column family property
+ * in case it is not initialized, and it can also be used to initialize such a property.
+ * When storing a persisting element, only recorded keys are compared to the column family
+ * (see {@link MapColumnFamily}), so that the cost of storing depends on the number of changes
+ * rather than on the size of the map.
+ * Changes are not recorded after the map is deserialized until it is synchronized again with its column family.
+ */
+public class TrackedMap<K, V> extends AbstractMap<K, V> implements Serializable {
+	private static final long serialVersionUID = -6183424873217046521L;
+
+	private final HashMap<K, V> map;
+	//Keys changed since the last synchronization with the column family ; null if unknown
+	private transient Set<Object> changedKeys = null;
+	private transient Set<Map.Entry<K, V>> entries = null;
+
+	public TrackedMap() {
+		this.map = new HashMap<K, V>();
+	}
+
+	public TrackedMap(Map<? extends K, ? extends V> m) {
+		this.map = new HashMap<K, V>(m);
+	}
+
+	private void changed(Object key) {
+		if (this.changedKeys != null)
+			this.changedKeys.add(key);
+	}
+
+	/**
+	 * The keys that were put or removed since the last call to {@link #clearChangedKeys()}.
+	 * @return null in case changes are not known
+	 */
+	Set<Object> getChangedKeys() {
+		return this.changedKeys;
+	}
+
+	/**
+	 * Starts recording changes.
+	 */
+	void clearChangedKeys() {
+		if (this.changedKeys == null)
+			this.changedKeys = new HashSet<Object>();
+		else
+			this.changedKeys.clear();
+	}
+
+	@Override
+	public int size() {
+		return this.map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.map.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return this.map.containsValue(value);
+	}
+
+	@Override
+	public V get(Object key) {
+		return this.map.get(key);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		this.changed(key);
+		return this.map.put(key, value);
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (!this.map.containsKey(key))
+			return null;
+		this.changed(key);
+		return this.map.remove(key);
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+			this.put(e.getKey(), e.getValue());
+		}
+	}
+
+	@Override
+	public void clear() {
+		if (this.changedKeys != null)
+			this.changedKeys.addAll(this.map.keySet());
+		this.map.clear();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (this.entries == null) {
+			this.entries = new AbstractSet<Map.Entry<K,V>>() {
+
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					final Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+					return new Iterator<Map.Entry<K,V>>() {
+						private Map.Entry<K, V> current = null;
+
+						@Override
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+
+						@Override
+						public Map.Entry<K, V> next() {
+							final Map.Entry<K, V> entry = it.next();
+							this.current = entry;
+							return new Map.Entry<K, V>() {
+
+								@Override
+								public K getKey() {
+									return entry.getKey();
+								}
+
+								@Override
+								public V getValue() {
+									return entry.getValue();
+								}
+
+								@Override
+								public V setValue(V value) {
+									changed(entry.getKey());
+									return entry.setValue(value);
+								}
+
+								@Override
+								public boolean equals(Object obj) {
+									return entry.equals(obj);
+								}
+
+								@Override
+								public int hashCode() {
+									return entry.hashCode();
+								}
+
+								@Override
+								public String toString() {
+									return entry.toString();
+								}
+							};
+						}
+
+						@Override
+						public void remove() {
+							it.remove();
+							changed(this.current.getKey());
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return map.size();
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return map.entrySet().contains(o);
+				}
+
+				@Override
+				public boolean remove(Object o) {
+					if (!map.entrySet().remove(o))
+						return false;
+					changed(((Map.Entry<?, ?>) o).getKey());
+					return true;
+				}
+
+				@Override
+				public void clear() {
+					TrackedMap.this.clear();
+				}
+			};
+		}
+		return this.entries;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || this.map.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.map.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return this.map.toString();
+	}
+}
@@ -0,0 +1,133 @@
+package com.googlecode.n_orm.cf;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A {@link HashSet}-backed set that records the elements that are added or removed.
+ * This is the set that is used for a {@link java.util.Set} column family property
+ * in case it is not initialized, and it can also be used to initialize such a property.
+ * When storing a persisting element, only recorded elements are compared to the column family
+ * (see {@link SetColumnFamily}), so that the cost of storing depends on the number of changes
+ * rather than on the size of the set.
+ * Changes are not recorded after the set is deserialized until it is synchronized again with its column family.
+ */
+public class TrackedSet<T> extends AbstractSet<T> implements Serializable {
+	private static final long serialVersionUID = 2546110263866374519L;
+
+	private final HashSet<T> set;
+	//Elements changed since the last synchronization with the column family ; null if unknown
+	private transient Set<Object> changedElements = null;
+
+	public TrackedSet() {
+		this.set = new HashSet<T>();
+	}
+
+	public TrackedSet(Set<? extends T> s) {
+		this.set = new HashSet<T>(s);
+	}
+
+	private void changed(Object element) {
+		if (this.changedElements != null)
+			this.changedElements.add(element);
+	}
+
+	/**
+	 * The elements that were added or removed since the last call to {@link #clearChangedElements()}.
+	 * @return null in case changes are not known
+	 */
+	Set<Object> getChangedElements() {
+		return this.changedElements;
+	}
+
+	/**
+	 * Starts recording changes.
+	 */
+	void clearChangedElements() {
+		if (this.changedElements == null)
+			this.changedElements = new HashSet<Object>();
+		else
+			this.changedElements.clear();
+	}
+
+	@Override
+	public int size() {
+		return this.set.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.set.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return this.set.contains(o);
+	}
+
+	@Override
+	public boolean add(T e) {
+		if (!this.set.add(e))
+			return false;
+		this.changed(e);
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!this.set.remove(o))
+			return false;
+		this.changed(o);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		if (this.changedElements != null)
+			this.changedElements.addAll(this.set);
+		this.set.clear();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		final Iterator<T> it = this.set.iterator();
+		return new Iterator<T>() {
+			private T current = null;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public T next() {
+				this.current = it.next();
+				return this.current;
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+				changed(this.current);
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || this.set.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.set.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return this.set.toString();
+	}
+}
@@ -1,6 +1,7 @@
 package com.googlecode.n_orm.conversion;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.StringTokenizer;
 
 import com.googlecode.n_orm.KeyManagement;
@@ -15,6 +16,111 @@ public class ArrayConverter extends Converter<Object> {
 		return IntBytesLength;
 	}
 
+	/**
+	 * The primitive type stored by a packed array with the given component type ;
+	 * null if arrays of this component type cannot be packed.
+	 */
+	private static Class<?> getPackedType(Class<?> component) {
+		if (component.isPrimitive())
+			return component;
+		if (component.equals(Integer.class))
+			return int.class;
+		if (component.equals(Long.class))
+			return long.class;
+		if (component.equals(Short.class))
+			return short.class;
+		if (component.equals(Character.class))
+			return char.class;
+		if (component.equals(Float.class))
+			return float.class;
+		if (component.equals(Double.class))
+			return double.class;
+		if (component.equals(Boolean.class))
+			return boolean.class;
+		return null;
+	}
+	
+	private static int getPackedWidth(Class<?> primitive) {
+		if (primitive.equals(int.class) || primitive.equals(float.class))
+			return 4;
+		if (primitive.equals(long.class) || primitive.equals(double.class))
+			return 8;
+		if (primitive.equals(short.class) || primitive.equals(char.class))
+			return 2;
+		return 1;
+	}
+
+	/**
+	 * Stores an array of primitive values as its length followed by all values with a fixed width.
+	 * The length is stored as its bitwise complement, which is negative,
+	 * so that a packed array cannot be confused with an array stored element by element, which starts with its (positive) length.
+	 */
+	private static byte[] toPackedBytes(Object array, Class<?> primitive) {
+		int length = Array.getLength(array);
+		ByteBuffer ret = ByteBuffer.allocate(getIntBytesLength() + length*getPackedWidth(primitive));
+		ret.putInt(~length);
+		if (primitive.equals(int.class))
+			ret.asIntBuffer().put((int[])array);
+		else if (primitive.equals(long.class))
+			ret.asLongBuffer().put((long[])array);
+		else if (primitive.equals(short.class))
+			ret.asShortBuffer().put((short[])array);
+		else if (primitive.equals(char.class))
+			ret.asCharBuffer().put((char[])array);
+		else if (primitive.equals(float.class))
+			ret.asFloatBuffer().put((float[])array);
+		else if (primitive.equals(double.class))
+			ret.asDoubleBuffer().put((double[])array);
+		else
+			for (boolean b : (boolean[])array) {
+				ret.put(b ? (byte)-1 : (byte)0);
+			}
+		return ret.array();
+	}
+
+	/**
+	 * Reads an array stored by {@link #toPackedBytes(Object, Class)}.
+	 * @param length the length of the array, as read from its header
+	 */
+	private static Object fromPackedBytes(byte[] rep, int length, Class<?> component) {
+		Class<?> primitive = getPackedType(component);
+		if (primitive == null)
+			throw new IllegalArgumentException("Cannot read an array of " + component + " from an array of primitive values");
+		if (rep.length != getIntBytesLength() + (long)length*getPackedWidth(primitive))
+			throw new IllegalArgumentException("Cannot read an array of " + length + " " + primitive + " from " + rep.length + " bytes");
+		
+		ByteBuffer buf = ByteBuffer.wrap(rep, getIntBytesLength(), rep.length-getIntBytesLength());
+		Object ret = Array.newInstance(primitive, length);
+		if (primitive.equals(int.class))
+			buf.asIntBuffer().get((int[])ret);
+		else if (primitive.equals(long.class))
+			buf.asLongBuffer().get((long[])ret);
+		else if (primitive.equals(short.class))
+			buf.asShortBuffer().get((short[])ret);
+		else if (primitive.equals(char.class))
+			buf.asCharBuffer().get((char[])ret);
+		else if (primitive.equals(float.class))
+			buf.asFloatBuffer().get((float[])ret);
+		else if (primitive.equals(double.class))
+			buf.asDoubleBuffer().get((double[])ret);
+		else {
+			boolean[] bools = (boolean[])ret;
+			for (int i = 0; i < length; ++i) {
+				bools[i] = buf.get() != 0;
+			}
+		}
+		
+		if (component.isPrimitive())
+			return ret;
+		
+		//Expecting wrappers
+		Object boxed = Array.newInstance(component, length);
+		for (int i = 0; i < length; ++i) {
+			Array.set(boxed, i, Array.get(ret, i));
+		}
+		return boxed;
+	}
+
 	public ArrayConverter() {
 		super(Object.class);
 	}
@@ -68,6 +174,8 @@ public class ArrayConverter extends Converter<Object> {
 		System.arraycopy(rep, 0, tmpBytes, 0, getIntBytesLength());
 		int pos = getIntBytesLength();
 		int length = ConversionTools.intConverter.fromBytes(tmpBytes, int.class), objLength;
+		if (length < 0)
+			return fromPackedBytes(rep, ~length, clazz);
 		Object ret = Array.newInstance(type.getComponentType(), length);
 		for (int i = 0; i < length; ++i) {
 			tmpBytes = new byte [getIntBytesLength()];
@@ -91,6 +199,10 @@ public class ArrayConverter extends Converter<Object> {
 		if(object instanceof byte[])
 			return (byte[]) object;
 		
+		Class<?> component = object.getClass().getComponentType();
+		if (component.isPrimitive())
+			return toPackedBytes(object, component);
+		
 		int objLength = Array.getLength(object);
 		if (objLength == 0)
 			return ConversionTools.intConverter.toBytes(0);
@@ -1,9 +1,10 @@
 package com.googlecode.n_orm.conversion;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.googlecode.n_orm.PropertyManagement;
 
@@ -19,21 +20,32 @@ public class ConversionTools {
 	static final LongConverter longConverter;
 	static final IntegerConverter intConverter;
 	static final ByteConverter byteConverter;
+	static final ShortConverter shortConverter;
 
-	private static final Map<Class<?>, Set<Converter<?>>> knownConverters = new HashMap<Class<?>, Set<Converter<?>>>();
+	/**
+	 * For each conversion kind, converters that can convert a given class, in the order of {@link #converters}.
+	 * For conversions to bytes or strings, the class is the class of the converted object ;
+	 * otherwise, it is the expected class.
+	 */
+	private static final List<ConcurrentMap<Class<?>, Converter<?>[]>> knownConverters;
 
 	static {
 		stringConverter = new StringConverter();
 		longConverter = new LongConverter();
 		intConverter = new IntegerConverter();
 		byteConverter = new ByteConverter();
+		shortConverter = new ShortConverter();
 		converters = new Converter<?>[] { stringConverter,
 				new PersistingConverter(), new EnumConverter(),
 				new DateConverter(), new BooleanConverter(),
 				new CharacterConverter(), byteConverter,
-				new ShortConverter(), intConverter,
+				shortConverter, intConverter,
 				longConverter, new FloatConverter(),
 				new DoubleConverter(), new ArrayConverter(), new KeyedElementConverter() };
+		knownConverters = new ArrayList<ConcurrentMap<Class<?>, Converter<?>[]>>(ConversionKind.values().length);
+		for (int i = 0; i < ConversionKind.values().length; ++i) {
+			knownConverters.add(new ConcurrentHashMap<Class<?>, Converter<?>[]>());
+		}
 	}
 
 	private static boolean test(Converter<?> conv, Object o, Class<?> type,
@@ -82,49 +94,85 @@ public class ConversionTools {
 		}
 	}
 	
-	public static boolean canConvert(Class<?> clazz) {
-		if (clazz == null)
-			return false;
-		
-		if (knownConverters.containsKey(clazz))
+	/**
+	 * Whether the converter can perform the conversion according to the converted type only.
+	 * For conversions to bytes or strings, result only depends on the class of the converted object.
+	 */
+	private static boolean testType(Converter<?> conv, Object o, Class<?> type,
+			ConversionKind kind) {
+		switch (kind) {
+		case FromBytes:
+		case FromString:
+		case FromStringReverted:
+		case Default:
+			return conv.canConvert(type);
+		default:
+			return test(conv, o, type, kind);
+		}
+	}
+
+	/**
+	 * Whether the converter can perform the conversion according to the converted representation,
+	 * once {@link #testType(Converter, Object, Class, ConversionKind) type was checked}.
+	 */
+	private static boolean testRepresentation(Converter<?> conv, Object o,
+			ConversionKind kind) {
+		switch (kind) {
+		case FromBytes:
+			return conv.canConvert((byte[]) o);
+		case FromString:
+		case FromStringReverted:
+			return conv.canConvert((String) o);
+		default:
 			return true;
-		
-		for (Converter<?> conv : converters) {
-			if (conv.canConvert(clazz)) {
-				registerConverter(clazz, conv);
-				return true;
+		}
+	}
+
+	/**
+	 * Converters able to perform the given kind of conversion for the given class, in the order of {@link #converters}.
+	 * Converters are searched once per class and conversion kind.
+	 */
+	private static Converter<?>[] getConverters(Class<?> clazz, Object o, Class<?> type, ConversionKind kind) {
+		ConcurrentMap<Class<?>, Converter<?>[]> known = knownConverters.get(kind.ordinal());
+		Converter<?>[] ret = known.get(clazz);
+		if (ret == null) {
+			List<Converter<?>> found = new ArrayList<Converter<?>>(1);
+			for (Converter<?> conv : converters) {
+				if (testType(conv, o, type, kind))
+					found.add(conv);
 			}
+			ret = found.toArray(new Converter<?>[found.size()]);
+			Converter<?>[] existing = known.putIfAbsent(clazz, ret);
+			if (existing != null)
+				ret = existing;
 		}
+		return ret;
+	}
+	
+	public static boolean canConvert(Class<?> clazz) {
+		if (clazz == null)
+			return false;
 		
-		return false;
+		return getConverters(clazz, null, clazz, ConversionKind.Default).length > 0;
 	}
 
 	private static Object convertInternal(Object o, Class<?> type,
 			ConversionKind kind, String errorMessage) {
-		Class<?> clazz = type == null ? o.getClass() : type;
-		if (knownConverters.containsKey(clazz)) {
-			for (Converter<?> conv : knownConverters.get(clazz)) {
-				if (test(conv, o, type, kind))
-					return convert(conv, o, type, kind);
-			}
+		Class<?> clazz;
+		switch (kind) {
+		case ToBytes:
+		case ToString:
+		case ToStringReverted:
+			clazz = o.getClass();
+			break;
+		default:
+			clazz = type;
 		}
-
-		for (Converter<?> conv : converters)
-			if (test(conv, o, type, kind)) {
-				Object ret = convert(conv, o, type, kind);
-				registerConverter(clazz, conv);
-				return ret;
-			}
-		throw new IllegalArgumentException(errorMessage);
-	}
-
-	private static void registerConverter(Class<?> clazz, Converter<?> conv) {
-		Set<Converter<?>> cachedConverters = knownConverters.get(clazz);
-		if (cachedConverters == null) {
-			cachedConverters = new HashSet<Converter<?>>();
-			knownConverters.put(clazz, cachedConverters);
+		for (Converter<?> conv : getConverters(clazz, o, type, kind)) {
+			if (testRepresentation(conv, o, kind))
+				return convert(conv, o, type, kind);
 		}
-		cachedConverters.add(conv);
+		throw new IllegalArgumentException(errorMessage);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -202,6 +250,103 @@ public class ConversionTools {
 				"Cannot create a reverted string representation for " + o);
 	}
 	
+	/**
+	 * The natural converter for the given wrapper or primitive type ; null if none.
+	 */
+	private static NaturalConverter<?> getNaturalConverter(Class<?> type) {
+		if (type.equals(Integer.class) || type.equals(int.class))
+			return intConverter;
+		if (type.equals(Long.class) || type.equals(long.class))
+			return longConverter;
+		if (type.equals(Short.class) || type.equals(short.class))
+			return shortConverter;
+		if (type.equals(Byte.class) || type.equals(byte.class))
+			return byteConverter;
+		return null;
+	}
+
+	/**
+	 * The number of characters in the string representation (reverted or not) of any value of the given type ;
+	 * -1 in case it depends on the value.
+	 */
+	public static int getStringLength(Class<?> type) {
+		NaturalConverter<?> natural = getNaturalConverter(type);
+		if (natural != null)
+			return natural.getMaxByteSize()*2;
+		if (Date.class.isAssignableFrom(type))
+			return longConverter.getMaxByteSize()*2;
+		if (type.equals(Boolean.class) || type.equals(boolean.class) || type.equals(Character.class) || type.equals(char.class))
+			return 1;
+		return -1;
+	}
+
+	/**
+	 * Appends the string representation (reverted or not) of a non null value to the given builder,
+	 * as given by {@link #convertToString(Object, Class)} or {@link #convertToStringReverted(Object, Class)}.
+	 * Naturals, booleans and dates are written without intermediate objects.
+	 */
+	public static void appendString(StringBuilder sb, Object o, Class<?> expected, boolean reverted) {
+		NaturalConverter<?> natural = o == null ? null : getNaturalConverter(o.getClass());
+		if (natural != null) {
+			long value = ((Number) o).longValue();
+			natural.unparseString(reverted ? -value : value, sb);
+		} else if (o instanceof Date) {
+			long time = ((Date) o).getTime();
+			longConverter.unparseString(reverted ? -time : time, sb);
+		} else if (o instanceof Boolean) {
+			sb.append(((Boolean) o).booleanValue() != reverted ? BooleanConverter.TRUE : BooleanConverter.FALSE);
+		} else {
+			sb.append(reverted ? convertToStringReverted(o, expected) : convertToString(o, expected));
+		}
+	}
+
+	/**
+	 * Creates a value from a part of a string representation (reverted or not),
+	 * as {@link #convertFromString(Class, String)} or {@link #convertFromStringReverted(Class, String)} would do
+	 * with the substring between start (included) and end (excluded).
+	 * Naturals, booleans and dates whose representation has the expected {@link #getStringLength(Class) length},
+	 * and enumerations, are read without intermediate objects.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <U> U convertFromString(Class<U> type, String representation, int start, int end, boolean reverted) {
+		if (end - start == getStringLength(type)) {
+			NaturalConverter<?> natural = getNaturalConverter(type);
+			if (natural != null) {
+				long value = natural.parseString(representation, start);
+				if (reverted)
+					value = -value;
+				if (natural == intConverter)
+					return (U) Integer.valueOf((int) value);
+				if (natural == longConverter)
+					return (U) Long.valueOf(value);
+				if (natural == shortConverter)
+					return (U) Short.valueOf((short) value);
+				return (U) Byte.valueOf((byte) value);
+			}
+			if (type.equals(Date.class)) {
+				long time = longConverter.parseString(representation, start);
+				return (U) new Date(reverted ? -time : time);
+			}
+			if (type.equals(Boolean.class) || type.equals(boolean.class)) {
+				char c = representation.charAt(start);
+				if (c == BooleanConverter.TRUE.charAt(0))
+					return (U) Boolean.valueOf(!reverted);
+				if (c == BooleanConverter.FALSE.charAt(0))
+					return (U) Boolean.valueOf(reverted);
+			}
+		}
+		if (type.isEnum() && !reverted) {
+			int length = end - start;
+			for (U enumerated : type.getEnumConstants()) {
+				String name = enumerated.toString();
+				if (name.length() == length && representation.regionMatches(start, name, 0, length))
+					return enumerated;
+			}
+		}
+		String sub = representation.substring(start, end);
+		return reverted ? convertFromStringReverted(type, sub) : convertFromString(type, sub);
+	}
+
 	@SuppressWarnings("unchecked")
 	public static <T> T getDefaultValue(Class<T> expected) {
 		return (T) convertInternal(null, expected, ConversionKind.Default, null);
@@ -59,6 +59,46 @@ abstract class NaturalConverter<T extends Number> extends PrimitiveConverter<T>
 		return out.toString();
 	}
 
+	/**
+	 * Same as {@link #unparseString(long)}, but appending the representation to the given builder.
+	 */
+	public void unparseString(long obj, StringBuilder out) {
+		for (int i = this.getMaxByteSize()-1; i >= 0; --i) {
+			int b = (int) (obj >>> (i*8)) & 0xFF;
+			if (i == this.getMaxByteSize()-1)
+				b ^= 0x80; // Removing sign
+			out.append(toHexDigit(b >>> 4)).append(toHexDigit(b & 0x0F));
+		}
+	}
+
+	/**
+	 * Same as {@link #parseString(String)} for a representation of exactly {@link #getMaxByteSize()} bytes
+	 * (i.e. twice as many characters) starting at the given index.
+	 * @throws IllegalArgumentException in case a character is not an hexadecimal digit
+	 */
+	public long parseString(CharSequence rep, int start) {
+		long l = 0;
+		for (int i = 0; i < this.getMaxByteSize(); ++i) {
+			int b = (fromHexDigit(rep.charAt(start + 2*i)) << 4) | fromHexDigit(rep.charAt(start + 2*i + 1));
+			if (i == 0)
+				b ^= 0x80;
+			l = (l << 8) | b;
+		}
+		return l;
+	}
+
+	private static char toHexDigit(int b) {
+		return (char) (b < 10 ? b + '0' : b - 10 + 'a');
+	}
+
+	private static int fromHexDigit(char c) {
+		if (c >= '0' && c <= '9')
+			return c - '0';
+		if (c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		throw new IllegalArgumentException("Invalid hexadecimal digit " + c);
+	}
+
 	public long parseBytes(byte[] rep) {
 	    long l = 0;
 	    for(int i = 0; i < rep.length; i++) {
@@ -1,9 +1,12 @@
 package com.googlecode.n_orm.memory;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,8 +26,16 @@ import com.googlecode.n_orm.memory.Memory.Table.Row.ColumnFamily;
 import com.googlecode.n_orm.memory.Memory.Table.Row.ColumnFamily.ByteValue;
 import com.googlecode.n_orm.memory.Memory.Table.Row.ColumnFamily.Value;
 import com.googlecode.n_orm.storeapi.CloseableKeyIterator;
+import com.googlecode.n_orm.storeapi.ColumnCountingStore;
+import com.googlecode.n_orm.storeapi.ColumnPagingStore;
+import com.googlecode.n_orm.storeapi.CompleteRowStore;
 import com.googlecode.n_orm.storeapi.Constraint;
 import com.googlecode.n_orm.storeapi.DefaultColumnFamilyData;
+import com.googlecode.n_orm.storeapi.MetaInformation;
+import com.googlecode.n_orm.storeapi.MultiColumnStore;
+import com.googlecode.n_orm.storeapi.MultiRangeConstraint;
+import com.googlecode.n_orm.storeapi.MultiRangeStore;
+import com.googlecode.n_orm.storeapi.PropertyConstraint;
 import com.googlecode.n_orm.storeapi.Row.ColumnFamilyData;
 import com.googlecode.n_orm.storeapi.SimpleStore;
 
@@ -35,7 +46,7 @@ import com.googlecode.n_orm.storeapi.SimpleStore;
  * This store is thread-safe.
  * This store does not supports mixing incrementing and absolute values.
  */
-public class Memory implements SimpleStore {
+public class Memory implements SimpleStore, MultiRangeStore, CompleteRowStore, ColumnPagingStore, ColumnCountingStore, MultiColumnStore {
 	public static final Memory INSTANCE = new Memory();
 	
 	/**
@@ -227,6 +238,40 @@ public class Memory implements SimpleStore {
 			return subMap(this.getNavigableMap(), fromKeyIncl, null).values().iterator();
 		}
 		
+		/**
+		 * Creates an {@link Iterator} over the {@link Row}s owned by this table with a key in one of the given ranges.
+		 * @param ranges disjoint ranges in key order (see {@link MultiRangeConstraint#getRanges()})
+		 */
+		public Iterator<Row> getRowIterator(final List<Constraint> ranges) {
+			return new Iterator<Row>() {
+				private int nextRange = 0;
+				private Iterator<Row> current = null;
+
+				@Override
+				public boolean hasNext() {
+					while (this.current == null || !this.current.hasNext()) {
+						if (this.nextRange >= ranges.size())
+							return false;
+						Constraint range = ranges.get(this.nextRange++);
+						this.current = subMap(Table.this.getNavigableMap(), range.getStartKey(), range.getEndKey()).values().iterator();
+					}
+					return true;
+				}
+
+				@Override
+				public Row next() {
+					if (!this.hasNext())
+						throw new NoSuchElementException();
+					return this.current.next();
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
 		/**
 		 * A row owning a set of Column families.
 		 * Column families are created lazily as soon as they are requested by {@link #get(String)}.
@@ -330,6 +375,37 @@ public class Memory implements SimpleStore {
 					return ret;
 				}
 				
+				/**
+				 * The number of values in this column family with a qualifier included between fromQualifierIncl and toQualifierIcl.
+				 */
+				public long count(String fromQualifierIncl, String toQualifierIcl) {
+					long ret = 0;
+					for (Value<?> element : subMap(this.getNavigableMap(), fromQualifierIncl, toQualifierIcl).values()) {
+						if (element.getBytes() != DELETED_VALUE)
+							ret++;
+					}
+					return ret;
+				}
+				
+				/**
+				 * At most size values in this column family with a qualifier after startAfter (excluded), in qualifier order or in reverse qualifier order.
+				 * Qualifiers start from the first (or last in reverse order) qualifier in case startAfter is null.
+				 */
+				public Map<String, byte[]> getPage(String startAfter, int size, boolean reverse) {
+					NavigableMap<String, Value<?>> values = reverse ? this.getNavigableMap().descendingMap() : this.getNavigableMap();
+					if (startAfter != null)
+						values = values.tailMap(startAfter, false);
+					Map<String, byte[]> ret = new LinkedHashMap<String,byte[]>();
+					for (Entry<String, Value<?>> element : values.entrySet()) {
+						if (ret.size() >= size)
+							break;
+						byte[] val = element.getValue().getBytes();
+						if (val != DELETED_VALUE)
+							ret.put(element.getKey(), val);
+					}
+					return ret;
+				}
+				
 				@Override
 				public final Value<?> remove(String key) {
 					throw new IllegalStateException("Cannot remove a column without a transaction number");
@@ -552,6 +628,33 @@ public class Memory implements SimpleStore {
 		return fam == null ? null : fam.getValues(c == null ? null : c.getStartKey(), c == null ? null : c.getEndKey());
 	}
 
+	@Override
+	public Map<String, byte[]> get(MetaInformation meta, String table, String id, String family, Set<String> qualifiers) {
+		ColumnFamily fam = this.getFamily(table, id, family, false);
+		if (fam == null)
+			return null;
+		Map<String, byte[]> ret = new TreeMap<String, byte[]>();
+		for (String qualifier : qualifiers) {
+			Value<?> val = fam.getNoCreate(qualifier);
+			byte[] bytes = val == null ? null : val.getBytes();
+			if (bytes != null && bytes != DELETED_VALUE)
+				ret.put(qualifier, bytes);
+		}
+		return ret;
+	}
+
+	@Override
+	public long count(MetaInformation meta, String table, String id, String family, Constraint c) {
+		ColumnFamily fam = this.getFamily(table, id, family, false);
+		return fam == null ? 0 : fam.count(c == null ? null : c.getStartKey(), c == null ? null : c.getEndKey());
+	}
+
+	@Override
+	public Map<String, byte[]> getPage(MetaInformation meta, String table, String id, String family, String startAfter, int size, boolean reverse) {
+		ColumnFamily fam = this.getFamily(table, id, family, false);
+		return fam == null ? null : fam.getPage(startAfter, size, reverse);
+	}
+
 	@Override
 	public void storeChanges(String table, String id,
 			ColumnFamilyData changed,
@@ -603,11 +706,48 @@ public class Memory implements SimpleStore {
 			throw x;
 	}
 
+	/**
+	 * Whether the given row satisfies all {@link Constraint#getPropertyConstraints() property constraints} of a constraint.
+	 */
+	protected boolean satisfiesProperties(Row r, Constraint c) {
+		if (c == null)
+			return true;
+		for (PropertyConstraint pc : c.getPropertyConstraints()) {
+			ColumnFamily fam = r.getNoCreate(pc.getFamily());
+			Value<?> val = fam == null ? null : fam.getNoCreate(pc.getQualifier());
+			byte[] rep = val == null ? null : val.getBytes();
+			if (!pc.satisfies(rep == DELETED_VALUE ? null : rep))
+				return false;
+		}
+		return true;
+	}
+
 	@Override
 	public long count(String table, Constraint c)
 			throws DatabaseNotReachedException {
 		Table t = this.getTable(table, false);
-		return t == null ? 0 : subMap(t.getNavigableMap(), c == null ? null : c.getStartKey(), c == null ? null : c.getEndKey()).size();
+		if (t == null)
+			return 0;
+		MultiRangeConstraint ranges = MultiRangeConstraint.asMultiRange(c);
+		if (ranges == null)
+			return this.count(t, c == null ? null : c.getStartKey(), c == null ? null : c.getEndKey(), c);
+		long ret = 0;
+		for (Constraint range : ranges.getRanges()) {
+			ret += this.count(t, range.getStartKey(), range.getEndKey(), c);
+		}
+		return ret;
+	}
+	
+	private long count(Table t, String fromIncl, String toIncl, Constraint c) {
+		NavigableMap<String, Row> rows = subMap(t.getNavigableMap(), fromIncl, toIncl);
+		if (c == null || !c.hasPropertyConstraints())
+			return rows.size();
+		long ret = 0;
+		for (Row r : rows.values()) {
+			if (this.satisfiesProperties(r, c))
+				ret++;
+		}
+		return ret;
 	}
 	
 	public void reset() {
@@ -660,8 +800,10 @@ public class Memory implements SimpleStore {
 		Table t = this.getTable(table, false);
 		if (t == null)
 			return new EmptyCloseableIterator();
+		final Constraint constraint = c;
 		final String endKey = c == null ? null : c.getEndKey();
-		final Iterator<Row> ret = t.getRowIterator(c == null ? null : c.getStartKey());
+		MultiRangeConstraint ranges = MultiRangeConstraint.asMultiRange(c);
+		final Iterator<Row> ret = ranges == null ? t.getRowIterator(c == null ? null : c.getStartKey()) : t.getRowIterator(ranges.getRanges());
 		return new CloseableKeyIterator() {
 			private int count = 0;
 			private Row next = null;
@@ -680,13 +822,15 @@ public class Memory implements SimpleStore {
 					return next = null;
 				}
 				
-				next = ret.hasNext() ? ret.next() : null;
-				
-				if (next == null
-						|| (endKey != null && next.getKey().compareTo(endKey) > 0) ) {
-					done = true;
-					next = null;
-				}
+				do {
+					next = ret.hasNext() ? ret.next() : null;
+					
+					if (next == null
+							|| (endKey != null && next.getKey().compareTo(endKey) > 0) ) {
+						done = true;
+						next = null;
+					}
+				} while (next != null && !satisfiesProperties(next, constraint));
 					
 				return next;
 			}	
@@ -17,6 +17,7 @@ import java.util.TreeMap;
 
 import com.googlecode.n_orm.CloseableIterator;
 import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.KeyEncoding;
 import com.googlecode.n_orm.KeyManagement;
 import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.Process;
@@ -34,12 +35,15 @@ public class ImportExport {
 		private String key;
 		private Class<? extends PersistingElement> clazz;
 		private ColumnFamilyData values;
+		//Encoding of the key ; null for elements exported before key encodings were introduced
+		private KeyEncoding keyEncoding;
 		
 		public Element(PersistingElement pe) {
 			pe.checkIsValid();
 			pe.updateFromPOJO();
 			this.clazz = pe.getClass();
 			this.key = pe.getIdentifier();
+			this.keyEncoding = KeyManagement.getInstance().getKeyEncoding(this.clazz);
 			Collection<ColumnFamily<?>> fams = pe.getColumnFamilies();
 			values = new DefaultColumnFamilyData();
 			for (ColumnFamily<?> family : fams) {
@@ -75,7 +79,10 @@ public class ImportExport {
 		}
 		
 		public PersistingElement getElement() {
-			PersistingElement ret = KeyManagement.getInstance().createElement(this.clazz, this.key);
+			KeyManagement km = KeyManagement.getInstance();
+			KeyEncoding encoding = this.keyEncoding == null ? KeyEncoding.STRING : this.keyEncoding;
+			//Key is read according to its encoding, which might be different from the current encoding of the class
+			PersistingElement ret = km.createElement(this.clazz, this.key, encoding.equals(km.getKeyEncoding(this.clazz)) ? null : encoding);
 			ret.activateFromRawData(ret.getColumnFamilyNames(), this.getValues());
 			return ret;
 		}
@@ -16,6 +16,7 @@ import java.util.concurrent.TimeUnit;
 
 import com.googlecode.n_orm.Callback;
 import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.KeyManagement;
 import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.PersistingMixin;
 import com.googlecode.n_orm.ProcessCanceller;
@@ -28,6 +29,7 @@ import com.googlecode.n_orm.storeapi.ActionnableStore;
 import com.googlecode.n_orm.storeapi.CloseableKeyIterator;
 import com.googlecode.n_orm.storeapi.Constraint;
 import com.googlecode.n_orm.storeapi.MetaInformation;
+import com.googlecode.n_orm.storeapi.MultiRangeConstraint;
 import com.googlecode.n_orm.storeapi.Row;
 import com.googlecode.n_orm.storeapi.Store;
 
@@ -112,22 +114,32 @@ public class Process {
 		private final Class<E> clazz;
 		private final com.googlecode.n_orm.Process<AE> processAction;
 		private final List<Problem> problems;
+		private final boolean streaming;
 	
 		private ProcessRunnable(Map<String, Field> toBeActivated, Row data,
 				Class<E> clazz, com.googlecode.n_orm.Process<AE> processAction,
-				List<Problem> problems) {
+				List<Problem> problems, boolean streaming) {
 			this.toBeActivated = toBeActivated;
 			this.data = data;
 			this.clazz = clazz;
 			this.processAction = processAction;
 			this.problems = problems;
+			this.streaming = streaming;
 		}
 	
 		@Override
 		public void run() {
 			E elt = null;
 			try {
-				elt = StorageManagement.createElementFromRow(clazz, toBeActivated, data);
+				if (streaming) {
+					boolean caching = KeyManagement.getInstance().setCachingForCurrentThread(false);
+					try {
+						elt = StorageManagement.createElementFromRow(clazz, toBeActivated, data);
+					} finally {
+						KeyManagement.getInstance().setCachingForCurrentThread(caching);
+					}
+				} else
+					elt = StorageManagement.createElementFromRow(clazz, toBeActivated, data);
 				processAction.process(elt);
 			} catch (Throwable t) {
 				problems.add(new ProcessException.Problem(elt, data, t));
@@ -138,6 +150,14 @@ public class Process {
 	private Process() {}
 
 	public static <AE extends PersistingElement, E extends AE> ProcessReport<E> processElements(final Class<E> clazz, Constraint c, final com.googlecode.n_orm.Process<AE> processAction, int limit, String[] families, int threadNumber, ProcessCanceller cancel, ExecutorService executor) throws DatabaseNotReachedException, InterruptedException, ProcessException {
+		return processElements(clazz, c, processAction, limit, families, threadNumber, cancel, executor, false);
+	}
+
+	/**
+	 * Performs an action for each element matching the given constraint.
+	 * @param streaming whether processed elements should not be registered in the per-thread cache (see {@link KeyManagement#setCachingForCurrentThread(boolean)})
+	 */
+	public static <AE extends PersistingElement, E extends AE> ProcessReport<E> processElements(final Class<E> clazz, Constraint c, final com.googlecode.n_orm.Process<AE> processAction, int limit, String[] families, int threadNumber, ProcessCanceller cancel, ExecutorService executor, boolean streaming) throws DatabaseNotReachedException, InterruptedException, ProcessException {
 		ProcessReport<E> ret = new ProcessReport<E>();
 		long start = System.currentTimeMillis();
 		//long end = (threadNumber == 1 || start > Long.MAX_VALUE - timeout) ? Long.MAX_VALUE : start+timeout;
@@ -146,7 +166,11 @@ public class Process {
 		final Map<String, Field> toBeActivated = families == null ? null : StorageManagement.getAutoActivatedFamilies(clazz, families);
 		ret.toBeActivated = toBeActivated;
 		ret.clazz = clazz;
-		final CloseableKeyIterator keys = store.get(new MetaInformation().forClass(clazz).withColumnFamilies(toBeActivated), PersistingMixin.getInstance().getTable(clazz), c, limit, toBeActivated == null ? null : toBeActivated.keySet());
+		MetaInformation meta = new MetaInformation().forClass(clazz).withColumnFamilies(toBeActivated);
+		//Elements are processed in any order when processing is parallel
+		if (threadNumber != 1)
+			meta.unordered();
+		final CloseableKeyIterator keys = StorageManagement.findKeys(store, meta, PersistingMixin.getInstance().getTable(clazz), c, limit, toBeActivated == null ? null : toBeActivated.keySet());
 		boolean ownsExecutor = executor == null;
 		if (ownsExecutor) {
 			executor = threadNumber == 1 ? null : Executors.newCachedThreadPool();
@@ -166,7 +190,7 @@ public class Process {
 						throw new InterruptedException(cancel.getErrorMessage(processAction));
 				}
 				Runnable r = new ProcessRunnable<AE,E>(toBeActivated, data, clazz,
-						processAction, problems);
+						processAction, problems, streaming);
 				if (threadNumber == 1)
 					r.run();
 				else
@@ -196,7 +220,8 @@ public class Process {
 	public static <AE extends PersistingElement, E extends AE> void processElementsRemotely(final Class<E> clazz, final Constraint c, final com.googlecode.n_orm.Process<AE> process, final Callback callback, final int limit, final String[] families, final int threadNumber, final long timeout) throws DatabaseNotReachedException, InstantiationException, IllegalAccessException {
 		
 		Store store = StoreSelector.getInstance().getActualStoreFor(clazz);
-		if (store instanceof ActionnableStore) {
+		//Server-side processes scan one single range
+		if (store instanceof ActionnableStore && MultiRangeConstraint.asMultiRange(c) == null) {
 			Map<String, Field> autoActivatedFamilies = StorageManagement.getAutoActivatedFamilies(clazz, families);
 			((ActionnableStore)store).process(new MetaInformation().forClass(clazz).withColumnFamilies(autoActivatedFamilies), PersistingMixin.getInstance().getTable(clazz), c, autoActivatedFamilies == null ? null : autoActivatedFamilies.keySet(), clazz, process, callback);
 		} else {
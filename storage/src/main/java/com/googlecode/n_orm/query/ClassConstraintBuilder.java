@@ -1,6 +1,8 @@
 package com.googlecode.n_orm.query;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -8,6 +10,7 @@ import com.googlecode.n_orm.Key;
 import com.googlecode.n_orm.KeyManagement;
 import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.storeapi.Constraint;
+import com.googlecode.n_orm.storeapi.MultiRangeConstraint;
 
 
 /**
@@ -19,6 +22,8 @@ public abstract class ClassConstraintBuilder<T extends PersistingElement> {
 	private Map<Field, Object> keyValues = new HashMap<Field, Object>();
 	private Field searchedKey = null;
 	private Object searchFrom = null, searchTo = null;
+	private List<Object> otherSearchFroms = null, otherSearchTos = null; //Other ranges for searched key
+	private List<Boolean> otherSearchExact = null; //Whether other ranges are exact values
 	private Constraint subConstraint;
 
 	public ClassConstraintBuilder(Class<?> clazz) {
@@ -63,6 +68,46 @@ public abstract class ClassConstraintBuilder<T extends PersistingElement> {
 			this.searchTo = endValue;
 	}
 
+	/**
+	 * Whether more than one range is searched for the searched key.
+	 */
+	boolean hasOtherSearchRanges() {
+		return this.otherSearchFroms != null;
+	}
+	
+	/**
+	 * Adds a range to be searched for the searched key, in addition to the one that may already exist.
+	 */
+	void addSearchedRange(Field key, Object startValue, Object endValue) {
+		this.addSearchedRange(key, startValue, endValue, false);
+	}
+	
+	/**
+	 * Adds a value to be searched for the searched key, in addition to the ranges that may already exist.
+	 * Contrary to a range from and to this value, keys starting with this value do not match.
+	 */
+	void addSearchedValue(Field key, Object value) {
+		this.addSearchedRange(key, value, value, true);
+	}
+	
+	private void addSearchedRange(Field key, Object startValue, Object endValue, boolean exact) {
+		if (this.searchedKey != null && !this.searchedKey.equals(key))
+			throw new IllegalArgumentException("Searched key is already set to " + searchedKey + " ; cannot perform a search based on bounds for another key (here " + key +")");
+		if (this.subConstraint != null)
+			throw new IllegalArgumentException("A constraint is alredy given for " + searchedKey);
+		if (startValue == null && endValue == null)
+			throw new IllegalArgumentException("A searched range requires at least a start or an end value.");
+		this.searchedKey = key;
+		if (this.otherSearchFroms == null) {
+			this.otherSearchFroms = new ArrayList<Object>();
+			this.otherSearchTos = new ArrayList<Object>();
+			this.otherSearchExact = new ArrayList<Boolean>();
+		}
+		this.otherSearchFroms.add(startValue);
+		this.otherSearchTos.add(endValue);
+		this.otherSearchExact.add(exact);
+	}
+
 	Object getSubConstraint() {
 		return subConstraint;
 	}
@@ -73,7 +118,7 @@ public abstract class ClassConstraintBuilder<T extends PersistingElement> {
 		this.searchedKey = key;
 		if (this.subConstraint != null)
 			throw new IllegalStateException("A subconstraint is already set for " + this.searchedKey);
-		if (this.searchFrom != null || this.searchTo != null)
+		if (this.searchFrom != null || this.searchTo != null || this.otherSearchFroms != null)
 			throw new IllegalArgumentException("A search range is already set for searched key " + key + " and thus you cannot set a sub constraint using isAnElement");
 
 		this.subConstraint = subConstraint;
@@ -83,7 +128,20 @@ public abstract class ClassConstraintBuilder<T extends PersistingElement> {
 		if (this.subConstraint == null) {
 			if (this.keyValues.isEmpty() && this.searchedKey == null)
 				return null;
-			else
+			else if (this.otherSearchFroms != null) {
+				List<Object> froms = new ArrayList<Object>(this.otherSearchFroms), tos = new ArrayList<Object>(this.otherSearchTos);
+				List<Boolean> exacts = new ArrayList<Boolean>(this.otherSearchExact);
+				if (this.searchFrom != null || this.searchTo != null) {
+					froms.add(this.searchFrom);
+					tos.add(this.searchTo);
+					exacts.add(false);
+				}
+				boolean[] exactValues = new boolean[exacts.size()];
+				for (int i = 0; i < exactValues.length; ++i) {
+					exactValues[i] = exacts.get(i);
+				}
+				return new MultiRangeConstraint(this.clazz, this.keyValues, this.searchedKey, froms.toArray(), tos.toArray(), exactValues, null);
+			} else
 				return new Constraint(this.clazz, this.keyValues, this.searchedKey, this.searchFrom, this.searchTo, true);
 		} else {
 			assert searchedKey != null;
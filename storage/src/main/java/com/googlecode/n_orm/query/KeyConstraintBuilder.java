@@ -36,6 +36,17 @@ public abstract class KeyConstraintBuilder<T extends PersistingElement> {
 		return this.constraintBuilder;
 	}
 	
+	protected ClassConstraintBuilder<T> inInt(Object... values) {
+		if (values == null || values.length == 0)
+			throw new IllegalArgumentException("At least one value must be given for key " + this.key);
+		for (Object value : values) {
+			if (value == null)
+				throw new IllegalArgumentException("Keys cannot be null.");
+			this.constraintBuilder.addSearchedValue(this.key, value);
+		}
+		return this.constraintBuilder;
+	}
+	
 	protected ClassConstraintBuilder<T> lessOrEqualsThanInt(Object value) {
 		this.constraintBuilder.setSearchedKey(this.key, null, value);
 		return this.constraintBuilder;
@@ -0,0 +1,122 @@
+package com.googlecode.n_orm.query;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import com.googlecode.n_orm.CloseableIterator;
+import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.FederatedTableManagement;
+import com.googlecode.n_orm.PersistingElement;
+import com.googlecode.n_orm.StorageManagement;
+import com.googlecode.n_orm.storeapi.Constraint;
+import com.googlecode.n_orm.storeapi.PreparedConstraint;
+
+/**
+ * A query whose shape is analyzed once, and that can be run many times with different key values
+ * (see {@link SearchableClassConstraintBuilder#prepare()}).
+ * Key values that are not known when the query is prepared are given as {@link #PARAMETER},
+ * e.g. <code>StorageManagement.findElements().ofClass(Foo.class).withKey("k1").setTo(PreparedQuery.PARAMETER).andWithKey("k2").between(PreparedQuery.PARAMETER).and(PreparedQuery.PARAMETER).withAtMost(100).elements().prepare()</code>.
+ * Values for parameters are then given each time the query is run, in the order described in {@link PreparedConstraint}
+ * (i.e. here a value for k1, then start and end values for k2).
+ * Properties cannot be constrained by parameters.
+ * Prepared queries are immutable and can be run concurrently.
+ */
+public class PreparedQuery<T extends PersistingElement> {
+	/**
+	 * The value to be given for a key value that is only known when the query is run.
+	 */
+	public static final Object PARAMETER = PreparedConstraint.PARAMETER;
+
+	private final Class<T> clazz;
+	private final PreparedConstraint constraint;
+	private final String tablePostfix;
+	private final Integer limit;
+	private final boolean ordered;
+	private final boolean streaming;
+	private final Map<String, Field> toBeActivated; //null: no activation
+
+	PreparedQuery(Class<T> clazz, PreparedConstraint constraint, String tablePostfix, Integer limit, boolean ordered, boolean streaming, String[] toBeActivated) {
+		this.clazz = clazz;
+		this.constraint = constraint;
+		this.tablePostfix = tablePostfix;
+		this.limit = limit;
+		this.ordered = ordered;
+		this.streaming = streaming;
+		this.toBeActivated = toBeActivated == null ? null : StorageManagement.getAutoActivatedFamilies(clazz, toBeActivated);
+	}
+
+	public Class<T> getClazz() {
+		return clazz;
+	}
+
+	/**
+	 * The number of values to be given when running this query.
+	 */
+	public int getParameterCount() {
+		return this.constraint.getParameterCount();
+	}
+
+	/**
+	 * The constraint for this query with the given parameter values.
+	 */
+	public Constraint getConstraint(Object... parameters) {
+		Constraint ret = this.constraint.bind(parameters);
+		if (this.tablePostfix != null)
+			ret = new FederatedTableManagement.ConstraintWithPostfix(ret, this.tablePostfix);
+		return ret;
+	}
+
+	private int checkHasLimits() {
+		if (this.limit == null || this.limit < 1)
+			throw new IllegalStateException("No limit set ; please use withAtMost expression before preparing query.");
+		return this.limit;
+	}
+
+	/**
+	 * Runs the query with the given parameter values as {@link SearchableClassConstraintBuilder#go()} does.
+	 */
+	public NavigableSet<T> go(Object... parameters) throws DatabaseNotReachedException {
+		CloseableIterator<T> found = this.iterate(parameters);
+		try {
+			NavigableSet<T> ret = new TreeSet<T>();
+			while (found.hasNext()) {
+				ret.add(found.next());
+			}
+			return ret;
+		} finally {
+			found.close();
+		}
+	}
+
+	/**
+	 * Runs the query with the given parameter values as {@link SearchableClassConstraintBuilder#iterate()} does.
+	 */
+	public CloseableIterator<T> iterate(Object... parameters) throws DatabaseNotReachedException {
+		int limit = this.checkHasLimits();
+		return StorageManagement.findElement(this.clazz, this.getConstraint(parameters), limit, this.ordered, this.streaming, this.toBeActivated);
+	}
+
+	/**
+	 * Runs the query with the given parameter values as {@link SearchableClassConstraintBuilder#any()} does.
+	 */
+	public T any(Object... parameters) throws DatabaseNotReachedException {
+		CloseableIterator<T> found = StorageManagement.findElement(this.clazz, this.getConstraint(parameters), 1, true, this.toBeActivated);
+		try {
+			if (found.hasNext())
+				return found.next();
+			else
+				return null;
+		} finally {
+			found.close();
+		}
+	}
+
+	/**
+	 * Runs the query with the given parameter values as {@link SearchableClassConstraintBuilder#count()} does.
+	 */
+	public long count(Object... parameters) throws DatabaseNotReachedException {
+		return StorageManagement.countElements(this.clazz, this.getConstraint(parameters));
+	}
+}
@@ -9,15 +9,27 @@ public abstract class RangeKeyConstraintBuilder<T extends PersistingElement> {
 	private final ClassConstraintBuilder<T> classConstraintBuilder;
 	private final Field key;
 	private final Object startValue;
+	private final boolean otherRange;
 
 	RangeKeyConstraintBuilder(ClassConstraintBuilder<T> constraintBuilder, Field key, Object startValue) {
+		this(constraintBuilder, key, startValue, false);
+	}
+
+	/**
+	 * @param otherRange whether this range is searched in addition to an existing range for the same key
+	 */
+	RangeKeyConstraintBuilder(ClassConstraintBuilder<T> constraintBuilder, Field key, Object startValue, boolean otherRange) {
 		this.classConstraintBuilder = constraintBuilder;
 		this.key = key;
 		this.startValue = startValue;
+		this.otherRange = otherRange;
 	}
 	
 	protected ClassConstraintBuilder<T> andInt(Object includedEndValue) {
-		this.classConstraintBuilder.setSearchedKey(key, this.startValue, includedEndValue);
+		if (this.otherRange)
+			this.classConstraintBuilder.addSearchedRange(key, this.startValue, includedEndValue);
+		else
+			this.classConstraintBuilder.setSearchedKey(key, this.startValue, includedEndValue);
 		return this.classConstraintBuilder;
 	}
 
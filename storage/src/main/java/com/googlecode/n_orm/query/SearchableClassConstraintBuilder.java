@@ -8,6 +8,8 @@ import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
@@ -18,11 +20,13 @@ import com.googlecode.n_orm.ColumnFamiliyManagement;
 import com.googlecode.n_orm.DatabaseNotReachedException;
 import com.googlecode.n_orm.FederatedTableManagement;
 import com.googlecode.n_orm.ImplicitActivation;
+import com.googlecode.n_orm.KeyManagement;
 import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.PersistingElementOverFederatedTable;
 import com.googlecode.n_orm.Process;
 import com.googlecode.n_orm.ProcessCanceller;
 import com.googlecode.n_orm.ProcessException;
+import com.googlecode.n_orm.PropertyManagement;
 import com.googlecode.n_orm.StorageManagement;
 import com.googlecode.n_orm.StoreSelector;
 import com.googlecode.n_orm.TimeoutCanceller;
@@ -32,6 +36,9 @@ import com.googlecode.n_orm.operations.Process.ProcessReport;
 import com.googlecode.n_orm.consoleannotations.Continuator;
 import com.googlecode.n_orm.storeapi.ActionnableStore;
 import com.googlecode.n_orm.storeapi.Constraint;
+import com.googlecode.n_orm.storeapi.MultiRangeConstraint;
+import com.googlecode.n_orm.storeapi.PreparedConstraint;
+import com.googlecode.n_orm.storeapi.PropertyConstraint;
 import com.googlecode.n_orm.storeapi.Store;
 
 public class SearchableClassConstraintBuilder<T extends PersistingElement>
@@ -40,6 +47,9 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 	private Integer limit = null;
 	private String [] toBeActivated = null; //null: no activation, non null: autoactivation
 	private String tablePostfix = null;
+	private boolean ordered = true;
+	private boolean streaming = false;
+	private final List<PropertyConstraint> propertyConstraints = new ArrayList<PropertyConstraint>();
 
 
 	public SearchableClassConstraintBuilder(Class<T> clazz) {
@@ -72,6 +82,20 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 	public String getTablePostfix() {
 		return this.tablePostfix;
 	}
+
+	/**
+	 * Whether elements found by {@link #iterate()} are expected to be sorted according to their keys.
+	 */
+	public boolean isOrdered() {
+		return this.ordered;
+	}
+	
+	/**
+	 * Whether elements found by {@link #iterate()} or {@link #forEach(Process)} are kept out of the per-thread cache.
+	 */
+	public boolean isStreaming() {
+		return this.streaming;
+	}
 	
 	@Override
 	@SuppressWarnings("unchecked")
@@ -126,14 +150,53 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 		return this;
 	}
 
+	/**
+	 * Searches also for elements whose value for the searched key is in another range,
+	 * e.g. <code>withKey("k").between(1).and(5).orBetween(10).and(20)</code>.
+	 * All ranges are searched at once, and elements are still found in key order.
+	 * @throws IllegalStateException in case no range is searched yet
+	 */
+	@Continuator
+	public SearchableRangeKeyConstraintBuilder<T> orBetween(Object value) {
+		if (this.getSearchedKey() == null || this.getSubConstraint() != null)
+			throw new IllegalStateException("No range is searched yet ; please use withKey(...).between(...) expression first.");
+		return new SearchableRangeKeyConstraintBuilder<T>(this, this.getSearchedKey(), value, true);
+	}
+
+	void addPropertyConstraint(PropertyConstraint pc) {
+		this.propertyConstraints.add(pc);
+	}
+
 	@Override
 	public Constraint getConstraint() {
 		Constraint ret = super.getConstraint();
+		if (!this.propertyConstraints.isEmpty()) {
+			if (ret instanceof MultiRangeConstraint)
+				ret = new MultiRangeConstraint(((MultiRangeConstraint)ret).getRanges(), this.propertyConstraints);
+			else
+				ret = new Constraint(ret == null ? null : ret.getStartKey(), ret == null ? null : ret.getEndKey(), this.propertyConstraints);
+		}
 		if (this.getTablePostfix() != null)
 			ret = new FederatedTableManagement.ConstraintWithPostfix(ret, getTablePostfix());
 		return ret;
 	}
 
+	/**
+	 * Prepares this query so that it can be run many times with different values for keys
+	 * given as {@link PreparedQuery#PARAMETER}.
+	 * Keys, limit, families to be activated, table and {@link #streaming() streaming} mode are analyzed once and for all.
+	 * @throws IllegalStateException in case the query constrains keys of a key (see {@link KeyConstraintBuilder#isAnElement()})
+	 * @throws IllegalArgumentException in case keys are not properly constrained
+	 */
+	public PreparedQuery<T> prepare() {
+		if (this.getSubConstraint() != null)
+			throw new IllegalStateException("Cannot prepare a query constraining keys of key " + this.getSearchedKey());
+		if (this.hasOtherSearchRanges())
+			throw new IllegalStateException("Cannot prepare a query searching several ranges for key " + this.getSearchedKey());
+		PreparedConstraint c = new PreparedConstraint(this.getClazz(), this.getKeyValues(), this.getSearchedKey(), this.getSearchFrom(), this.getSearchTo(), this.propertyConstraints);
+		return new PreparedQuery<T>(this.getClazz(), c, this.tablePostfix, this.limit, this.ordered, this.streaming, this.toBeActivated);
+	}
+
 	/**
 	 * Requests for some more family activations while executing the query, in addition to simple properties and families marked as {@link ImplicitActivation}.
 	 * @param families the names of the families to be activated (i.e. name of the {@link Map} or {@link Set} property).
@@ -151,6 +214,29 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 		return this;
 	}
 
+	/**
+	 * States that elements found by {@link #iterate()} can be returned in any order.
+	 * This lets the store send elements as soon as they are found, e.g. while scanning different regions at the same time.
+	 */
+	@Continuator
+	public SearchableClassConstraintBuilder<T> inAnyOrder() {
+		this.ordered = false;
+		return this;
+	}
+
+	/**
+	 * States that elements found by {@link #iterate()} or {@link #forEach(Process)} should not be registered in the per-thread cache
+	 * (see {@link KeyManagement#setCachingForCurrentThread(boolean)}).
+	 * Elements can then be garbage-collected as soon as they are not referenced anymore, which is useful for long scans
+	 * over elements that are not looked up again afterwards.
+	 * However, a later search or {@link StorageManagement#getElement(Class, String)} returns another instance for the same element.
+	 */
+	@Continuator
+	public SearchableClassConstraintBuilder<T> streaming() {
+		this.streaming = true;
+		return this;
+	}
+
 	/**
 	 * Activate all known families for this class (see {@link ConstraintBuilder#ofClass(Class)}).
 	 * Please note that only column families for this class (or inherited)
@@ -202,7 +288,7 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 	@Continuator
 	public CloseableIterator<T> iterate() throws DatabaseNotReachedException {
 		checkHasLimits();
-		return StorageManagement.findElement(this.getClazz(), this.getConstraint(), this.limit, this.toBeActivated);
+		return StorageManagement.findElement(this.getClazz(), this.getConstraint(), this.limit, this.ordered, this.streaming, this.toBeActivated == null ? null : StorageManagement.getAutoActivatedFamilies(this.getClazz(), this.toBeActivated));
 	}
 
 	
@@ -234,6 +320,24 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 		return StorageManagement.countElements(this.getClazz(), this.getConstraint());
 	}
 	
+	/**
+	 * Restricts the search to elements whose given property satisfies a condition.
+	 * Conditions are checked by the store, so that only matching elements are sent back.
+	 * @param property the name of a property of the searched class that is not a column family
+	 */
+	@Continuator
+	public SearchablePropertyConstraintBuilder<T> withProperty(String property) {
+		Field f = PropertyManagement.getInstance().getProperty(this.getClazz(), property);
+		if (f == null)
+			throw new IllegalArgumentException("No property " + property + " found in class " + this.getClazz());
+		return new SearchablePropertyConstraintBuilder<T>(this, f);
+	}
+
+	@Continuator
+	public SearchablePropertyConstraintBuilder<T> andWithProperty(String property) {
+		return this.withProperty(property);
+	}
+	
 	@Continuator
 	public SearchableKeyConstraintBuilder<T> withKey(String key) {
 		return (SearchableKeyConstraintBuilder<T>) this.withKeyInt(key);
@@ -305,7 +409,7 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 	 */
 	public ProcessReport<T> forEach(Process<T> action, int threadNumber, long timeoutMs, ExecutorService executor) throws DatabaseNotReachedException, InterruptedException, ProcessException {
 		this.checkHasLimits();
-		return com.googlecode.n_orm.operations.Process.processElements(this.getClazz(), this.getConstraint(), action, this.limit, this.toBeActivated, threadNumber, new TimeoutCanceller(timeoutMs), executor);
+		return com.googlecode.n_orm.operations.Process.processElements(this.getClazz(), this.getConstraint(), action, this.limit, this.toBeActivated, threadNumber, new TimeoutCanceller(timeoutMs), executor, this.streaming);
 	}
 	
 	/**
@@ -323,7 +427,7 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 	 */
 	public ProcessReport<T> forEach(Process<T> action, int threadNumber, ProcessCanceller canceller, ExecutorService executor) throws DatabaseNotReachedException, InterruptedException, ProcessException {
 		this.checkHasLimits();
-		return com.googlecode.n_orm.operations.Process.processElements(this.getClazz(), this.getConstraint(), action, this.limit, this.toBeActivated, threadNumber, canceller, executor);
+		return com.googlecode.n_orm.operations.Process.processElements(this.getClazz(), this.getConstraint(), action, this.limit, this.toBeActivated, threadNumber, canceller, executor, this.streaming);
 	}
 	
 	/**
@@ -340,7 +444,7 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 	 */
 	public void remoteForEach(Process<T> action, Callback callBack, int threadNumber, long timeout) throws DatabaseNotReachedException, InstantiationException, IllegalAccessException {
 		Store s = StoreSelector.getInstance().getStoreFor(this.getClazz());
-		if ((!(s instanceof ActionnableStore)) && hasNoLimit())
+		if ((!(s instanceof ActionnableStore) || this.hasOtherSearchRanges()) && hasNoLimit())
 			throw new IllegalStateException("No limit set while store " + s + " for " + this.getClazz().getName() + " is not implementing " + ActionnableStore.class.getName() + " ; please use withAtMost expression.");
 		int limit;
 		if (this.limit == null)
@@ -367,7 +471,7 @@ public class SearchableClassConstraintBuilder<T extends PersistingElement>
 				if (ex.getExportedElements() < Integer.MAX_VALUE)
 					return exported;
 				else
-					c = new Constraint(ex.getElement().getIdentifier()+Character.MIN_VALUE, c.getEndKey());
+					c = new Constraint(ex.getElement().getIdentifier()+Character.MIN_VALUE, c.getEndKey(), c.getPropertyConstraints());
 			} while (true);
 		} else {
 			return ImportExport.exportPersistingElements(this.iterate(), out).getExportedElements();
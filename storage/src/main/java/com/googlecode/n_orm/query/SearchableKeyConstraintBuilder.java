@@ -17,6 +17,15 @@ public class SearchableKeyConstraintBuilder<T extends PersistingElement> extends
 		return (SearchableClassConstraintBuilder<T>) super.setToInt(value);
 	}
 
+	/**
+	 * Searches for elements whose value for this key is one of the given values.
+	 * All given values are searched at once, and elements are still found in key order.
+	 */
+	@Continuator
+	public SearchableClassConstraintBuilder<T> in(Object... values) {
+		return (SearchableClassConstraintBuilder<T>) super.inInt(values);
+	}
+
 	@Continuator
 	public SearchableClassConstraintBuilder<T> lessOrEqualsThan(Object value) {
 		return (SearchableClassConstraintBuilder<T>) super.lessOrEqualsThanInt(value);
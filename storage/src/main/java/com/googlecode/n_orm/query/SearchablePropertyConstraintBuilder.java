@@ -0,0 +1,68 @@
+package com.googlecode.n_orm.query;
+
+import java.lang.reflect.Field;
+
+import com.googlecode.n_orm.PersistingElement;
+import com.googlecode.n_orm.consoleannotations.Continuator;
+import com.googlecode.n_orm.storeapi.PropertyConstraint;
+
+/**
+ * Restricts a search according to the value of a (non-key) property.
+ * Restriction is checked by the store so that only matching elements are sent back.
+ * Elements with a null value for the property never match.
+ */
+public class SearchablePropertyConstraintBuilder<T extends PersistingElement> {
+	private final SearchableClassConstraintBuilder<T> constraintBuilder;
+	private final Field property;
+
+	SearchablePropertyConstraintBuilder(SearchableClassConstraintBuilder<T> cb, Field property) {
+		this.constraintBuilder = cb;
+		this.property = property;
+	}
+
+	Field getProperty() {
+		return property;
+	}
+
+	private static Object checkValue(Object value) {
+		if (value == PreparedQuery.PARAMETER)
+			throw new IllegalArgumentException("Properties cannot be constrained by parameters of a prepared query");
+		return value;
+	}
+
+	@Continuator
+	public SearchableClassConstraintBuilder<T> setTo(Object value) {
+		this.constraintBuilder.addPropertyConstraint(PropertyConstraint.equalTo(this.property, checkValue(value)));
+		return this.constraintBuilder;
+	}
+
+	@Continuator
+	public SearchableClassConstraintBuilder<T> lessOrEqualsThan(Object value) {
+		this.constraintBuilder.addPropertyConstraint(PropertyConstraint.between(this.property, null, checkValue(value)));
+		return this.constraintBuilder;
+	}
+
+	@Continuator
+	public SearchableClassConstraintBuilder<T> greaterOrEqualsThan(Object value) {
+		this.constraintBuilder.addPropertyConstraint(PropertyConstraint.between(this.property, checkValue(value), null));
+		return this.constraintBuilder;
+	}
+
+	/**
+	 * Both values are inclusive.
+	 */
+	@Continuator
+	public SearchableClassConstraintBuilder<T> between(Object startValue, Object endValue) {
+		this.constraintBuilder.addPropertyConstraint(PropertyConstraint.between(this.property, checkValue(startValue), checkValue(endValue)));
+		return this.constraintBuilder;
+	}
+
+	/**
+	 * Only applicable to properties of type String.
+	 */
+	@Continuator
+	public SearchableClassConstraintBuilder<T> startsWith(String prefix) {
+		this.constraintBuilder.addPropertyConstraint(PropertyConstraint.startingWith(this.property, prefix));
+		return this.constraintBuilder;
+	}
+}
@@ -14,6 +14,12 @@ public class SearchableRangeKeyConstraintBuilder<T extends PersistingElement> ex
 		super(cb, key, startValue);
 	}
 
+	SearchableRangeKeyConstraintBuilder(
+			SearchableClassConstraintBuilder<T> cb, Field key,
+			Object startValue, boolean otherRange) {
+		super(cb, key, startValue, otherRange);
+	}
+
 	@Continuator
 	public SearchableClassConstraintBuilder<T> and(Object includedEndValue) {
 		return (SearchableClassConstraintBuilder<T>) super.andInt(includedEndValue);
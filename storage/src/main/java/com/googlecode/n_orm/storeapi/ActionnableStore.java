@@ -12,4 +12,11 @@ import com.googlecode.n_orm.Process;
  */
 public interface ActionnableStore extends Store {
 	<AE extends PersistingElement, E extends AE> void process(MetaInformation meta, String table, Constraint c, Set<String> families, Class<E> element, Process<AE> action, Callback callback) throws DatabaseNotReachedException;
+	
+	/**
+	 * Deletes all rows of a table matching a constraint.
+	 * Implementations should choose the cheapest way to do so, e.g. dropping and re-creating the table in case it must be emptied completely.
+	 * @param c the constraint rows to be deleted must match ; null to empty the table
+	 */
+	void truncate(MetaInformation meta, String table, Constraint c) throws DatabaseNotReachedException;
 }
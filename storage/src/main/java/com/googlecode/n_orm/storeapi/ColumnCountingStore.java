@@ -0,0 +1,19 @@
+package com.googlecode.n_orm.storeapi;
+
+import com.googlecode.n_orm.DatabaseNotReachedException;
+
+/**
+ * A {@link Store} or {@link SimpleStore} able to count columns of a column family without sending them back,
+ * so that the size of a column family can be known without activating it
+ * (see {@link com.googlecode.n_orm.cf.ColumnFamily#sizeInStore()}).
+ */
+public interface ColumnCountingStore {
+
+	/**
+	 * Counts the number of columns in a column family.
+	 * In case an element is missing (table, row, family, ...), 0 is returned.
+	 * @param meta information about the element and the column family ; may be null
+	 * @param c the constraint columns qualifiers must satisfy ; null to count all columns
+	 */
+	long count(MetaInformation meta, String table, String id, String family, Constraint c) throws DatabaseNotReachedException;
+}
@@ -0,0 +1,23 @@
+package com.googlecode.n_orm.storeapi;
+
+import java.util.Map;
+
+import com.googlecode.n_orm.DatabaseNotReachedException;
+
+/**
+ * A {@link Store} or {@link SimpleStore} able to read columns of a column family by pages,
+ * so that huge column families can be iterated over without being read at once
+ * (see {@link com.googlecode.n_orm.cf.ColumnFamily#iterateInStore(String, int, boolean)}).
+ */
+public interface ColumnPagingStore {
+
+	/**
+	 * Reads at most size columns of a column family, starting after a given qualifier.
+	 * @param meta information about the element and the column family ; may be null
+	 * @param startAfter the qualifier after which columns are read (excluded) ; null to start from the first column, or from the last column in reverse order
+	 * @param size the maximum number of columns to read
+	 * @param reverse whether columns should be read in reverse qualifier order
+	 * @return columns in the order they are read ; may be empty or null in case there is no more column
+	 */
+	Map<String, byte[]> getPage(MetaInformation meta, String table, String id, String family, String startAfter, int size, boolean reverse) throws DatabaseNotReachedException;
+}
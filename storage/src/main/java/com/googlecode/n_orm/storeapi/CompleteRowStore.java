@@ -0,0 +1,11 @@
+package com.googlecode.n_orm.storeapi;
+
+/**
+ * A {@link Store} or {@link SimpleStore} whose search results hold all requested column families:
+ * a column family that was requested when searching but that is absent from a found {@link Row} is known to be empty.
+ * Elements found searching such a store are activated from found rows only ;
+ * otherwise, column families absent from found rows are read again from the store.
+ */
+public interface CompleteRowStore {
+
+}
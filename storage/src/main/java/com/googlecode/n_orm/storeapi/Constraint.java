@@ -1,6 +1,9 @@
 package com.googlecode.n_orm.storeapi;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,7 +11,9 @@ import java.util.Map.Entry;
 
 import org.apache.commons.beanutils.ConvertUtils;
 
+import com.googlecode.n_orm.BinaryKeys;
 import com.googlecode.n_orm.Key;
+import com.googlecode.n_orm.KeyEncoding;
 import com.googlecode.n_orm.KeyManagement;
 import com.googlecode.n_orm.PropertyManagement;
 import com.googlecode.n_orm.conversion.ConversionTools;
@@ -37,15 +42,46 @@ public class Constraint {
 		return ret;
 	}
 	
+	/**
+	 * Converts a value given for a property to the type of the property.
+	 * Strings are parsed in case the property is not a string.
+	 */
+	static Object toValue(Field f, Object val) {
+		Class<?> type = f.getType();
+		if ((val instanceof String) && (! type.isInstance(val))) {
+			if (type.isEnum()) {
+				for (Object ec : type.getEnumConstants()) {
+					if (((Enum<?>)ec).name().equals(val)) {
+						return ec;
+					}
+				}
+				// Enum value not found
+				throw new IllegalArgumentException(val + " is not a possible enum value for " + f);
+			} else
+				return ConvertUtils.convert((String)val, type);
+		}
+		return val;
+	}
+	
 	private final String startKey, endKey;
+	private final List<PropertyConstraint> propertyConstraints;
 	
 	public Constraint(String startKey, String endKey) {
+		this(startKey, endKey, null);
+	}
+	
+	/**
+	 * A search for keys between startKey and endKey whose properties also satisfy all given property constraints.
+	 * @param propertyConstraints can be null or empty ; if not, startKey and endKey may both be null
+	 */
+	public Constraint(String startKey, String endKey, List<PropertyConstraint> propertyConstraints) {
 		// In case we are restricting to one sigle table, this is a constraint that might be violated
 		// See FederatedTableManagement.ConstraintWithTable
-		if (this.getClass() == Constraint.class && startKey == null && endKey == null)
+		if (this.getClass() == Constraint.class && startKey == null && endKey == null && (propertyConstraints == null || propertyConstraints.isEmpty()))
 			throw new IllegalArgumentException("A search requires at least a start or an end value.");
 		this.startKey = startKey;
 		this.endKey = endKey;
+		this.propertyConstraints = propertyConstraints == null || propertyConstraints.isEmpty() ? Collections.<PropertyConstraint>emptyList() : Collections.unmodifiableList(new ArrayList<PropertyConstraint>(propertyConstraints));
 	}
 
 	public Constraint(Map<Field, Object> values, Field searchedKey, Object startValue, Object endValue, boolean checkKeys) {
@@ -65,20 +101,13 @@ public class Constraint {
 			else
 				throw new IllegalArgumentException("Searched key is " + searchedKey + " but neither start value nor end value is provided.");
 		}
+		boolean binary = isBinary(clazz);
 		String fixedPart = getPrefix(clazz, values, searchedKey, checkKeys);
-		String start, end;
-		if (searchedKey == null) {
-			start = null;
-			end = null;
-		} else if (searchedKey.getAnnotation(Key.class).reverted()) {
-			start = ConversionTools.convertToStringReverted(startValue, searchedKey.getType());
-			end = ConversionTools.convertToStringReverted(endValue, searchedKey.getType());
-		} else {
-			start = ConversionTools.convertToString(startValue, searchedKey.getType());
-			end = ConversionTools.convertToString(endValue, searchedKey.getType());
-		}
-		this.startKey = createStart(fixedPart, startValue == null ? null : start);
-		this.endKey = createEnd(fixedPart, endValue == null ? null : end, true);
+		String start = startValue == null ? null : toBound(searchedKey, startValue, binary);
+		String end = endValue == null ? null : toBound(searchedKey, endValue, binary);
+		this.startKey = createStart(fixedPart, start);
+		this.endKey = createEnd(fixedPart, end, true, !binary);
+		this.propertyConstraints = Collections.emptyList();
 	}
 
 	/**
@@ -95,16 +124,44 @@ public class Constraint {
 	}
 	
 	public Constraint(Map<Field, Object> values, Field searchedKey, Constraint subkeySearch, boolean checkKeys) {
+		if (isBinary(searchedKey.getDeclaringClass()))
+			throw new IllegalArgumentException("Cannot search on keys of key " + searchedKey + " as " + searchedKey.getDeclaringClass() + " uses binary key encoding");
 		String fixedPart = getPrefix(searchedKey.getDeclaringClass(), values, searchedKey, checkKeys);
 		this.startKey = createStart(fixedPart, subkeySearch.getStartKey());
-		this.endKey = createEnd(fixedPart, subkeySearch.getEndKey(), false);
+		this.endKey = createEnd(fixedPart, subkeySearch.getEndKey(), false, true);
+		this.propertyConstraints = Collections.emptyList();
 	}
 	
 	public Constraint(Class<?> type, Map<String, Object> values, String searchedKey, Constraint subkeySearch) {
 		this(toMapOfFields(type, values), PropertyManagement.getInstance().getProperty(type, searchedKey), subkeySearch, true);
 	}
 
-	private static String getPrefix(Class<?> clazz, Map<Field, Object> values,Field searchedKey, boolean checkKeys) {
+	static boolean isBinary(Class<?> clazz) {
+		return clazz != null && KeyEncoding.BINARY.equals(KeyManagement.getInstance().getKeyEncoding(clazz));
+	}
+
+	/**
+	 * The representation for given key values, which is a prefix for identifiers of elements with those key values.
+	 * With {@link KeyEncoding#STRING string encoding}, the prefix ends with a separator ;
+	 * with {@link KeyEncoding#BINARY binary encoding}, key representations are self-delimited and the prefix ends with the last key value.
+	 */
+	static String getPrefix(Class<?> clazz, Map<Field, Object> values,Field searchedKey, boolean checkKeys) {
+		Field[] keys = getPrefixKeys(clazz, values, searchedKey, checkKeys);
+		boolean allKeysThere = KeyManagement.getInstance().detectKeys(clazz).size() == keys.length;
+		boolean binary = isBinary(clazz);
+		StringBuilder fixedPartb = new StringBuilder();
+		for(int i = 0; i < keys.length; ++i) {
+			if (keys[i] != null)
+				appendKeyValue(fixedPartb, keys[i], values.get(keys[i]), binary, allKeysThere && i == keys.length-1);
+		}
+		return fixedPartb.length() > 0 ? fixedPartb.toString() : null;
+	}
+
+	/**
+	 * The keys constrained by the given values, in key order, after checking that they can constitute a prefix.
+	 * @return an array with an element per constrained key, which is null in case the key is missing (only possible if checkKeys is false)
+	 */
+	static Field[] getPrefixKeys(Class<?> clazz, Map<Field, Object> values, Field searchedKey, boolean checkKeys) {
 		if (searchedKey == null && values.isEmpty())
 			throw new IllegalArgumentException("A search can only happen on a key ; please, supply one.");
 
@@ -118,50 +175,55 @@ public class Constraint {
 		List<Field> keys = KeyManagement.getInstance().detectKeys(clazz);
 		if (keys.size() < length)
 			throw new IllegalArgumentException("Too many constrained values compared to the number of keys ; only key values may be constrained.");
-		boolean allKeysThere = keys.size() == length;
-		StringBuffer fixedPartb = new StringBuffer();
-		String sep = KeyManagement.KEY_SEPARATOR;
-		Field f; Object val;
-		values = values == null ? new HashMap<Field, Object>() : new HashMap<Field, Object>(values);
+		Field[] ret = new Field[length];
+		int found = 0;
 		for(int i = 0; i < length; ++i) {
-			f = keys.get(i);
-			val = values.get(f);
-			if (val == null) {
+			Field f = keys.get(i);
+			if (values.get(f) == null) {
 				if (checkKeys)
 					throw new IllegalArgumentException("In order to select an element of class " + clazz + ", you must supply a value for " + f);
 			} else {
-				Object actualVal = values.get(keys.get(i));
-				Class<?> type = f.getType();
-				if ((actualVal instanceof String) && (! type.isInstance(actualVal))) {
-					if (type.isEnum()) {
-						for (Object ec : type.getEnumConstants()) {
-							if (((Enum<?>)ec).name().equals(actualVal)) {
-								actualVal = ec;
-								break;
-							}
-						}
-						if (! type.isInstance(actualVal)) // Enum value not found
-							throw new IllegalArgumentException(actualVal + " is not a possible enum value for key " + f);
-					} else
-						actualVal = ConvertUtils.convert((String)actualVal, type);
-				}
-				String rep = f.getAnnotation(Key.class).reverted() ?
-							ConversionTools.convertToStringReverted(actualVal, type)
-						:	ConversionTools.convertToString(actualVal, type);
-				fixedPartb.append(rep);
-				if (allKeysThere && i == length-1)
-					fixedPartb.append(KeyManagement.KEY_END_SEPARATOR);
-				else
-					fixedPartb.append(sep);
-				values.remove(f);
+				ret[i] = f;
+				found++;
 			}
 		}
-		if (!values.isEmpty())
-			throw new IllegalArgumentException("Can only search according to keys with cardinality up to the searched key ; remove values for " + values.keySet());
-		return fixedPartb.length() > 0 ? fixedPartb.toString() : null;
+		if (found != length) {
+			Map<Field, Object> remaining = new HashMap<Field, Object>(values);
+			remaining.keySet().removeAll(Arrays.asList(ret));
+			throw new IllegalArgumentException("Can only search according to keys with cardinality up to the searched key ; remove values for " + remaining.keySet());
+		}
+		return ret;
+	}
+
+	/**
+	 * Appends the representation of a key value to a prefix.
+	 * @param last whether this is the last key of the class, in which case it is followed by {@link KeyManagement#KEY_END_SEPARATOR} in {@link KeyEncoding#STRING string encoding}
+	 */
+	static void appendKeyValue(StringBuilder prefix, Field key, Object value, boolean binary, boolean last) {
+		Object actualVal = toValue(key, value);
+		boolean reverted = key.getAnnotation(Key.class).reverted();
+		if (binary) {
+			BinaryKeys.append(prefix, actualVal, key.getType(), reverted);
+		} else {
+			ConversionTools.appendString(prefix, actualVal, key.getType(), reverted);
+			prefix.append(last ? KeyManagement.KEY_END_SEPARATOR : KeyManagement.KEY_SEPARATOR);
+		}
 	}
 
-	private static String createStart(String fixedPart, String start) {
+	/**
+	 * The representation of a bound for the searched key.
+	 */
+	static String toBound(Field searchedKey, Object value, boolean binary) {
+		boolean reverted = searchedKey.getAnnotation(Key.class).reverted();
+		if (binary)
+			return BinaryKeys.toString(toValue(searchedKey, value), searchedKey.getType(), reverted);
+		else if (reverted)
+			return ConversionTools.convertToStringReverted(value, searchedKey.getType());
+		else
+			return ConversionTools.convertToString(value, searchedKey.getType());
+	}
+
+	static String createStart(String fixedPart, String start) {
 		String ret;
 		if(start == null) {
 			if (fixedPart == null) {
@@ -174,13 +236,18 @@ public class Constraint {
 		return ret;
 	}
 
-	private static String createEnd(String fixedPart, String end, boolean increment) {
+	/**
+	 * @param separated whether the fixed part ends with a separator
+	 */
+	static String createEnd(String fixedPart, String end, boolean increment, boolean separated) {
 		String ret;
 		if (end == null) {
 			if (fixedPart == null) {
 				ret = null;
-			} else {
+			} else if (separated) {
 				ret = fixedPart.substring(0, fixedPart.length()-1);
+			} else {
+				ret = fixedPart;
 			}
 		} else {
 			ret = (fixedPart == null ? "" : fixedPart) + end;
@@ -207,7 +274,33 @@ public class Constraint {
 		return endKey;
 	}
 	
-	public boolean sastisfies(String key) {
+	/**
+	 * Constraints that values of properties for searched keys should all satisfy.
+	 * @return a non-null, possibly empty, list
+	 */
+	public List<PropertyConstraint> getPropertyConstraints() {
+		return propertyConstraints;
+	}
+	
+	/**
+	 * Whether this constraint also restricts values of properties.
+	 */
+	public boolean hasPropertyConstraints() {
+		return !this.propertyConstraints.isEmpty();
+	}
+	
+	/**
+	 * Whether the given row satisfies all {@link #getPropertyConstraints() property constraints}.
+	 */
+	public boolean satisfiesProperties(Row.ColumnFamilyData row) {
+		for (PropertyConstraint pc : this.propertyConstraints) {
+			if (!pc.satisfies(row))
+				return false;
+		}
+		return true;
+	}
+	
+	public boolean satisfies(String key) {
 		if (key == null)
 			throw new IllegalArgumentException("Key cannot be null while checked to satisfy a constraint");
 		if (startKey != null && key.compareTo(startKey)>=0)
@@ -216,5 +309,13 @@ public class Constraint {
 			return false;
 		return true;
 	}
-	
+
+	/**
+	 * @deprecated misspelled ; use {@link #satisfies(String)} instead
+	 */
+	@Deprecated
+	public boolean sastisfies(String key) {
+		return this.satisfies(key);
+	}
+
 }
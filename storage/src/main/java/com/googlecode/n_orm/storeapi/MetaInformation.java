@@ -22,6 +22,7 @@ public class MetaInformation {
 	private Field property;
 	private PersistingElement element;
 	private String tablePostfix;
+	private boolean unordered = false;
 	
 	private final Object mutex = new Object();
 
@@ -34,6 +35,7 @@ public class MetaInformation {
 		this.property = clone.property;
 		this.element = clone.element;
 		this.tablePostfix = clone.tablePostfix;
+		this.unordered = clone.unordered;
 	}
 	
 	/**
@@ -111,6 +113,15 @@ public class MetaInformation {
 		return this;
 	}
 
+	/**
+	 * States that results of a search can be returned in any order.
+	 * Stores may take advantage of this to send results as soon as they are available.
+	 */
+	public MetaInformation unordered() {
+		this.unordered = true;
+		return this;
+	}
+
 	public Class<? extends PersistingElement> getClazz() {
 		// A federated table should be with a postfix (at least "")
 		assert (clazz != null && clazz.getAnnotation(Persisting.class).federated().isFederated()) == (tablePostfix != null);
@@ -137,6 +148,13 @@ public class MetaInformation {
 		return tablePostfix;
 	}
 
+	/**
+	 * Whether results of a search are not expected to be sorted according to their key.
+	 */
+	public boolean isUnordered() {
+		return unordered;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -149,6 +167,7 @@ public class MetaInformation {
 				+ ((property == null) ? 0 : property.hashCode());
 		result = prime * result
 				+ ((tablePostfix == null) ? 0 : tablePostfix.hashCode());
+		result = prime * result + (unordered ? 1231 : 1237);
 		return result;
 	}
 
@@ -186,6 +205,8 @@ public class MetaInformation {
 				return false;
 		} else if (!tablePostfix.equals(other.tablePostfix))
 			return false;
+		if (unordered != other.unordered)
+			return false;
 		return true;
 	}
 
@@ -0,0 +1,21 @@
+package com.googlecode.n_orm.storeapi;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.googlecode.n_orm.DatabaseNotReachedException;
+
+/**
+ * A {@link Store} or {@link SimpleStore} able to read a given set of columns of a column family at once
+ * (see {@link com.googlecode.n_orm.cf.ColumnFamily#getFromStore(java.util.Collection)}).
+ */
+public interface MultiColumnStore {
+
+	/**
+	 * Reads the given columns of a column family.
+	 * @param meta information about the element and the column family ; may be null
+	 * @param qualifiers the qualifiers of the columns to be read
+	 * @return found columns mapped according to their qualifier ; missing columns are not mapped ; may be null in case the row or the table does not exist
+	 */
+	Map<String, byte[]> get(MetaInformation meta, String table, String id, String family, Set<String> qualifiers) throws DatabaseNotReachedException;
+}
@@ -0,0 +1,179 @@
+package com.googlecode.n_orm.storeapi;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.googlecode.n_orm.FederatedTableManagement;
+import com.googlecode.n_orm.Key;
+import com.googlecode.n_orm.KeyManagement;
+
+/**
+ * A {@link Constraint} on a set of key ranges, e.g. to find at once elements with a list of key values.
+ * Ranges are sorted and merged in case they overlap, so that {@link #getRanges()} are disjoint and in key order.
+ * {@link #getStartKey()} and {@link #getEndKey()} bound all ranges ;
+ * stores that implement {@link MultiRangeStore} only return rows that are in one of the ranges,
+ * while other stores are searched range after range by {@link com.googlecode.n_orm.StorageManagement}.
+ */
+public class MultiRangeConstraint extends Constraint {
+
+	/**
+	 * Finds the multi-range constraint in a constraint, possibly wrapped in a {@link FederatedTableManagement.ConstraintWithPostfix}.
+	 * @return null in case the constraint does not define several ranges
+	 */
+	public static MultiRangeConstraint asMultiRange(Constraint c) {
+		while (c instanceof FederatedTableManagement.ConstraintWithPostfix)
+			c = ((FederatedTableManagement.ConstraintWithPostfix)c).getConstraint();
+		return c instanceof MultiRangeConstraint ? (MultiRangeConstraint)c : null;
+	}
+
+	private static final Comparator<Constraint> START_ORDER = new Comparator<Constraint>() {
+
+		@Override
+		public int compare(Constraint o1, Constraint o2) {
+			String s1 = o1.getStartKey(), s2 = o2.getStartKey();
+			if (s1 == null)
+				return s2 == null ? 0 : -1;
+			else if (s2 == null)
+				return 1;
+			return s1.compareTo(s2);
+		}
+	};
+
+	private static boolean isEmpty(Constraint range) {
+		return range.getStartKey() != null && range.getEndKey() != null && range.getStartKey().compareTo(range.getEndKey()) > 0;
+	}
+
+	/**
+	 * Sorts ranges and merges those that overlap ; empty ranges are ignored.
+	 */
+	private static List<Constraint> merge(List<? extends Constraint> ranges, List<PropertyConstraint> propertyConstraints) {
+		if (ranges == null || ranges.isEmpty())
+			throw new IllegalArgumentException("A multi-range search requires at least one range.");
+		List<Constraint> sorted = new ArrayList<Constraint>(ranges.size());
+		for (Constraint range : ranges) {
+			if (!isEmpty(range))
+				sorted.add(range);
+		}
+		Collections.sort(sorted, START_ORDER);
+
+		List<Constraint> ret = new ArrayList<Constraint>(sorted.size());
+		String start = null, end = null;
+		boolean open = false;
+		for (Constraint range : sorted) {
+			if (open && (end == null || (range.getStartKey() != null && range.getStartKey().compareTo(end) > 0))) {
+				if (end == null)
+					break; //Current range already runs to the end of the table
+				ret.add(new Constraint(start, end, propertyConstraints));
+				open = false;
+			}
+			if (!open) {
+				start = range.getStartKey();
+				end = range.getEndKey();
+				open = true;
+			} else if (range.getEndKey() == null || range.getEndKey().compareTo(end) > 0) {
+				end = range.getEndKey();
+			}
+		}
+		if (open)
+			ret.add(new Constraint(start, end, propertyConstraints));
+		return ret;
+	}
+
+	private static List<Constraint> toRanges(Class<?> clazz, Map<Field, Object> values, Field searchedKey, Object[] startValues, Object[] endValues, boolean[] exactValues) {
+		if (startValues.length != endValues.length)
+			throw new IllegalArgumentException("Expecting as many start values (" + startValues.length + ") as end values (" + endValues.length + ")");
+		if (exactValues != null && exactValues.length != startValues.length)
+			throw new IllegalArgumentException("Expecting as many exact value flags (" + exactValues.length + ") as start values (" + startValues.length + ")");
+		boolean binary = isBinary(clazz);
+		String fixedPart = getPrefix(clazz, values, searchedKey, true);
+		boolean lastKey = KeyManagement.getInstance().detectKeys(clazz).size() == searchedKey.getAnnotation(Key.class).order();
+		List<Constraint> ret = new ArrayList<Constraint>(startValues.length);
+		for (int i = 0; i < startValues.length; ++i) {
+			if (exactValues != null && exactValues[i]) {
+				if (startValues[i] == null)
+					throw new IllegalArgumentException("Searched key is " + searchedKey + " but no value is provided for range " + i);
+				//Same as setting the key value: the value is followed by its separator so that it is not taken as a prefix
+				StringBuilder exact = new StringBuilder(fixedPart == null ? "" : fixedPart);
+				appendKeyValue(exact, searchedKey, startValues[i], binary, lastKey);
+				ret.add(new Constraint(exact.toString(), createEnd(null, exact.toString(), true, !binary)));
+				continue;
+			}
+			if (startValues[i] == null && endValues[i] == null)
+				throw new IllegalArgumentException("Searched key is " + searchedKey + " but neither start value nor end value is provided for range " + i);
+			String start = startValues[i] == null ? null : toBound(searchedKey, startValues[i], binary);
+			String end = endValues[i] == null ? null : toBound(searchedKey, endValues[i], binary);
+			ret.add(new Constraint(createStart(fixedPart, start), createEnd(fixedPart, end, true, !binary)));
+		}
+		return ret;
+	}
+
+	private final List<Constraint> ranges;
+
+	/**
+	 * A search for keys in any of the given ranges whose properties also satisfy all given property constraints.
+	 * Property constraints of the given ranges are ignored.
+	 * @param ranges a non empty list of ranges, in any order
+	 * @param propertyConstraints can be null or empty
+	 */
+	public MultiRangeConstraint(List<? extends Constraint> ranges, List<PropertyConstraint> propertyConstraints) {
+		this(ranges, merge(ranges, propertyConstraints), propertyConstraints);
+	}
+
+	/**
+	 * Describes a search for a particular key in several ranges, as {@link Constraint#Constraint(Class, Map, Field, Object, Object, boolean)} does for one range, with checking keys.
+	 * Range i starts at startValues[i] and ends at endValues[i], both inclusive, and one of them can be null.
+	 * @param propertyConstraints can be null or empty
+	 */
+	public MultiRangeConstraint(Class<?> clazz, Map<Field, Object> values, Field searchedKey, Object[] startValues, Object[] endValues, List<PropertyConstraint> propertyConstraints) {
+		this(clazz, values, searchedKey, startValues, endValues, null, propertyConstraints);
+	}
+
+	/**
+	 * Describes a search for a particular key in several ranges, as {@link #MultiRangeConstraint(Class, Map, Field, Object[], Object[], List)} does,
+	 * where some ranges are a single key value.
+	 * @param exactValues in case exactValues[i] is true, range i only matches value startValues[i] for the searched key, exactly as setting the key value would do, and endValues[i] is ignored ; can be null if there is no such range
+	 */
+	public MultiRangeConstraint(Class<?> clazz, Map<Field, Object> values, Field searchedKey, Object[] startValues, Object[] endValues, boolean[] exactValues, List<PropertyConstraint> propertyConstraints) {
+		this(toRanges(clazz, values, searchedKey, startValues, endValues, exactValues), propertyConstraints);
+	}
+
+	private MultiRangeConstraint(List<? extends Constraint> requested, List<Constraint> ranges, List<PropertyConstraint> propertyConstraints) {
+		//In case all requested ranges are empty, bounds of the first one are kept so that this constraint is not satisfiable
+		super(ranges.isEmpty() ? requested.get(0).getStartKey() : ranges.get(0).getStartKey(),
+				ranges.isEmpty() ? requested.get(0).getEndKey() : ranges.get(ranges.size()-1).getEndKey(),
+				propertyConstraints);
+		this.ranges = Collections.unmodifiableList(ranges);
+	}
+
+	/**
+	 * Disjoint and non-empty ranges, in key order, each with the {@link #getPropertyConstraints() property constraints} of this constraint.
+	 * @return a possibly empty list in case no range can be satisfied
+	 */
+	public List<Constraint> getRanges() {
+		return this.ranges;
+	}
+
+	/**
+	 * This constraint restricted to keys greater or equal to the given key, e.g. to resume a search after the last found key.
+	 */
+	public MultiRangeConstraint startingFrom(String startKey) {
+		List<Constraint> remaining = new ArrayList<Constraint>(this.ranges.size());
+		for (Constraint range : this.ranges) {
+			if (range.getEndKey() != null && range.getEndKey().compareTo(startKey) < 0)
+				continue;
+			if (range.getStartKey() == null || range.getStartKey().compareTo(startKey) < 0)
+				remaining.add(new Constraint(startKey, range.getEndKey(), this.getPropertyConstraints()));
+			else
+				remaining.add(range);
+		}
+		if (remaining.isEmpty())
+			//All ranges end before startKey ; keeping an empty range
+			remaining.add(new Constraint(startKey, this.getEndKey(), this.getPropertyConstraints()));
+		return new MultiRangeConstraint(remaining, this.getPropertyConstraints());
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.googlecode.n_orm.storeapi;
+
+/**
+ * A {@link Store} or {@link SimpleStore} able to search for rows in several key ranges at once.
+ * In case a search is given a {@link MultiRangeConstraint} (possibly wrapped in a {@link com.googlecode.n_orm.FederatedTableManagement.ConstraintWithPostfix}),
+ * such a store should only return (or count) rows that are in one of its {@link MultiRangeConstraint#getRanges() ranges},
+ * and still return them in key order unless searched {@link MetaInformation#isUnordered() in any order}.
+ * Stores that do not implement this interface are searched range after range.
+ */
+public interface MultiRangeStore {
+
+}
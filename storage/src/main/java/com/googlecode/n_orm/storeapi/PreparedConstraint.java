@@ -0,0 +1,146 @@
+package com.googlecode.n_orm.storeapi;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.googlecode.n_orm.KeyManagement;
+
+/**
+ * A {@link Constraint} on the keys of a class whose shape is known in advance,
+ * while some values are only known when the constraint is {@link #bind(Object...) bound}.
+ * Values that are not known in advance are given as {@link #PARAMETER}.
+ * Representations for values known in advance are computed once,
+ * so that binding only converts parameters.
+ * Prepared constraints are immutable and can be bound concurrently.
+ * <p>
+ * Parameters are numbered in key order, and a parameter for the start value of the searched key
+ * comes before a parameter for its end value.
+ * </p>
+ */
+public class PreparedConstraint {
+
+	/**
+	 * The value to be given for a key value that is not known in advance.
+	 */
+	public static final Object PARAMETER = new Object() {
+		@Override
+		public String toString() {
+			return "?";
+		}
+	};
+
+	private final boolean binary;
+	private final Field[] keys;
+	// Representation of each constrained key ; null in case its value is a parameter
+	private final String[] representations;
+	// Whether each constrained key is the last key of the class
+	private final boolean[] lastKeys;
+	// Representation of all constrained keys in case none of them is a parameter
+	private final String constantPrefix;
+	private final Field searchedKey;
+	private final boolean startParameter, endParameter;
+	private final String start, end;
+	private final List<PropertyConstraint> propertyConstraints;
+	private final int parameterCount;
+
+	/**
+	 * Describes a search for a particular key, as {@link Constraint#Constraint(Class, Map, Field, Object, Object, boolean)} does, with checking keys.
+	 * @param values values for constrained keys ; may be {@link #PARAMETER}
+	 * @param searchedKey can be null in case no range is searched
+	 * @param startValue inclusive ; may be {@link #PARAMETER} or null
+	 * @param endValue inclusive ; may be {@link #PARAMETER} or null
+	 * @param propertyConstraints can be null or empty
+	 */
+	public PreparedConstraint(Class<?> clazz, Map<Field, Object> values, Field searchedKey, Object startValue, Object endValue, List<PropertyConstraint> propertyConstraints) {
+		if (searchedKey == null != (startValue == null && endValue == null)) {
+			if (searchedKey == null)
+				throw new IllegalArgumentException("No searched key defined while either start key (" + startValue + ") or end key (" + endValue + ") is provided.");
+			else
+				throw new IllegalArgumentException("Searched key is " + searchedKey + " but neither start value nor end value is provided.");
+		}
+		this.binary = Constraint.isBinary(clazz);
+		this.propertyConstraints = propertyConstraints == null || propertyConstraints.isEmpty() ? Collections.<PropertyConstraint>emptyList() : Collections.unmodifiableList(new ArrayList<PropertyConstraint>(propertyConstraints));
+		int parameterCount = 0;
+
+		if (values.isEmpty() && searchedKey == null) {
+			this.keys = new Field[0];
+		} else {
+			this.keys = Constraint.getPrefixKeys(clazz, values, searchedKey, true);
+		}
+		int keyCount = KeyManagement.getInstance().detectKeys(clazz).size();
+		this.representations = new String[this.keys.length];
+		this.lastKeys = new boolean[this.keys.length];
+		for (int i = 0; i < this.keys.length; ++i) {
+			this.lastKeys[i] = i == keyCount-1;
+			Object value = values.get(this.keys[i]);
+			if (value == PARAMETER) {
+				parameterCount++;
+			} else {
+				StringBuilder rep = new StringBuilder();
+				Constraint.appendKeyValue(rep, this.keys[i], value, this.binary, this.lastKeys[i]);
+				this.representations[i] = rep.toString();
+			}
+		}
+		this.constantPrefix = parameterCount == 0 ? this.bindPrefix(null) : null;
+
+		this.searchedKey = searchedKey;
+		this.startParameter = startValue == PARAMETER;
+		this.endParameter = endValue == PARAMETER;
+		this.start = startValue == null || this.startParameter ? null : Constraint.toBound(searchedKey, startValue, this.binary);
+		this.end = endValue == null || this.endParameter ? null : Constraint.toBound(searchedKey, endValue, this.binary);
+		if (this.startParameter)
+			parameterCount++;
+		if (this.endParameter)
+			parameterCount++;
+		this.parameterCount = parameterCount;
+	}
+
+	/**
+	 * The number of values expected by {@link #bind(Object...)}.
+	 */
+	public int getParameterCount() {
+		return parameterCount;
+	}
+
+	private String bindPrefix(Object[] parameters) {
+		StringBuilder ret = new StringBuilder();
+		int p = 0;
+		for (int i = 0; i < this.keys.length; ++i) {
+			if (this.representations[i] == null)
+				Constraint.appendKeyValue(ret, this.keys[i], parameters[p++], this.binary, this.lastKeys[i]);
+			else
+				ret.append(this.representations[i]);
+		}
+		return ret.length() > 0 ? ret.toString() : null;
+	}
+
+	/**
+	 * Creates the constraint with the given values for parameters.
+	 * @return null in case this constraint neither constrains keys nor properties
+	 * @throws IllegalArgumentException in case the number of values is not {@link #getParameterCount()}, or a value is null
+	 */
+	public Constraint bind(Object... parameters) {
+		if (parameters == null)
+			parameters = new Object[0];
+		if (parameters.length != this.parameterCount)
+			throw new IllegalArgumentException("Expecting " + this.parameterCount + " parameters while " + parameters.length + " are given");
+		for (Object parameter : parameters) {
+			if (parameter == null || parameter == PARAMETER)
+				throw new IllegalArgumentException("Cannot bind a parameter to " + parameter);
+		}
+
+		String fixedPart = this.constantPrefix == null ? this.bindPrefix(parameters) : this.constantPrefix;
+		int p = parameters.length - (this.startParameter ? 1 : 0) - (this.endParameter ? 1 : 0);
+		String start = this.startParameter ? Constraint.toBound(this.searchedKey, parameters[p++], this.binary) : this.start;
+		String end = this.endParameter ? Constraint.toBound(this.searchedKey, parameters[p++], this.binary) : this.end;
+
+		String startKey = Constraint.createStart(fixedPart, start);
+		String endKey = Constraint.createEnd(fixedPart, end, true, !this.binary);
+		if (startKey == null && endKey == null && this.propertyConstraints.isEmpty())
+			return null;
+		return new Constraint(startKey, endKey, this.propertyConstraints);
+	}
+}
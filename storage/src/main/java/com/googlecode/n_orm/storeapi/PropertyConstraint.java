@@ -0,0 +1,252 @@
+package com.googlecode.n_orm.storeapi;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import com.googlecode.n_orm.PropertyManagement;
+import com.googlecode.n_orm.conversion.ConversionTools;
+
+/**
+ * A restriction on the value of a property for a {@link Constraint search}.
+ * Returned rows should have a value for the property in the {@link PropertyManagement#PROPERTY_COLUMNFAMILY_NAME property column family}
+ * that satisfies this restriction ; rows without value for the property should not be returned.
+ * Values are compared according to their binary representation (see {@link ConversionTools#convert(Object, Class)}).
+ * In case the representation is {@link #isSigned() signed}, the first bit of the representation is a sign bit,
+ * i.e. representations starting with a 1 are lower than representations starting with a 0.
+ */
+public class PropertyConstraint {
+
+	public static enum Operator {
+		/**
+		 * Value should be equal to {@link PropertyConstraint#getValue()}.
+		 */
+		EQUALS,
+		/**
+		 * Value should be between {@link PropertyConstraint#getValue()} and {@link PropertyConstraint#getEndValue()} (both inclusive and nullable).
+		 */
+		RANGE,
+		/**
+		 * Value should start with {@link PropertyConstraint#getValue()}.
+		 */
+		PREFIX
+	}
+
+	private static boolean isSignedType(Class<?> type) {
+		return type.equals(byte.class) || type.equals(Byte.class)
+				|| type.equals(short.class) || type.equals(Short.class)
+				|| type.equals(int.class) || type.equals(Integer.class)
+				|| type.equals(long.class) || type.equals(Long.class)
+				|| Date.class.isAssignableFrom(type);
+	}
+
+	private static boolean isUnsignedType(Class<?> type) {
+		return type.equals(String.class)
+				|| type.equals(char.class) || type.equals(Character.class);
+	}
+
+	private static byte[] toBytes(Field property, Object value) {
+		if (value == null)
+			return null;
+		return ConversionTools.convert(Constraint.toValue(property, value), property.getType());
+	}
+
+	/**
+	 * Compares two binary representations.
+	 * @param signed whether the first bit of representations is a sign bit
+	 */
+	public static int compare(byte[] lhs, byte[] rhs, boolean signed) {
+		int len = Math.min(lhs.length, rhs.length);
+		for (int i = 0; i < len; ++i) {
+			int l = lhs[i] & 0xFF, r = rhs[i] & 0xFF;
+			if (signed && i == 0) {
+				l ^= 0x80;
+				r ^= 0x80;
+			}
+			if (l != r)
+				return l - r;
+		}
+		return lhs.length - rhs.length;
+	}
+
+	private final String family;
+	private final String qualifier;
+	private final Operator operator;
+	private final byte[] value, endValue;
+	private final boolean signed;
+
+	public PropertyConstraint(String family, String qualifier, Operator operator, byte[] value, byte[] endValue, boolean signed) {
+		if (operator == null)
+			throw new IllegalArgumentException("A property constraint requires an operator.");
+		if (value == null && (operator != Operator.RANGE || endValue == null))
+			throw new IllegalArgumentException("A property constraint requires a value.");
+		this.family = family;
+		this.qualifier = qualifier;
+		this.operator = operator;
+		this.value = value;
+		this.endValue = endValue;
+		this.signed = signed;
+	}
+
+	/**
+	 * Requests property to be equal to the given value.
+	 */
+	public static PropertyConstraint equalTo(Field property, Object value) {
+		if (value == null)
+			throw new IllegalArgumentException("Cannot search for a null value of property " + property);
+		return new PropertyConstraint(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, property.getName(), Operator.EQUALS, toBytes(property, value), null, false);
+	}
+
+	/**
+	 * Requests property to be between the given values.
+	 * Only properties with a string, character, integral number or date type can be searched according to a range.
+	 * @param from the minimal value (inclusive) ; null if not bounded
+	 * @param to the maximal value (inclusive) ; null if not bounded
+	 */
+	public static PropertyConstraint between(Field property, Object from, Object to) {
+		Class<?> type = property.getType();
+		boolean signed = isSignedType(type);
+		if (!signed && !isUnsignedType(type))
+			throw new IllegalArgumentException("Cannot search for a range of values for property " + property + " of type " + type + " ; only strings, characters, integral numbers and dates can be ordered");
+		if (from == null && to == null)
+			throw new IllegalArgumentException("Searching for a range of values for property " + property + " requires at least a minimal or a maximal value");
+		return new PropertyConstraint(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, property.getName(), Operator.RANGE, toBytes(property, from), toBytes(property, to), signed);
+	}
+
+	/**
+	 * Requests a string property to start with the given prefix.
+	 */
+	public static PropertyConstraint startingWith(Field property, String prefix) {
+		if (!property.getType().equals(String.class))
+			throw new IllegalArgumentException("Cannot search for a prefix of property " + property + " as it is not a string");
+		if (prefix == null)
+			throw new IllegalArgumentException("Cannot search for a null prefix of property " + property);
+		return new PropertyConstraint(PropertyManagement.PROPERTY_COLUMNFAMILY_NAME, property.getName(), Operator.PREFIX, ConversionTools.convert(prefix, String.class), null, false);
+	}
+
+	/**
+	 * The column family where to find the property.
+	 */
+	public String getFamily() {
+		return family;
+	}
+
+	/**
+	 * The name of the property, i.e. its qualifier in {@link #getFamily() its column family}.
+	 */
+	public String getQualifier() {
+		return qualifier;
+	}
+
+	public Operator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * The expected value, prefix, or minimal value (inclusive and nullable in case of a {@link Operator#RANGE range}).
+	 */
+	public byte[] getValue() {
+		return value;
+	}
+
+	/**
+	 * The maximal value (inclusive and nullable) in case of a {@link Operator#RANGE range} ; null otherwise.
+	 */
+	public byte[] getEndValue() {
+		return endValue;
+	}
+
+	/**
+	 * Whether the first bit of compared representations is a sign bit.
+	 */
+	public boolean isSigned() {
+		return signed;
+	}
+
+	/**
+	 * Whether the given representation satisfies this constraint.
+	 * @param rep the representation of the value ; null if no value is known
+	 */
+	public boolean satisfies(byte[] rep) {
+		if (rep == null)
+			return false;
+		switch (this.operator) {
+		case EQUALS:
+			return Arrays.equals(this.value, rep);
+		case PREFIX:
+			if (rep.length < this.value.length)
+				return false;
+			for (int i = 0; i < this.value.length; ++i) {
+				if (rep[i] != this.value[i])
+					return false;
+			}
+			return true;
+		case RANGE:
+			if (this.value != null && compare(rep, this.value, this.signed) < 0)
+				return false;
+			if (this.endValue != null && compare(rep, this.endValue, this.signed) > 0)
+				return false;
+			return true;
+		default:
+			assert false;
+			return false;
+		}
+	}
+
+	/**
+	 * Whether the given row satisfies this constraint.
+	 */
+	public boolean satisfies(Row.ColumnFamilyData row) {
+		Map<String, byte[]> fam = row == null ? null : row.get(this.family);
+		return this.satisfies(fam == null ? null : fam.get(this.qualifier));
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(endValue);
+		result = prime * result + ((family == null) ? 0 : family.hashCode());
+		result = prime * result + ((operator == null) ? 0 : operator.hashCode());
+		result = prime * result + ((qualifier == null) ? 0 : qualifier.hashCode());
+		result = prime * result + (signed ? 1231 : 1237);
+		result = prime * result + Arrays.hashCode(value);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PropertyConstraint other = (PropertyConstraint) obj;
+		if (!Arrays.equals(endValue, other.endValue))
+			return false;
+		if (family == null) {
+			if (other.family != null)
+				return false;
+		} else if (!family.equals(other.family))
+			return false;
+		if (operator != other.operator)
+			return false;
+		if (qualifier == null) {
+			if (other.qualifier != null)
+				return false;
+		} else if (!qualifier.equals(other.qualifier))
+			return false;
+		if (signed != other.signed)
+			return false;
+		if (!Arrays.equals(value, other.value))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return this.family + ':' + this.qualifier + ' ' + this.operator;
+	}
+}
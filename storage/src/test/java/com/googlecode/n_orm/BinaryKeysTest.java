@@ -0,0 +1,193 @@
+package com.googlecode.n_orm;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryKeysTest {
+
+	public BinaryKeysTest() throws Exception {
+		StoreTestLauncher.registerStorePropertiesForInnerClasses(getClass());
+	}
+
+	public static enum Color {RED, GREEN, BLUE}
+
+	public static class Inner {
+		@Key(order=1) public String name;
+		@Key(order=2) public int rank;
+	}
+
+	@Persisting(table="BinaryKeysTest", keyEncoding=KeyEncoding.BINARY)
+	public static class Full {
+		private static final long serialVersionUID = -2541376870543208342L;
+		@Key(order=1) public String s;
+		@Key(order=2) public int i;
+		@Key(order=3, reverted=true) public long l;
+		@Key(order=4) public Date d;
+		@Key(order=5) public Inner inner;
+		@Key(order=6) public int[] a;
+		@Key(order=7) public boolean b;
+		@Key(order=8) public Color c;
+		@Key(order=9) public char ch;
+	}
+
+	@Persisting(table="BinaryKeysTestSearch", keyEncoding=KeyEncoding.BINARY)
+	public static class Searched {
+		private static final long serialVersionUID = 4170813548087584220L;
+		@Key(order=1) public String s;
+		@Key(order=2) public int i;
+		public String value;
+	}
+
+	@Persisting(table="BinaryKeysTestString")
+	public static class StringSearched {
+		private static final long serialVersionUID = -7424637541367051373L;
+		@Key(order=1) public String s;
+		@Key(order=2) public int i;
+	}
+
+	@Persisting(table="BinaryKeysTestString")
+	public static class Referencing {
+		private static final long serialVersionUID = 2092735112962766815L;
+		@Key public Searched ref;
+	}
+
+	@Before
+	@After
+	public void cleanup() {
+		for (Searched s : StorageManagement.findElements().ofClass(Searched.class).withAtMost(1000).elements().go()) {
+			s.delete();
+		}
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+	}
+
+	private static Searched searched(String s, int i) {
+		Searched ret = new Searched();
+		ret.s = s;
+		ret.i = i;
+		return ret;
+	}
+
+	@Test
+	public void identifier() {
+		Full f = new Full();
+		f.s = "a\u0000string";
+		f.i = -12;
+		f.l = 123456789012l;
+		f.d = new Date(987654321);
+		f.inner = new Inner();
+		f.inner.name = "inner";
+		f.inner.rank = 3;
+		f.a = new int[] {1, -2, 3};
+		f.b = true;
+		f.c = Color.GREEN;
+		f.ch = 'z';
+		String id = f.getIdentifier();
+		assertTrue(id.endsWith(KeyManagement.KEY_END_SEPARATOR));
+
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Full read = KeyManagement.getInstance().createElement(Full.class, id);
+		assertNotSame(f, read);
+		assertEquals(f.s, read.s);
+		assertEquals(f.i, read.i);
+		assertEquals(f.l, read.l);
+		assertEquals(f.d, read.d);
+		assertEquals(f.inner.name, read.inner.name);
+		assertEquals(f.inner.rank, read.inner.rank);
+		assertArrayEquals(f.a, read.a);
+		assertEquals(f.b, read.b);
+		assertEquals(f.c, read.c);
+		assertEquals(f.ch, read.ch);
+		assertEquals(id, read.getIdentifier());
+
+		assertSame(read, KeyManagement.getInstance().createElement(PersistingElement.class, read.getFullIdentifier()));
+	}
+
+	@Test
+	public void compact() {
+		Searched bin = searched("key", 123456);
+		StringSearched str = new StringSearched();
+		str.s = bin.s;
+		str.i = bin.i;
+		assertTrue(bin.getIdentifier().length() < str.getIdentifier().length());
+	}
+
+	@Test
+	public void order() {
+		List<String> ids = new ArrayList<String>();
+		for (Searched s : Arrays.asList(searched("", 0), searched("A", Integer.MIN_VALUE), searched("A", -1), searched("A", 0), searched("A", 1), searched("A", Integer.MAX_VALUE), searched("A\u0000", 0), searched("AA", 0), searched("B", -5))) {
+			ids.add(s.getIdentifier());
+		}
+		for (int i = 1; i < ids.size(); ++i) {
+			assertTrue(ids.get(i-1).compareTo(ids.get(i)) < 0);
+		}
+	}
+
+	@Test
+	public void revertedOrder() {
+		Full f1 = new Full(), f2 = new Full();
+		for (Full f : new Full[] {f1, f2}) {
+			f.s = "s";
+			f.i = 0;
+			f.d = new Date(0);
+			f.inner = new Inner();
+			f.inner.name = "";
+			f.a = new int[0];
+			f.c = Color.RED;
+		}
+		f1.l = -1;
+		f2.l = 1;
+		assertTrue(f1.getIdentifier().compareTo(f2.getIdentifier()) > 0);
+	}
+
+	@Test
+	public void search() {
+		for (String s : new String[] {"A", "AA", "B"}) {
+			for (int i = -2; i <= 2; ++i) {
+				searched(s, i).store();
+			}
+		}
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+
+		assertEquals(15, StorageManagement.findElements().ofClass(Searched.class).withAtMost(1000).elements().count());
+		assertEquals(5, StorageManagement.findElements().ofClass(Searched.class).withKey("s").setTo("A").withAtMost(1000).elements().count());
+		assertEquals(10, StorageManagement.findElements().ofClass(Searched.class).withKey("s").between("A").and("AA").withAtMost(1000).elements().count());
+
+		List<Integer> found = new ArrayList<Integer>();
+		for (Searched s : StorageManagement.findElements().ofClass(Searched.class).withKey("s").setTo("A").withKey("i").between(-1).and(1).withAtMost(1000).elements().go()) {
+			assertEquals("A", s.s);
+			found.add(s.i);
+		}
+		assertEquals(3, found.size());
+		assertTrue(found.containsAll(Arrays.asList(-1, 0, 1)));
+
+		Searched first = StorageManagement.findElements().ofClass(Searched.class).withKey("s").setTo("AA").withKey("i").greaterOrEqualsThan(-1).any();
+		assertEquals("AA", first.s);
+		assertEquals(-1, first.i);
+	}
+
+	@Test
+	public void migration() {
+		StringSearched str = new StringSearched();
+		str.s = "key";
+		str.i = -3;
+		Searched bin = KeyManagement.getInstance().createElement(Searched.class, str.getIdentifier(), KeyEncoding.STRING);
+		assertEquals("key", bin.s);
+		assertEquals(-3, bin.i);
+		assertEquals(searched("key", -3).getIdentifier(), bin.getIdentifier());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void binaryKeyInStringKey() {
+		Referencing r = new Referencing();
+		r.ref = searched("key", 1);
+		r.getIdentifier();
+	}
+}
@@ -0,0 +1,66 @@
+package com.googlecode.n_orm;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ClassPropertiesTest {
+	
+	public static class Parent {
+		@Key(order=1, reverted=true) public int key;
+		public String name;
+		public String hidden;
+		public static String notAProperty;
+		public transient String notAPropertyEither;
+	}
+	
+	public static class Child extends Parent {
+		public String hidden;
+		@ImplicitActivation public Book book;
+	}
+	
+	private final PropertyManagement pm = PropertyManagement.getInstance();
+
+	@Test
+	public void properties() throws Exception {
+		Set<Field> props = pm.getProperties(Child.class);
+		assertEquals(5, props.size());
+		assertTrue(props.contains(Parent.class.getField("name")));
+		assertTrue(props.contains(Parent.class.getField("hidden")));
+		assertTrue(props.contains(Child.class.getField("hidden")));
+		assertFalse(props.contains(Parent.class.getField("notAProperty")));
+		assertFalse(props.contains(Parent.class.getField("notAPropertyEither")));
+		assertSame(props, pm.getProperties(Child.class));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void unmodifiable() {
+		pm.getProperties(Child.class).clear();
+	}
+
+	@Test
+	public void byName() throws Exception {
+		assertEquals(Parent.class.getField("name"), pm.getProperty(Child.class, "name"));
+		assertEquals(Child.class.getField("hidden"), pm.getProperty(Child.class, "hidden"));
+		assertEquals(Parent.class.getField("hidden"), pm.getProperty(Parent.class, "hidden"));
+		assertNull(pm.getProperty(Child.class, "notAProperty"));
+		assertNull(pm.getProperty(Child.class, "unknown"));
+	}
+
+	@Test
+	public void flags() throws Exception {
+		ClassProperties props = pm.getClassProperties(Child.class);
+		Field key = Parent.class.getField("key"), name = Parent.class.getField("name"), book = Child.class.getField("book");
+		assertTrue(props.isKey(key));
+		assertTrue(props.isReverted(key));
+		assertFalse(props.isKey(name));
+		assertFalse(props.isReverted(name));
+		assertTrue(props.isPersistingType(book));
+		assertFalse(props.isPersistingType(name));
+		assertTrue(props.isImplicitActivation(book));
+		assertFalse(props.isImplicitActivation(name));
+	}
+}
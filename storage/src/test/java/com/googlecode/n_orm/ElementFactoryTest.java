@@ -0,0 +1,116 @@
+package com.googlecode.n_orm;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Checks that elements are created from their keys by a factory resolved once per class
+ * (see {@link KeyManagement#getElementFactory(Class)}).
+ */
+public class ElementFactoryTest {
+	
+	public static class Element {
+		@Key(order=1) public String key1;
+		@Key(order=2) public int key2;
+	}
+	
+	public static class SubElement extends Element {
+	}
+	
+	public static class KeyMapElement {
+		@Key(order=1) public String key1;
+		@Key(order=2) public int key2;
+		
+		public KeyMapElement(@KeyMap("key2") int key2, @KeyMap("key1") String key1) {
+			this.key1 = key1;
+			this.key2 = key2;
+		}
+	}
+	
+	public static class KeyConstructorElement {
+		@Key(order=1) public String key1;
+		@Key(order=2) public int key2;
+		
+		public KeyConstructorElement(String key1, int key2) {
+			this.key1 = key1;
+			this.key2 = key2;
+		}
+	}
+	
+	public static class WrongKeyMapElement {
+		@Key public String key1;
+		
+		public WrongKeyMapElement(@KeyMap("key2") String key1) {
+			this.key1 = key1;
+		}
+	}
+	
+	private static Object[] keys(int i) {
+		return new Object[] {"key", i};
+	}
+
+	@Test
+	public void defaultConstructor() throws Exception {
+		Element e = KeyManagement.getInstance().createElement(Element.class, keys(12));
+		assertEquals(Element.class, e.getClass());
+		assertEquals("key", e.key1);
+		assertEquals(12, e.key2);
+	}
+
+	@Test
+	public void keyMapConstructor() throws Exception {
+		KeyMapElement e = KeyManagement.getInstance().createElement(KeyMapElement.class, keys(12));
+		assertEquals("key", e.key1);
+		assertEquals(12, e.key2);
+	}
+
+	@Test
+	public void keyConstructor() throws Exception {
+		KeyConstructorElement e = KeyManagement.getInstance().createElement(KeyConstructorElement.class, keys(12));
+		assertEquals("key", e.key1);
+		assertEquals(12, e.key2);
+	}
+
+	@Test
+	public void subclass() throws Exception {
+		KeyManagement km = KeyManagement.getInstance();
+		Element e = km.createElement(Element.class, keys(1));
+		SubElement s = km.createElement(SubElement.class, keys(2));
+		assertEquals(Element.class, e.getClass());
+		assertEquals(SubElement.class, s.getClass());
+		assertEquals(2, s.key2);
+		assertNotSame(km.getElementFactory(Element.class), km.getElementFactory(SubElement.class));
+	}
+
+	@Test
+	public void factoryIsCached() throws Exception {
+		KeyManagement km = KeyManagement.getInstance();
+		KeyManagement.ElementFactory factory = km.getElementFactory(KeyMapElement.class);
+		assertSame(factory, km.getElementFactory(KeyMapElement.class));
+		km.createElement(KeyMapElement.class, keys(3));
+		assertSame(factory, km.getElementFactory(KeyMapElement.class));
+		assertNotSame(factory, km.resolveElementFactory(KeyMapElement.class));
+	}
+
+	@Test
+	public void wrongNumberOfKeys() throws Exception {
+		try {
+			KeyManagement.getInstance().getElementFactory(Element.class).create(new Object[] {"key"});
+			fail();
+		} catch (IllegalArgumentException x) {
+		}
+	}
+
+	@Test
+	public void errorsAreNotCached() {
+		for (int i = 0; i < 2; ++i) {
+			try {
+				KeyManagement.getInstance().createElement(WrongKeyMapElement.class, new Object[] {"key"});
+				fail();
+			} catch (RuntimeException x) {
+				assertTrue(x.getCause() instanceof IllegalArgumentException);
+			}
+		}
+	}
+}
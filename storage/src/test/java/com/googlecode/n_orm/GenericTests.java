@@ -15,6 +15,7 @@ import com.googlecode.n_orm.cf.CollectionStorageTest;
 		PersistableSearchTest.class,
 		InheritanceTest.class,
 		ReveresedOrderSearchTest.class,
+		PropertySearchTest.class,
 		EvolutionTest.class,
 		ElementWithWriteRetensionTest.class,
 		ImportExportTest.class,
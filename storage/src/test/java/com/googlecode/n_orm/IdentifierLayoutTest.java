@@ -0,0 +1,143 @@
+package com.googlecode.n_orm;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.n_orm.conversion.ConversionTools;
+
+public class IdentifierLayoutTest {
+
+	public IdentifierLayoutTest() throws Exception {
+		StoreTestLauncher.registerStorePropertiesForInnerClasses(getClass());
+	}
+
+	public static enum Color {RED, GREEN, BLUE}
+
+	@Persisting(table="IdentifierLayoutTest")
+	public static class Simple {
+		private static final long serialVersionUID = 6502136514325185069L;
+		@Key(order=1) public String s;
+		@Key(order=2) public int i;
+		@Key(order=3, reverted=true) public long l;
+		@Key(order=4, reverted=true) public Date d;
+		@Key(order=5) public short sh;
+		@Key(order=6, reverted=true) public byte b;
+		@Key(order=7, reverted=true) public boolean bool;
+		@Key(order=8) public Color c;
+		@Key(order=9) public char ch;
+		@Key(order=10) public String last;
+	}
+
+	@Persisting(table="IdentifierLayoutTestComplex")
+	public static class Complex {
+		private static final long serialVersionUID = -3370419452125263724L;
+		@Key(order=1) public int[] a;
+		@Key(order=2) public Simple ref;
+	}
+
+	private final KeyManagement km = KeyManagement.getInstance();
+
+	@Before
+	public void cleanup() {
+		km.cleanupKnownPersistingElements();
+	}
+
+	private static Simple simple(int i, long l) {
+		Simple ret = new Simple();
+		ret.s = "key";
+		ret.i = i;
+		ret.l = l;
+		ret.d = new Date(l);
+		ret.sh = (short) i;
+		ret.b = (byte) i;
+		ret.bool = i > 0;
+		ret.c = Color.GREEN;
+		ret.ch = 'z';
+		ret.last = "";
+		return ret;
+	}
+
+	private static String expectedIdentifier(Object element) throws Exception {
+		StringBuilder ret = new StringBuilder();
+		boolean fst = true;
+		for (Field key : KeyManagement.getInstance().detectKeys(element.getClass())) {
+			if (fst) fst = false; else ret.append(KeyManagement.KEY_SEPARATOR);
+			Object o = key.get(element);
+			ret.append(key.getAnnotation(Key.class).reverted() ? ConversionTools.convertToStringReverted(o, key.getType()) : ConversionTools.convertToString(o, key.getType()));
+		}
+		return ret.append(KeyManagement.KEY_END_SEPARATOR).toString();
+	}
+
+	@Test
+	public void layout() {
+		IdentifierLayout layout = km.getIdentifierLayout(Simple.class);
+		assertSame(layout, km.getIdentifierLayout(Simple.class));
+		assertEquals(10, layout.getKeyCount());
+		assertTrue(layout.isSimple());
+		assertTrue(layout.isReverted(2));
+		assertFalse(layout.isReverted(1));
+
+		layout = km.getIdentifierLayout(Complex.class);
+		assertFalse(layout.isSimple());
+		assertFalse(layout.isKeyed(0));
+		assertTrue(layout.isKeyed(1));
+	}
+
+	@Test
+	public void sameIdentifiers() throws Exception {
+		for (long l : new long[] {0, 1, -1, 255, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE+1}) {
+			Simple s = simple((int) l, l);
+			assertEquals(expectedIdentifier(s), s.getIdentifier());
+			assertEquals(expectedIdentifier(s) + Simple.class.getName(), s.getFullIdentifier());
+		}
+	}
+
+	@Test
+	public void readIdentifier() {
+		for (long l : new long[] {0, 1, -1, 255, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE+1}) {
+			Simple s = simple((int) l, l);
+			String id = s.getIdentifier();
+			km.cleanupKnownPersistingElements();
+			Simple read = km.createElement(Simple.class, id);
+			assertNotSame(s, read);
+			assertEquals(s.s, read.s);
+			assertEquals(s.i, read.i);
+			assertEquals(s.l, read.l);
+			assertEquals(s.d, read.d);
+			assertEquals(s.sh, read.sh);
+			assertEquals(s.b, read.b);
+			assertEquals(s.bool, read.bool);
+			assertEquals(s.c, read.c);
+			assertEquals(s.ch, read.ch);
+			assertEquals(s.last, read.last);
+			assertEquals(id, read.getIdentifier());
+			assertSame(read, km.createElement(Simple.class, id));
+			assertSame(read, km.createElement(PersistingElement.class, read.getFullIdentifier()));
+		}
+	}
+
+	@Test
+	public void readComplexIdentifier() {
+		Complex c = new Complex();
+		c.a = new int[] {1, -2};
+		c.ref = simple(3, 4);
+		String id = c.getIdentifier();
+		km.cleanupKnownPersistingElements();
+		Complex read = km.createElement(Complex.class, id);
+		assertArrayEquals(c.a, read.a);
+		assertEquals(c.ref.getIdentifier(), read.ref.getIdentifier());
+		assertEquals(id, read.getIdentifier());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void truncatedIdentifier() {
+		String id = simple(1, 2).getIdentifier();
+		km.cleanupKnownPersistingElements();
+		km.createElement(Simple.class, id.substring(0, id.indexOf(KeyManagement.KEY_SEPARATOR)+3) + KeyManagement.KEY_END_SEPARATOR);
+	}
+}
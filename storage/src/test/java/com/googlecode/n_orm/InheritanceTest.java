@@ -1,12 +1,17 @@
 package com.googlecode.n_orm;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.Set;
 import java.util.TreeSet;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.googlecode.n_orm.DatabaseNotReachedException;
 import com.googlecode.n_orm.Key;
@@ -15,6 +20,11 @@ import com.googlecode.n_orm.StorageManagement;
 import com.googlecode.n_orm.cf.MapColumnFamily;
 import com.googlecode.n_orm.cf.SetColumnFamily;
 import com.googlecode.n_orm.conversion.ConversionTools;
+import com.googlecode.n_orm.memory.Memory;
+import com.googlecode.n_orm.storeapi.MultiRangeStore;
+import com.googlecode.n_orm.storeapi.SimpleStore;
+import com.googlecode.n_orm.storeapi.SimpleStoreWrapper;
+import com.googlecode.n_orm.storeapi.Store;
 
 public class InheritanceTest {
 	protected Ancestor a1, a2;
@@ -300,6 +310,46 @@ public class InheritanceTest {
 		assertEquals(c11.aCF, elt.aCF);
 	}
 
+	@Test
+	public void searchAndActivateSubclassesAtOnce() throws Exception {
+		//A store that is not a CompleteRowStore, so that column families absent from found rows are read again
+		SimpleStore simpleStore = mock(SimpleStore.class, withSettings().extraInterfaces(MultiRangeStore.class).defaultAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				try {
+					return invocation.getMethod().invoke(Memory.INSTANCE, invocation.getArguments());
+				} catch (InvocationTargetException x) {
+					throw x.getCause();
+				}
+			}
+		}));
+		Store store = SimpleStoreWrapper.getWrapper(simpleStore);
+		StoreSelector.getInstance().setPropertiesFor(Ancestor.class, store);
+		StoreSelector.getInstance().setPropertiesFor(Child1.class, store);
+		StoreSelector.getInstance().setPropertiesFor(Child2.class, store);
+		try {
+			for (Ancestor a : allAncestors) {
+				a.store();
+			}
+			KeyManagement.getInstance().cleanupKnownPersistingElements();
+			Memory.INSTANCE.resetQueries();
+			
+			Set<Ancestor> found = StorageManagement.findElements().ofClass(Ancestor.class).withAtMost(1000).elements().andActivate("aCF").go();
+			
+			assertEquals(allAncestors, found);
+			//One query for the search, and one for all elements with an empty aCF, including those of subclasses
+			assertEquals(2, Memory.INSTANCE.getQueriesAndReset());
+			for (Ancestor a : found) {
+				assertTrue(a.aCF.isActivated());
+			}
+		} finally {
+			for (Ancestor a : allAncestors) {
+				a.delete();
+			}
+			StoreTestLauncher.registerStorePropertiesForInnerClasses(getClass());
+		}
+	}
+
 	@Persisting
 	public static interface Itf {}
 	@Persisting
@@ -2,6 +2,7 @@ package com.googlecode.n_orm;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -18,6 +19,8 @@ import com.googlecode.n_orm.Key;
 import com.googlecode.n_orm.Persisting;
 import com.googlecode.n_orm.PersistingElement;
 import com.googlecode.n_orm.StorageManagement;
+import com.googlecode.n_orm.query.PreparedQuery;
+import com.googlecode.n_orm.query.SearchableClassConstraintBuilder;
 import com.googlecode.n_orm.storeapi.Constraint;
 
 
@@ -47,6 +50,16 @@ public class PersistableSearchTest {
 		
 	}
 	
+	@Persisting(table="PersistableSearchString")
+	public static class SUTStringClass {
+		private static final long serialVersionUID = -2867012345178394582L;
+		@Key public String key;
+		
+		public SUTStringClass(String key) {
+			this.key = key;
+		}
+	}
+	
 	@Before public void createSuts() {
 		try {
 			if (new SUTClass(1, 1).existsInStore())
@@ -144,6 +157,95 @@ public class PersistableSearchTest {
 		checkOrder(res);
 	}
 	
+	@Test public void searchSutsWithPreparedQuery() throws DatabaseNotReachedException {
+		PreparedQuery<SUTClass> q = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(PreparedQuery.PARAMETER).andWithKey("key2").between(PreparedQuery.PARAMETER).and(PreparedQuery.PARAMETER).withAtMost(1000).elements().andActivate().prepare();
+		for (int i = 30; i < 35; ++i) {
+			Set<SUTClass> res = q.go(i, 5, 7);
+			assertEquals(3, res.size());
+			for (SUTClass ret : res) {
+				assertEquals(i, ret.key1);
+				assertTrue(5 <= ret.key2 && ret.key2 <= 7);
+				assertEquals(ret.key1+ret.key2, ret.dummyVar);
+			}
+			checkOrder(res);
+			assertEquals(3, q.count(i, 5, 7));
+			assertEquals(5, q.any(i, 5, 7).key2);
+		}
+	}
+	
+	@Test public void searchSutsWithPreparedStreamingQuery() throws DatabaseNotReachedException {
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		PreparedQuery<SUTClass> q = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(PreparedQuery.PARAMETER).withAtMost(1000).elements().streaming().prepare();
+		CloseableIterator<SUTClass> it = q.iterate(12);
+		try {
+			int found = 0;
+			while (it.hasNext()) {
+				SUTClass ret = it.next();
+				assertEquals(12, ret.key1);
+				assertNull(KeyManagement.getInstance().getKnownPersistingElement(ret.getIdentifier(), SUTClass.class));
+				found++;
+			}
+			assertEquals(11, found);
+		} finally {
+			it.close();
+		}
+		assertTrue(KeyManagement.getInstance().isCachingForCurrentThread());
+	}
+	
+	@Test public void searchSutsWithKeyList() throws DatabaseNotReachedException {
+		SearchableClassConstraintBuilder<SUTClass> query = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").in(40, 20, 30).withAtMost(1000).elements();
+		assertEquals(33, query.count());
+		CloseableIterator<SUTClass> it = query.iterate();
+		try {
+			int found = 0;
+			SUTClass last = null;
+			while (it.hasNext()) {
+				SUTClass ret = it.next();
+				assertEquals(20 + 10*(found/11), ret.key1);
+				if (last != null) assertTrue(last.compareTo(ret) < 0);
+				last = ret;
+				found++;
+			}
+			assertEquals(33, found);
+		} finally {
+			it.close();
+		}
+	}
+	
+	@Test public void searchSutsWithStringKeyList() throws DatabaseNotReachedException {
+		for (String key : new String[] {"ab", "abc", "abz", "b", "bc"}) {
+			new SUTStringClass(key).store();
+		}
+		Set<SUTStringClass> res = StorageManagement.findElements().ofClass(SUTStringClass.class).withKey("key").in("ab", "b").withAtMost(1000).elements().go();
+		assertEquals(2, res.size());
+		for (SUTStringClass ret : res) {
+			assertTrue(ret.key.equals("ab") || ret.key.equals("b"));
+		}
+	}
+	
+	@Test public void searchSutsWithSeveralRanges() throws DatabaseNotReachedException {
+		Set<SUTClass> res = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(35).andWithKey("key2").between(1).and(2).orBetween(8).and(9).withAtMost(1000).elements().go();
+		List<Integer> toBeFound = Arrays.asList(new Integer [] {1, 2, 8, 9});
+		assertEquals(4, res.size());
+		for (SUTClass ret : res) {
+			assertEquals(35, ret.key1);
+			assertTrue(toBeFound.contains(ret.key2));
+		}
+	}
+	
+	@Test public void searchSutsWithKeyListAndLimit() throws DatabaseNotReachedException {
+		Set<SUTClass> res = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").in(50, 10).withAtMost(15).elements().go();
+		assertEquals(15, res.size());
+		int fromFirstRange = 0;
+		for (SUTClass ret : res) {
+			if (ret.key1 == 10)
+				fromFirstRange++;
+			else
+				assertEquals(50, ret.key1);
+		}
+		assertEquals(11, fromFirstRange);
+	}
+	
 	@Test public void searchSutsWithSecondKeyNoUpper() throws DatabaseNotReachedException {
 		Map<String, Object> k1Val = new TreeMap<String, Object>();
 		k1Val.put("key1", 35);
@@ -2,6 +2,8 @@ package com.googlecode.n_orm;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Date;
@@ -126,6 +128,41 @@ public class ProcessTest {
 		 assertEquals(3, n2.attribute);
 	 }
 	 
+	 @Test public void processStreaming() throws DatabaseNotReachedException, InterruptedException, ProcessException {
+		 KeyManagement.getInstance().cleanupKnownPersistingElements();
+		 StorageManagement.findElements().ofClass(Novel.class).withAtMost(1000).elements().streaming().forEach(new InrementNovel(false, false), 1, 20000);
+		 
+		 assertTrue(KeyManagement.getInstance().isCachingForCurrentThread());
+		 assertNull(KeyManagement.getInstance().getKnownPersistingElement(n1.getIdentifier(), Novel.class));
+		 assertNull(KeyManagement.getInstance().getKnownPersistingElement(n2.getIdentifier(), Novel.class));
+		 //Processed elements were other instances
+		 assertEquals(1, n1.attribute);
+		 n1.activate();
+		 n2.activate();
+		 assertEquals(2, n1.attribute);
+		 assertEquals(3, n2.attribute);
+	 }
+	 
+	 @Test public void iterateStreaming() throws DatabaseNotReachedException {
+		 KeyManagement.getInstance().cleanupKnownPersistingElements();
+		 CloseableIterator<Novel> it = StorageManagement.findElements().ofClass(Novel.class).withAtMost(1000).elements().streaming().iterate();
+		 try {
+			 int found = 0;
+			 while (it.hasNext()) {
+				 Novel n = it.next();
+				 assertTrue(n.equals(n1) || n.equals(n2));
+				 assertNotSame(n1, n);
+				 assertNotSame(n2, n);
+				 assertNull(KeyManagement.getInstance().getKnownPersistingElement(n.getIdentifier(), Novel.class));
+				 found++;
+			 }
+			 assertEquals(2, found);
+		 } finally {
+			 it.close();
+		 }
+		 assertTrue(KeyManagement.getInstance().isCachingForCurrentThread());
+	 }
+	 
 	 @Test(expected=ProcessException.class) public void processTooShort() throws DatabaseNotReachedException, InterruptedException, ProcessException {
 		StorageManagement.findElements().ofClass(Novel.class).withAtMost(1000).elements().forEach(new InrementNovel(true, true), 2, 1);		 
 	 }
@@ -0,0 +1,69 @@
+package com.googlecode.n_orm;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PropertyAccessorTest {
+	
+	public static class Element {
+		public static String staticProp = "static";
+		private int intProp;
+		private boolean boolProp;
+		private double doubleProp;
+		private char charProp;
+		private String stringProp;
+	}
+	
+	private static PropertyAccessor accessor(String name) throws Exception {
+		return PropertyAccessor.getAccessor(Element.class.getDeclaredField(name));
+	}
+
+	@Test
+	public void sameAccessor() throws Exception {
+		assertSame(accessor("intProp"), accessor("intProp"));
+		assertEquals(Element.class.getDeclaredField("intProp"), accessor("intProp").getField());
+	}
+
+	@Test
+	public void privateReadWrite() throws Exception {
+		Element e = new Element();
+		accessor("intProp").set(e, 12);
+		assertEquals(12, e.intProp);
+		assertEquals(12, accessor("intProp").get(e));
+		accessor("stringProp").set(e, "str");
+		assertEquals("str", accessor("stringProp").get(e));
+	}
+
+	@Test
+	public void staticRead() throws Exception {
+		assertEquals("static", PropertyAccessor.getAccessor(Element.class.getField("staticProp")).get(null));
+	}
+
+	@Test
+	public void defaultValues() throws Exception {
+		Element e = new Element();
+		for (String prop : new String[] {"intProp", "boolProp", "doubleProp", "charProp", "stringProp"}) {
+			assertTrue(prop, accessor(prop).hasDefaultValue(e));
+		}
+		e.intProp = 1;
+		e.boolProp = true;
+		e.doubleProp = -0.0;
+		e.charProp = 'c';
+		e.stringProp = "";
+		for (String prop : new String[] {"intProp", "boolProp", "doubleProp", "charProp"}) {
+			assertFalse(prop, accessor(prop).hasDefaultValue(e));
+		}
+	}
+
+	@Test
+	public void sameAsPropertyManagement() throws Exception {
+		PropertyManagement pm = PropertyManagement.getInstance();
+		Element e = new Element();
+		e.stringProp = "val";
+		assertFalse(pm.hasDefaultValue(e, Element.class.getDeclaredField("stringProp")));
+		assertTrue(pm.hasDefaultValue(e, Element.class.getDeclaredField("intProp")));
+		pm.setValue(e, Element.class.getDeclaredField("intProp"), 3);
+		assertEquals(3, pm.readValue(e, Element.class.getDeclaredField("intProp")));
+	}
+}
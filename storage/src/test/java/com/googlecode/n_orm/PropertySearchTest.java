@@ -0,0 +1,173 @@
+package com.googlecode.n_orm;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PropertySearchTest {
+	
+	public PropertySearchTest() throws Exception {
+		StoreTestLauncher.registerStorePropertiesForInnerClasses(getClass());
+	}
+
+	@Persisting(table="PropertySearchTest")
+	public static class Element {
+		private static final long serialVersionUID = 5718318829839233418L;
+		@Key public String key;
+		public String name;
+		public int value;
+		public double ratio;
+		public Set<String> tags = new HashSet<String>();
+		
+		public Element() {}
+		
+		public Element(String key, String name, int value) {
+			this.key = key;
+			this.name = name;
+			this.value = value;
+		}
+	}
+	
+	private Element e1, e2, e3, e4;
+	
+	@Before
+	public void storeElements() {
+		truncate();
+		e1 = new Element("e1", "alpha", -20); e1.store();
+		e2 = new Element("e2", "alphabet", -1); e2.store();
+		e3 = new Element("e3", "beta", 0); e3.store();
+		e4 = new Element("e4", null, 30); e4.store();
+	}
+	
+	@After
+	public void truncate() {
+		for (Element elt : StorageManagement.findElements().ofClass(Element.class).withAtMost(1000).elements().go()) {
+			elt.delete();
+		}
+	}
+	
+	@Test
+	public void equals() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("name").setTo("alpha").withAtMost(1000).elements().go();
+		assertEquals(1, found.size());
+		assertTrue(found.contains(e1));
+	}
+	
+	@Test
+	public void equalsNumber() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").setTo(0).withAtMost(1000).elements().go();
+		assertEquals(1, found.size());
+		assertTrue(found.contains(e3));
+	}
+	
+	@Test
+	public void prefix() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("name").startsWith("alpha").withAtMost(1000).elements().go();
+		assertEquals(2, found.size());
+		assertTrue(found.contains(e1));
+		assertTrue(found.contains(e2));
+	}
+	
+	@Test
+	public void stringRange() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("name").between("alphabet", "c").withAtMost(1000).elements().go();
+		assertEquals(2, found.size());
+		assertTrue(found.contains(e2));
+		assertTrue(found.contains(e3));
+	}
+	
+	@Test
+	public void negativeRange() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").between(-20, -1).withAtMost(1000).elements().go();
+		assertEquals(2, found.size());
+		assertTrue(found.contains(e1));
+		assertTrue(found.contains(e2));
+	}
+	
+	@Test
+	public void rangeAcrossZero() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").between(-1, 30).withAtMost(1000).elements().go();
+		assertEquals(3, found.size());
+		assertTrue(found.contains(e2));
+		assertTrue(found.contains(e3));
+		assertTrue(found.contains(e4));
+	}
+	
+	@Test
+	public void lowerBound() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").greaterOrEqualsThan(-1).withAtMost(1000).elements().go();
+		assertEquals(3, found.size());
+		assertFalse(found.contains(e1));
+	}
+	
+	@Test
+	public void upperBound() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").lessOrEqualsThan(0).withAtMost(1000).elements().go();
+		assertEquals(3, found.size());
+		assertFalse(found.contains(e4));
+	}
+	
+	@Test
+	public void missingValueNeverMatches() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("name").lessOrEqualsThan("z").withAtMost(1000).elements().go();
+		assertEquals(3, found.size());
+		assertFalse(found.contains(e4));
+	}
+	
+	@Test
+	public void severalProperties() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("name").startsWith("alpha").andWithProperty("value").greaterOrEqualsThan(-5).withAtMost(1000).elements().go();
+		assertEquals(1, found.size());
+		assertTrue(found.contains(e2));
+	}
+	
+	@Test
+	public void rangeAcrossZeroActivatingWithLimit() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").between(-1, 30).withAtMost(2).elements().andActivate("tags").go();
+		assertEquals(2, found.size());
+		assertFalse(found.contains(e1));
+	}
+	
+	@Test
+	public void upperBoundActivatingWithLimit() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").lessOrEqualsThan(30).andWithProperty("name").startsWith("alpha").withAtMost(10).elements().andActivate("tags").go();
+		assertEquals(2, found.size());
+		assertTrue(found.contains(e1));
+		assertTrue(found.contains(e2));
+	}
+	
+	@Test
+	public void severalSignedRangesActivating() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withProperty("value").lessOrEqualsThan(0).andWithProperty("value").greaterOrEqualsThan(-1).withAtMost(10).elements().andActivate("tags").go();
+		assertEquals(2, found.size());
+		assertTrue(found.contains(e2));
+		assertTrue(found.contains(e3));
+	}
+	
+	@Test
+	public void withKey() {
+		Set<Element> found = StorageManagement.findElements().ofClass(Element.class).withKey("key").greaterOrEqualsThan("e2").withProperty("name").startsWith("alpha").withAtMost(1000).elements().go();
+		assertEquals(1, found.size());
+		assertTrue(found.contains(e2));
+	}
+	
+	@Test
+	public void count() {
+		assertEquals(2, StorageManagement.findElements().ofClass(Element.class).withProperty("name").startsWith("alpha").count());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void unorderedType() {
+		StorageManagement.findElements().ofClass(Element.class).withProperty("ratio").greaterOrEqualsThan(1.0);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void unknownProperty() {
+		StorageManagement.findElements().ofClass(Element.class).withProperty("unknown");
+	}
+}
@@ -2,6 +2,10 @@ package com.googlecode.n_orm;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import org.junit.After;
 import org.junit.Test;
 
@@ -244,4 +248,92 @@ public class RelationalStorageTest {
 		}
 		
 	}
+	
+	@Persisting public static class Referred {
+		private static final long serialVersionUID = 4170321657404627493L;
+		@Key public String k;
+		public String val;
+	}
+	@Persisting public static class Referring {
+		private static final long serialVersionUID = -5127359306718316042L;
+		@Key public int k;
+		public @ImplicitActivation Referred ref;
+	}
+	@Test public void searchWithImplicitReferences() {
+		Referred[] refs = new Referred[3];
+		for (int i = 0; i < refs.length; ++i) {
+			refs[i] = new Referred(); refs[i].k = "r" + i; refs[i].val = "v" + i;
+		}
+		for (int i = 0; i < 10; ++i) {
+			Referring sut = new Referring(); sut.k = i; sut.ref = refs[i % refs.length];
+			sut.store();
+		}
+		
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Memory.INSTANCE.resetQueries();
+		Set<Referring> found = StorageManagement.findElements().ofClass(Referring.class).withAtMost(100).elements().andActivate().go();
+		//One search for referring elements, and one for referred elements
+		assertEquals(2, Memory.INSTANCE.getQueriesAndReset());
+		assertEquals(10, found.size());
+		for (Referring sut : found) {
+			assertEquals("v" + (sut.k % refs.length), sut.ref.val);
+		}
+	}
+	
+	@Test public void searchStreamingWithImplicitReferences() {
+		Referred[] refs = new Referred[3];
+		for (int i = 0; i < refs.length; ++i) {
+			refs[i] = new Referred(); refs[i].k = "r" + i; refs[i].val = "v" + i;
+		}
+		for (int i = 0; i < 10; ++i) {
+			Referring sut = new Referring(); sut.k = i; sut.ref = refs[i % refs.length];
+			sut.store();
+		}
+		
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Memory.INSTANCE.resetQueries();
+		List<Referring> found = new ArrayList<Referring>();
+		CloseableIterator<Referring> it = StorageManagement.findElements().ofClass(Referring.class).withAtMost(100).elements().andActivate().streaming().iterate();
+		try {
+			while (it.hasNext()) {
+				found.add(it.next());
+			}
+		} finally {
+			it.close();
+		}
+		//Referred elements activated at once are used by found elements, even though those are not cached
+		assertEquals(2, Memory.INSTANCE.getQueriesAndReset());
+		assertEquals(10, found.size());
+		for (Referring sut : found) {
+			assertNull(KeyManagement.getInstance().getKnownPersistingElement(sut.getIdentifier(), Referring.class));
+			assertEquals("v" + (sut.k % refs.length), sut.ref.val);
+		}
+	}
+	
+	@Test public void removeWhileIteratingWithImplicitReferences() {
+		Referred ref = new Referred(); ref.k = "r"; ref.val = "v";
+		for (int i = 0; i < 10; ++i) {
+			Referring sut = new Referring(); sut.k = i; sut.ref = ref;
+			sut.store();
+		}
+		
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		//Elements are created by pages so as to activate references at once
+		CloseableIterator<Referring> it = StorageManagement.findElements().ofClass(Referring.class).withAtMost(100).elements().andActivate().iterate();
+		try {
+			while (it.hasNext()) {
+				if (it.next().k % 2 == 0)
+					it.remove();
+			}
+		} finally {
+			it.close();
+		}
+		
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Set<Referring> found = StorageManagement.findElements().ofClass(Referring.class).withAtMost(100).elements().go();
+		assertEquals(5, found.size());
+		for (Referring sut : found) {
+			assertEquals(1, sut.k % 2);
+		}
+	}
 }
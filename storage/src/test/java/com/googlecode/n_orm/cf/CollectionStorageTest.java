@@ -2,10 +2,14 @@ package com.googlecode.n_orm.cf;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -23,6 +27,7 @@ import com.googlecode.n_orm.MemoryStoreTestLauncher;
 import com.googlecode.n_orm.Persisting;
 import com.googlecode.n_orm.StorageManagement;
 import com.googlecode.n_orm.StoreTestLauncher;
+import com.googlecode.n_orm.storeapi.Constraint;
 
 
 
@@ -135,6 +140,115 @@ public class CollectionStorageTest {
 		assertTrue(sut.getColumnFamily(sut.elements).isEmptyInStore());
 	}
 	
+	@Test
+	public void searchWithEmptyFamilies() throws DatabaseNotReachedException {
+		Container empty = new Container("key2");
+		empty.prop = 2;
+		empty.store();
+		try {
+			KeyManagement.getInstance().cleanupKnownPersistingElements();
+			this.resetQueryCount();
+			Set<Container> found = StorageManagement.findElements().ofClass(Container.class).withKey("key").between("key").and("key2").withAtMost(10).elements().andActivate("elementsInc").go();
+			//Families absent from found rows should not be read again
+			this.assertHadAQuery();
+			assertEquals(2, found.size());
+			for (Container c : found) {
+				assertTrue(c.getColumnFamily("elements").isActivated());
+				assertTrue(c.getColumnFamily("elementsInc").isActivated());
+				if (c.key.equals("key2")) {
+					assertEquals(2, c.prop);
+					assertTrue(c.elements.isEmpty());
+					assertTrue(c.elementsInc.isEmpty());
+				} else {
+					assertEquals(10, c.elements.size());
+					assertEquals(10, c.elementsInc.size());
+				}
+			}
+		} finally {
+			empty.delete();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void containsAllInStore() throws DatabaseNotReachedException {
+		Container copy = new Container(sut.key);
+		SetColumnFamily<Element> elements = (SetColumnFamily<Element>) copy.getColumnFamily("elements");
+		List<Element> candidates = new ArrayList<Element>();
+		for(int i = 1 ; i <= 10; ++i) {
+			candidates.add(new Element("E" + i));
+		}
+		assertTrue(elements.containsAllInStore(candidates));
+		assertTrue(copy.elements.containsAll(candidates));
+		candidates.add(new Element("E11"));
+		assertFalse(elements.containsAllInStore(candidates));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void getAllFromStore() throws DatabaseNotReachedException {
+		Container copy = new Container(sut.key);
+		MapColumnFamily<String, Integer> elementsInc = (MapColumnFamily<String, Integer>) copy.getColumnFamily("elementsInc");
+		Map<String, Integer> found = elementsInc.getAllFromStore(Arrays.asList("E2", "E5", "E11"));
+		assertEquals(2, found.size());
+		assertEquals(Integer.valueOf(2), found.get("E2"));
+		assertEquals(Integer.valueOf(5), found.get("E5"));
+		assertEquals(Integer.valueOf(5), copy.elementsInc.get("E5"));
+		assertNull(copy.elementsInc.get("E4"));
+	}
+	
+	@Test
+	public void sizeInStore() throws DatabaseNotReachedException {
+		Container copy = new Container(sut.key);
+		assertEquals(10, copy.getColumnFamily("elements").sizeInStore());
+		assertEquals(10, copy.getColumnFamily("elementsInc").sizeInStore());
+		//E1, E10, E2 and E3
+		assertEquals(4, copy.getColumnFamily("elementsInc").sizeInStore(new Constraint("E1", "E3")));
+		assertFalse(copy.getColumnFamily("elementsInc").isActivated());
+		assertEquals(0, new Container("nokey").getColumnFamily("elementsInc").sizeInStore());
+		
+		copy.activate("elements");
+		assertTrue(copy.elements.remove(new Element("E4")));
+		copy.store();
+		assertEquals(9, copy.getColumnFamily("elements").sizeInStore());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void iterateInStore() throws DatabaseNotReachedException {
+		Container copy = new Container(sut.key);
+		ColumnFamily<Integer> cf = (ColumnFamily<Integer>) copy.getColumnFamily("elementsInc");
+		List<String> expected = new ArrayList<String>();
+		for(int i = 1 ; i <= 10; ++i) {
+			expected.add("E" + i);
+		}
+		Collections.sort(expected);
+		
+		List<String> keys = new ArrayList<String>();
+		ColumnCursor<Integer> it = cf.iterateInStore(null, 3, false);
+		while (it.hasNext()) {
+			Map.Entry<String, Integer> e = it.next();
+			assertEquals(e.getKey(), "E" + e.getValue());
+			keys.add(e.getKey());
+		}
+		assertEquals(expected, keys);
+		assertEquals(expected.get(9), it.getLastKey());
+		assertFalse(cf.isActivated());
+		
+		//Resuming a reverse iteration
+		it = cf.iterateInStore(null, 4, true);
+		keys.clear();
+		for (int i = 0; i < 5; ++i) {
+			keys.add(it.next().getKey());
+		}
+		it = cf.iterateInStore(it.getLastKey(), 4, true);
+		while (it.hasNext()) {
+			keys.add(it.next().getKey());
+		}
+		Collections.reverse(expected);
+		assertEquals(expected, keys);
+	}
+	
 	@Test(expected=IllegalStateException.class)
 	public void cannotSetCFTwice() {
 		sut.elements = new HashSet<CollectionStorageTest.Element>();
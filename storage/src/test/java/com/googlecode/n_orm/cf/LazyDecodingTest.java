@@ -0,0 +1,153 @@
+package com.googlecode.n_orm.cf;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.Incrementing;
+import com.googlecode.n_orm.Key;
+import com.googlecode.n_orm.KeyManagement;
+import com.googlecode.n_orm.LazyDecoding;
+import com.googlecode.n_orm.Persisting;
+import com.googlecode.n_orm.StoreTestLauncher;
+
+public class LazyDecodingTest {
+
+	public LazyDecodingTest() throws Exception {
+		StoreTestLauncher.registerStorePropertiesForInnerClasses(getClass());
+	}
+
+	@Persisting(table="LazyDecodingTest")
+	public static class Container {
+		private static final long serialVersionUID = -2837469164524163721L;
+		@Key public String key;
+		@LazyDecoding public Map<String, Long> values = new HashMap<String, Long>();
+		@LazyDecoding @Incrementing public Map<String, Integer> counters = new HashMap<String, Integer>();
+
+		public Container() {}
+
+		public Container(String key) {
+			this.key = key;
+		}
+	}
+
+	private Container sut;
+
+	@Before
+	public void createSut() throws DatabaseNotReachedException {
+		sut = new Container("key");
+		for (long i = 1; i <= 10; ++i) {
+			sut.values.put("v" + i, i);
+			sut.counters.put("c" + i, (int) i);
+		}
+		sut.store();
+		KeyManagement.getInstance().cleanupKnownPersistingElements(); //Simulates a new session
+		sut = new Container("key");
+		sut.activate("values", "counters");
+	}
+
+	@After
+	public void deleteSut() throws DatabaseNotReachedException {
+		sut.delete();
+	}
+
+	@SuppressWarnings("unchecked")
+	private MapColumnFamily<String, Long> getValuesCF() {
+		return (MapColumnFamily<String, Long>) sut.getColumnFamily("values");
+	}
+
+	@Test
+	public void propertyIsTheColumnFamily() {
+		assertSame(getValuesCF(), sut.values);
+		assertTrue(getValuesCF().isLazyDecoding());
+	}
+
+	@Test
+	public void valuesNotDecodedBeforeRead() {
+		MapColumnFamily<String, Long> cf = getValuesCF();
+		assertEquals(10, cf.size());
+		assertNull(cf.collection.get("v3"));
+		assertEquals(Long.valueOf(3), sut.values.get("v3"));
+		assertEquals(Long.valueOf(3), cf.collection.get("v3"));
+		assertNull(cf.collection.get("v4"));
+		assertFalse(sut.hasChanged());
+	}
+
+	@Test
+	public void entries() {
+		Map<String, Long> expected = new HashMap<String, Long>();
+		for (long i = 1; i <= 10; ++i) {
+			expected.put("v" + i, i);
+		}
+		assertEquals(expected, new HashMap<String, Long>(sut.values));
+		assertTrue(sut.values.containsValue(7l));
+		assertFalse(sut.hasChanged());
+	}
+
+	@Test
+	public void sameValueIsNotAChange() {
+		getValuesCF().putElement("v5", 5l);
+		assertFalse(sut.hasChanged());
+		getValuesCF().putElement("v5", 6l);
+		assertTrue(sut.hasChanged());
+		assertTrue(getValuesCF().wasChanged("v5"));
+		assertFalse(getValuesCF().wasChanged("v6"));
+	}
+
+	@Test
+	public void serialization() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bos);
+		oos.writeObject(sut);
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		Container deserialized = (Container) ois.readObject();
+		assertFalse(deserialized.values instanceof ColumnFamily);
+		Map<String, Long> expected = new HashMap<String, Long>();
+		for (long i = 1; i <= 10; ++i) {
+			expected.put("v" + i, i);
+		}
+		assertEquals(expected, new HashMap<String, Long>(deserialized.values));
+	}
+
+	@Test
+	public void changeAndRemove() throws DatabaseNotReachedException {
+		sut.values.put("v2", 20l);
+		sut.values.remove("v3");
+		sut.store();
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Container sut2 = new Container("key");
+		sut2.activate("values");
+		assertEquals(9, sut2.values.size());
+		assertEquals(Long.valueOf(20), sut2.values.get("v2"));
+		assertNull(sut2.values.get("v3"));
+		assertEquals(Long.valueOf(4), sut2.values.get("v4"));
+	}
+
+	@Test
+	public void increment() throws DatabaseNotReachedException {
+		sut.counters.put("c4", 7);
+		assertEquals(3, getCountersCF().getIncrement("c4").intValue());
+		sut.store();
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Container sut2 = new Container("key");
+		sut2.activate("counters");
+		assertEquals(Integer.valueOf(7), sut2.counters.get("c4"));
+		assertEquals(Integer.valueOf(5), sut2.counters.get("c5"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private MapColumnFamily<String, Integer> getCountersCF() {
+		return (MapColumnFamily<String, Integer>) sut.getColumnFamily("counters");
+	}
+}
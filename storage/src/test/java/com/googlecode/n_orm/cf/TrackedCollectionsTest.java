@@ -0,0 +1,164 @@
+package com.googlecode.n_orm.cf;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.n_orm.DatabaseNotReachedException;
+import com.googlecode.n_orm.Key;
+import com.googlecode.n_orm.KeyManagement;
+import com.googlecode.n_orm.Persisting;
+import com.googlecode.n_orm.StoreTestLauncher;
+
+public class TrackedCollectionsTest {
+
+	public TrackedCollectionsTest() throws Exception {
+		StoreTestLauncher.registerStorePropertiesForInnerClasses(getClass());
+	}
+
+	@Persisting(table="TrackedCollectionsTest")
+	public static class Container {
+		private static final long serialVersionUID = 3419580364217793413L;
+		@Key public String key;
+		public Map<String, Integer> values = null;
+		public Set<String> elements = null;
+		public Set<Date> dates = null;
+
+		public Container() {}
+
+		public Container(String key) {
+			this.key = key;
+		}
+	}
+
+	private Container sut;
+
+	@Before
+	public void createSut() throws DatabaseNotReachedException {
+		sut = new Container("key");
+		for (int i = 1; i <= 10; ++i) {
+			sut.values.put("v" + i, i);
+			sut.elements.add("e" + i);
+		}
+		sut.store();
+		KeyManagement.getInstance().cleanupKnownPersistingElements(); //Simulates a new session
+		sut = new Container("key");
+		sut.activate("values", "elements");
+	}
+
+	@After
+	public void deleteSut() throws DatabaseNotReachedException {
+		sut.delete();
+	}
+
+	private Container reload() throws DatabaseNotReachedException {
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Container ret = new Container("key");
+		ret.activate("values", "elements");
+		return ret;
+	}
+
+	@Test
+	public void trackedCollections() {
+		assertTrue(sut.values instanceof TrackedMap<?, ?>);
+		assertTrue(sut.elements instanceof TrackedSet<?>);
+		assertEquals(10, sut.values.size());
+		assertEquals(10, sut.elements.size());
+		assertFalse(sut.hasChanged());
+	}
+
+	@Test
+	public void sameValueIsNotAChange() {
+		sut.values.put("v3", 3);
+		sut.elements.add("e3");
+		assertFalse(sut.hasChanged());
+	}
+
+	@Test
+	public void changes() throws DatabaseNotReachedException {
+		sut.values.put("v3", 30);
+		sut.values.remove("v4");
+		sut.values.put("v11", 11);
+		sut.elements.remove("e4");
+		sut.elements.add("e11");
+		assertTrue(sut.hasChanged());
+		sut.store();
+		assertFalse(sut.hasChanged());
+
+		Container sut2 = reload();
+		assertEquals(10, sut2.values.size());
+		assertEquals(Integer.valueOf(30), sut2.values.get("v3"));
+		assertFalse(sut2.values.containsKey("v4"));
+		assertEquals(Integer.valueOf(11), sut2.values.get("v11"));
+		assertEquals(10, sut2.elements.size());
+		assertFalse(sut2.elements.contains("e4"));
+		assertTrue(sut2.elements.contains("e11"));
+	}
+
+	@Test
+	public void changesThroughIterators() throws DatabaseNotReachedException {
+		for (Iterator<Map.Entry<String, Integer>> it = sut.values.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Integer> e = it.next();
+			if (e.getValue() % 2 == 0)
+				it.remove();
+			else
+				e.setValue(e.getValue() * 10);
+		}
+		for (Iterator<String> it = sut.elements.iterator(); it.hasNext();) {
+			if (it.next().equals("e5"))
+				it.remove();
+		}
+		sut.store();
+
+		Container sut2 = reload();
+		assertEquals(5, sut2.values.size());
+		assertEquals(Integer.valueOf(10), sut2.values.get("v1"));
+		assertFalse(sut2.values.containsKey("v2"));
+		assertEquals(9, sut2.elements.size());
+		assertFalse(sut2.elements.contains("e5"));
+	}
+
+	@Test
+	public void putAddAndRemove() throws DatabaseNotReachedException {
+		sut.values.put("v11", 11);
+		sut.values.remove("v11");
+		sut.elements.add("e11");
+		sut.elements.remove("e11");
+		assertFalse(sut.hasChanged());
+	}
+
+	@Test
+	public void clear() throws DatabaseNotReachedException {
+		sut.values.clear();
+		sut.elements.clear();
+		sut.store();
+
+		Container sut2 = reload();
+		assertTrue(sut2.values.isEmpty());
+		assertTrue(sut2.elements.isEmpty());
+	}
+
+	@Test
+	public void mutatedElement() throws DatabaseNotReachedException {
+		Date d = new Date(1000);
+		sut.dates.add(d);
+		sut.store();
+		//Dates are mutable: not tracked by the set
+		d.setTime(2000);
+		assertTrue(sut.hasChanged());
+		sut.store();
+
+		KeyManagement.getInstance().cleanupKnownPersistingElements();
+		Container sut2 = new Container("key");
+		sut2.activate("dates");
+		assertEquals(1, sut2.dates.size());
+		assertTrue(sut2.dates.contains(new Date(2000)));
+	}
+}
@@ -4,7 +4,10 @@ import static org.junit.Assert.*;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
@@ -322,4 +325,81 @@ public class ConversionTest {
 		Outer3 sutBack = ConversionTools.convertFromString(Outer3.class, sutAsString);
 		assertArrayEquals(new Inner2[] {i11, i12, i13}, sutBack.k);
 	}
+	
+	@Test
+	public void packedPrimitiveArrays() {
+		int[] ints = {0, 1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		byte[] rep = ConversionTools.convert(ints);
+		assertEquals(4 + 4*ints.length, rep.length);
+		assertArrayEquals(ints, ConversionTools.convert(int[].class, rep));
+		assertArrayEquals(new Integer[] {0, 1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE}, ConversionTools.convert(Integer[].class, rep));
+		
+		long[] longs = {0, -1, Long.MAX_VALUE, Long.MIN_VALUE};
+		assertArrayEquals(longs, ConversionTools.convert(long[].class, ConversionTools.convert(longs)));
+		short[] shorts = {0, -1, Short.MAX_VALUE, Short.MIN_VALUE};
+		assertArrayEquals(shorts, ConversionTools.convert(short[].class, ConversionTools.convert(shorts)));
+		char[] chars = {'a', '\u00e9', Character.MAX_VALUE};
+		assertArrayEquals(chars, ConversionTools.convert(char[].class, ConversionTools.convert(chars)));
+		float[] floats = {0f, -1.5f, Float.NaN, Float.NEGATIVE_INFINITY};
+		assertArrayEquals(floats, ConversionTools.convert(float[].class, ConversionTools.convert(floats)), 0f);
+		double[] doubles = {0d, -1.5d, Double.NaN, Double.MAX_VALUE};
+		assertArrayEquals(doubles, ConversionTools.convert(double[].class, ConversionTools.convert(doubles)), 0d);
+		boolean[] bools = {true, false, true};
+		assertTrue(Arrays.equals(bools, ConversionTools.convert(boolean[].class, ConversionTools.convert(bools))));
+		assertEquals(0, ConversionTools.convert(long[].class, ConversionTools.convert(new long[0])).length);
+	}
+	
+	@Test
+	public void unpackedPrimitiveArrays() {
+		//Element by element format, as for arrays of wrappers, must still be readable
+		byte[] rep = ConversionTools.convert(new Integer[] {1, -2, 3});
+		assertArrayEquals(new int[] {1, -2, 3}, ConversionTools.convert(int[].class, rep));
+		rep = ConversionTools.convert(new Double[] {1.5d});
+		assertArrayEquals(new double[] {1.5d}, ConversionTools.convert(double[].class, rep), 0d);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void truncatedPackedArray() {
+		byte[] rep = ConversionTools.convert(new int[] {1, 2});
+		ConversionTools.convert(int[].class, Arrays.copyOf(rep, rep.length-1));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void invalidRepresentationAfterResolution() {
+		assertEquals(12, (int)ConversionTools.convert(int.class, ConversionTools.convert(12)));
+		ConversionTools.convert(int.class, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+	}
+	
+	@Test
+	public void concurrentConversions() throws InterruptedException {
+		final int threads = 8;
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] ts = new Thread[threads];
+		for (int t = 0; t < threads; ++t) {
+			ts[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < 1000; ++i) {
+							assertEquals(i, (int)ConversionTools.convert(int.class, ConversionTools.convert(i)));
+							assertEquals("v" + i, ConversionTools.convertFromString(String.class, ConversionTools.convertToString("v" + i)));
+							assertEquals(Long.valueOf(i), ConversionTools.convert(Long.class, ConversionTools.convert(Long.valueOf(i))));
+							assertArrayEquals(new int[] {i, -i}, ConversionTools.convert(int[].class, ConversionTools.convert(new int[] {i, -i})));
+						}
+					} catch (Throwable x) {
+						error.compareAndSet(null, x);
+					}
+				}
+			};
+			ts[t].start();
+		}
+		start.countDown();
+		for (Thread t : ts) {
+			t.join();
+		}
+		if (error.get() != null)
+			throw new AssertionError(error.get());
+	}
 }
@@ -31,6 +31,11 @@ public class MockedStore implements ActionnableStore{
 		mock.process(meta, table, c, families, element, action, callback);
 	}
 
+	public void truncate(MetaInformation meta, String table, Constraint c)
+			throws DatabaseNotReachedException {
+		mock.truncate(meta, table, c);
+	}
+
 	public void start() throws DatabaseNotReachedException {
 		mock.start();
 	}
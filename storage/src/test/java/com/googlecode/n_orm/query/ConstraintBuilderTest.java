@@ -2,8 +2,10 @@ package com.googlecode.n_orm.query;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Field;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -17,6 +19,7 @@ import com.googlecode.n_orm.StorageManagement;
 import com.googlecode.n_orm.conversion.ConversionTools;
 import com.googlecode.n_orm.query.ClassConstraintBuilder;
 import com.googlecode.n_orm.storeapi.Constraint;
+import com.googlecode.n_orm.storeapi.MultiRangeConstraint;
 
 
 
@@ -161,4 +164,89 @@ public class ConstraintBuilderTest {
 	public void findElementWithBadEnumKeyGivenAsString() {
 		StorageManagement.findElements().ofClass(AnElementWithEnumKey.class).withKey("key").setTo("XXXEV2").getConstraint();
 	}
+	
+	@Test
+	public void preparedQuery() {
+		PreparedQuery<SUTClass> q = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(PreparedQuery.PARAMETER).andWithKey("key2").between(PreparedQuery.PARAMETER).and(3).withAtMost(4).elements().prepare();
+		assertEquals(2, q.getParameterCount());
+		for (int i = -2; i <= 2; ++i) {
+			Constraint expected = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(i).andWithKey("key2").between(2*i).and(3).getConstraint();
+			Constraint c = q.getConstraint(i, 2*i);
+			assertEquals(expected.getStartKey(), c.getStartKey());
+			assertEquals(expected.getEndKey(), c.getEndKey());
+		}
+	}
+	
+	@Test
+	public void preparedQueryWithoutParameter() {
+		PreparedQuery<SUTClass> q = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo("765").withAtMost(4).elements().prepare();
+		assertEquals(0, q.getParameterCount());
+		assertEquals(ConversionTools.convertToString(765) + KeyManagement.KEY_SEPARATOR, q.getConstraint().getStartKey());
+	}
+	
+	@Test
+	public void preparedQueryWithAllKeys() {
+		PreparedQuery<SUTClass> q = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(1).andWithKey("key2").setTo(PreparedQuery.PARAMETER).withAtMost(4).elements().prepare();
+		Constraint expected = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(1).andWithKey("key2").setTo(2).getConstraint();
+		Constraint c = q.getConstraint(2);
+		assertEquals(expected.getStartKey(), c.getStartKey());
+		assertEquals(expected.getEndKey(), c.getEndKey());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void preparedQueryMissingParameter() {
+		StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(PreparedQuery.PARAMETER).andWithKey("key2").between(PreparedQuery.PARAMETER).and(3).withAtMost(4).elements().prepare().getConstraint(1);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void preparedQueryLacksPreviousKey() {
+		StorageManagement.findElements().ofClass(SUTClass.class).andWithKey("key2").between(PreparedQuery.PARAMETER).and(3).withAtMost(4).elements().prepare();
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void preparedQueryWithSubConstraint() {
+		StorageManagement.findElements().ofClass(SUTOuterClass.class).withKey("key1").isAnElement().withKey("key1").setTo(1).and().withAtMost(4).elements().prepare();
+	}
+	
+	@Test
+	public void keyList() {
+		Constraint c = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(1).andWithKey("key2").in(7, 3, 5).getConstraint();
+		assertTrue(c instanceof MultiRangeConstraint);
+		List<Constraint> ranges = ((MultiRangeConstraint)c).getRanges();
+		assertEquals(3, ranges.size());
+		int i = 0;
+		for (int key2 : new int[] {3, 5, 7}) {
+			//Searched value is followed by its separator, as when setting key2 to this value
+			String expected = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(1).andWithKey("key2").between(key2).and(key2).getConstraint().getStartKey() + KeyManagement.KEY_END_SEPARATOR;
+			assertEquals(expected, ranges.get(i).getStartKey());
+			assertEquals(expected.substring(0, expected.length()-1) + (char)(KeyManagement.KEY_END_SEPARATOR.charAt(0)+1), ranges.get(i).getEndKey());
+			i++;
+		}
+		assertEquals(ranges.get(0).getStartKey(), c.getStartKey());
+		assertEquals(ranges.get(2).getEndKey(), c.getEndKey());
+	}
+	
+	@Test
+	public void overlappingRanges() {
+		Constraint c = StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").between(10).and(20).orBetween(30).and(40).orBetween(15).and(25).getConstraint();
+		List<Constraint> ranges = ((MultiRangeConstraint)c).getRanges();
+		assertEquals(2, ranges.size());
+		assertEquals(StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").between(10).and(25).getConstraint().getEndKey(), ranges.get(0).getEndKey());
+		assertEquals(StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").between(30).and(40).getConstraint().getStartKey(), ranges.get(1).getStartKey());
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void otherRangeWithoutRange() {
+		StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").setTo(1).orBetween(2);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void emptyKeyList() {
+		StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").in();
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void preparedQueryWithKeyList() {
+		StorageManagement.findElements().ofClass(SUTClass.class).withKey("key1").in(1, 2).withAtMost(4).elements().prepare();
+	}
 }